@@ -0,0 +1,71 @@
+package io.vodqa.extreportng.benchmarks;
+
+import io.vodqa.extreportng.Stubs;
+import io.vodqa.extreportng.listener.TNGReportListener;
+import org.openjdk.jmh.annotations.*;
+import org.testng.IInvokedMethod;
+import org.testng.ISuite;
+import org.testng.ITestContext;
+import org.testng.ITestNGMethod;
+import org.testng.ITestResult;
+import org.testng.Reporter;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@code generateReport}, i.e. the html report output catching up and its final {@code extent.flush()},
+ * as a function of the report tree size. Every synthetic test carries five {@link Reporter} log lines.
+ *
+ * The report outputs are closed by {@code generateReport}, so every iteration runs a new listener once.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FlushBenchmark {
+
+    private static final int LOG_LINES = 5;
+
+    @Param({"100", "1000", "10000"})
+    private int treeSize;
+
+    private TNGReportListener listener;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        listener = new TNGReportListener();
+        ISuite suite = Stubs.suite("Benchmark Suite", Collections.emptyMap());
+        listener.onStart(suite);
+        ITestContext context = Stubs.testContext("Benchmark Tests", suite);
+        listener.onStart(context);
+
+        for (int i = 0; i < treeSize; i++) {
+            ITestNGMethod method = Stubs.testMethod("test" + i, "group" + (i % 10));
+            IInvokedMethod invokedMethod = Stubs.invokedMethod(method);
+            ITestResult result = Stubs.testResult(method, context, ITestResult.SUCCESS, null);
+
+            Reporter.setCurrentTestResult(result);
+            for (int j = 0; j < LOG_LINES; j++) {
+                Reporter.log("Reporter log line number " + j);
+            }
+
+            listener.beforeInvocation(invokedMethod, result);
+            listener.afterInvocation(invokedMethod, result);
+        }
+        Reporter.setCurrentTestResult(null);
+        listener.onFinish(context);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        Reporter.clear();
+    }
+
+    @Benchmark
+    public void generateReport() {
+        listener.generateReport(Collections.emptyList(), Collections.emptyList(), "");
+    }
+}
@@ -0,0 +1,85 @@
+package io.vodqa.extreportng.benchmarks;
+
+import io.vodqa.extreportng.Stubs;
+import io.vodqa.extreportng.listener.TNGReportListener;
+import org.openjdk.jmh.annotations.*;
+import org.testng.IInvokedMethod;
+import org.testng.ISuite;
+import org.testng.ITestContext;
+import org.testng.ITestNGMethod;
+import org.testng.ITestResult;
+import org.testng.Reporter;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the listener cost of a whole run: {@code beforeInvocation} and {@code afterInvocation}
+ * for every test, including the {@link Reporter} output ingestion.
+ *
+ * One in ten synthetic tests fails with an {@link AssertionError}.
+ * The largest parameter combinations need a big heap, narrow them down with {@code -p tests=... -p logLines=...}
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ListenerBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    private int tests;
+
+    @Param({"0", "50", "500"})
+    private int logLines;
+
+    private TNGReportListener listener;
+    private IInvokedMethod[] methods;
+    private ITestResult[] results;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        listener = new TNGReportListener();
+        ISuite suite = Stubs.suite("Benchmark Suite", Collections.emptyMap());
+        listener.onStart(suite);
+        ITestContext context = Stubs.testContext("Benchmark Tests", suite);
+        listener.onStart(context);
+
+        String[] lines = new String[logLines];
+        for (int i = 0; i < logLines; i++) {
+            lines[i] = "Reporter log line number " + i;
+        }
+
+        AssertionError failure = new AssertionError("expected [pass] but found [fail]");
+        methods = new IInvokedMethod[tests];
+        results = new ITestResult[tests];
+        for (int i = 0; i < tests; i++) {
+            ITestNGMethod method = Stubs.testMethod("test" + i, "group" + (i % 10));
+            boolean failed = i % 10 == 0;
+            methods[i] = Stubs.invokedMethod(method);
+            results[i] = Stubs.testResult(method, context,
+                    failed ? ITestResult.FAILURE : ITestResult.SUCCESS, failed ? failure : null);
+
+            Reporter.setCurrentTestResult(results[i]);
+            for (String line : lines) {
+                Reporter.log(line);
+            }
+        }
+        Reporter.setCurrentTestResult(null);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        Reporter.clear();
+    }
+
+    @Benchmark
+    public TNGReportListener invocationRun() {
+        for (int i = 0; i < tests; i++) {
+            listener.beforeInvocation(methods[i], results[i]);
+            listener.afterInvocation(methods[i], results[i]);
+        }
+        return listener;
+    }
+}
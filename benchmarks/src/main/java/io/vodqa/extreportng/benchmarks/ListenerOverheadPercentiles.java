@@ -0,0 +1,139 @@
+package io.vodqa.extreportng.benchmarks;
+
+import io.vodqa.extreportng.Stubs;
+import io.vodqa.extreportng.listener.TNGReportListener;
+import io.vodqa.extreportng.metrics.LatencyHistogram;
+import org.testng.IInvokedMethod;
+import org.testng.ISuite;
+import org.testng.ITestContext;
+import org.testng.ITestNGMethod;
+import org.testng.ITestResult;
+import org.testng.Reporter;
+
+import java.util.Collections;
+
+/**
+ * Compares the listener overhead seen by the test threads in the default mode
+ * and in the async mode ({@code report.async}), where the test method callbacks only publish
+ * their updates to the report builder thread.
+ *
+ * Synthetic tests go through {@code beforeInvocation} and {@code afterInvocation} on N threads,
+ * with the given number of {@link Reporter} lines each; one in ten fails with an {@link AssertionError}.
+ * The time of every callback pair is recorded and printed as percentiles, after warm-up rounds on the same listener.
+ * For the async mode the time until the builder has caught up with the tests is printed as well.
+ *
+ * Without a test body between the callbacks the builder is never idle, so a test time in microseconds
+ * can be spent between {@code beforeInvocation} and {@code afterInvocation} to get closer to a real run.
+ *
+ * Usage:
+ * <pre>
+ *     java -cp target/benchmarks.jar io.vodqa.extreportng.benchmarks.ListenerOverheadPercentiles [tests] [log lines] [threads] [test micros]
+ * </pre>
+ */
+public final class ListenerOverheadPercentiles {
+
+    private static final int WARMUP_ROUNDS = 3;
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    private ListenerOverheadPercentiles() {
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int tests = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        int logLines = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+        long testNanos = (args.length > 3 ? Long.parseLong(args[3]) : 0) * 1000;
+
+        System.out.println(tests + " tests, " + logLines + " log lines, " + threads + " threads, "
+                + testNanos / 1000 + " us per test");
+        System.out.println(String.format("%8s %10s %10s %10s %10s %10s %10s %12s", "mode",
+                "p50 [us]", "p90 [us]", "p99 [us]", "p99.9 [us]", "max [us]", "run [ms]", "built [ms]"));
+        for (boolean async : new boolean[]{false, true}) {
+            TNGReportListener listener = new TNGReportListener();
+            ISuite suite = Stubs.suite("Overhead Suite", Collections.singletonMap("report.async", String.valueOf(async)));
+            listener.onStart(suite);
+
+            for (int round = 0; round < WARMUP_ROUNDS; round++) {
+                run(listener, suite, "Warm-up " + round, tests, logLines, threads, testNanos);
+            }
+            Round round = run(listener, suite, "Measured", tests, logLines, threads, testNanos);
+
+            StringBuilder line = new StringBuilder(String.format("%8s", async ? "async" : "default"));
+            for (double percentile : PERCENTILES) {
+                line.append(String.format(" %10.1f", round.histogram.getValueAtPercentile(percentile) / 1000d));
+            }
+            line.append(String.format(" %10.1f %10d %12d", round.histogram.getMax() / 1000d, round.runMillis, round.builtMillis));
+            System.out.println(line);
+        }
+    }
+
+    private static Round run(TNGReportListener listener, ISuite suite, String name, int tests, int logLines,
+                             int threads, long testNanos) throws InterruptedException {
+        ITestContext context = Stubs.testContext(name, suite);
+        listener.onStart(context);
+
+        AssertionError failure = new AssertionError("expected [pass] but found [fail]");
+        IInvokedMethod[] methods = new IInvokedMethod[tests];
+        ITestResult[] results = new ITestResult[tests];
+        for (int i = 0; i < tests; i++) {
+            ITestNGMethod method = Stubs.testMethod("test" + i, "group" + (i % 10));
+            boolean failed = i % 10 == 0;
+            methods[i] = Stubs.invokedMethod(method);
+            results[i] = Stubs.testResult(method, context,
+                    failed ? ITestResult.FAILURE : ITestResult.SUCCESS, failed ? failure : null);
+
+            Reporter.setCurrentTestResult(results[i]);
+            for (int line = 0; line < logLines; line++) {
+                Reporter.log("Reporter log line number " + line);
+            }
+        }
+        Reporter.setCurrentTestResult(null);
+
+        LatencyHistogram histogram = new LatencyHistogram();
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            int first = t;
+            workers[t] = new Thread(() -> {
+                for (int i = first; i < tests; i += threads) {
+                    long start = System.nanoTime();
+                    listener.beforeInvocation(methods[i], results[i]);
+                    long testStart = System.nanoTime();
+                    while (System.nanoTime() - testStart < testNanos) {
+                        // the test body
+                    }
+                    long testEnd = System.nanoTime();
+                    listener.afterInvocation(methods[i], results[i]);
+                    histogram.record(System.nanoTime() - start - (testEnd - testStart));
+                }
+            }, "test-" + t);
+        }
+
+        long runStart = System.nanoTime();
+        for (Thread worker : workers) {
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long runEnd = System.nanoTime();
+        listener.onFinish(context);
+        // waits for the report builder in the async mode
+        listener.onFinish(suite);
+        long builtEnd = System.nanoTime();
+        Reporter.clear();
+
+        return new Round(histogram, (runEnd - runStart) / 1000000, (builtEnd - runStart) / 1000000);
+    }
+
+    private static final class Round {
+        private final LatencyHistogram histogram;
+        private final long runMillis;
+        private final long builtMillis;
+
+        private Round(LatencyHistogram histogram, long runMillis, long builtMillis) {
+            this.histogram = histogram;
+            this.runMillis = runMillis;
+            this.builtMillis = builtMillis;
+        }
+    }
+}
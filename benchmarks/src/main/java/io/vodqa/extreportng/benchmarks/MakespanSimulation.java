@@ -0,0 +1,123 @@
+package io.vodqa.extreportng.benchmarks;
+
+import io.vodqa.extreportng.Stubs;
+import io.vodqa.extreportng.history.HistoryStore;
+import io.vodqa.extreportng.listener.DurationAwareMethodInterceptor;
+import io.vodqa.extreportng.shard.ResultRecord;
+import org.testng.IMethodInstance;
+import org.testng.ISuite;
+import org.testng.ITestContext;
+import org.testng.ITestNGMethod;
+import org.testng.ITestResult;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+/**
+ * Simulates the wall-clock time (makespan) of a parallel run in declaration order
+ * and in the order of the {@link DurationAwareMethodInterceptor}.
+ *
+ * A synthetic suite of methods with log-normally distributed durations is recorded in a temporary
+ * {@link HistoryStore} for a number of runs, then one more run is scheduled on N threads the way TestNG does it:
+ * every free thread takes the next method of the list.
+ *
+ * Usage:
+ * <pre>
+ *     java -cp target/benchmarks.jar io.vodqa.extreportng.benchmarks.MakespanSimulation [methods] [history runs]
+ * </pre>
+ */
+public final class MakespanSimulation {
+
+    private static final int[] THREADS = {4, 8, 16, 32};
+    private static final double MEDIAN_MILLIS = 2000;
+    private static final double SIGMA = 1.0;
+    private static final double NOISE = 0.1;
+
+    private MakespanSimulation() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        int methodCount = args.length > 0 ? Integer.parseInt(args[0]) : 400;
+        int historyRuns = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        Random random = new Random(42);
+
+        ISuite suite = Stubs.suite("Makespan Suite", Collections.emptyMap());
+        ITestContext context = Stubs.testContext("Makespan Tests", suite);
+        List<ITestNGMethod> methods = new ArrayList<>(methodCount);
+        Map<ITestNGMethod, Double> meanMillis = new HashMap<>();
+        for (int i = 0; i < methodCount; i++) {
+            ITestNGMethod method = Stubs.testMethod("test" + i);
+            methods.add(method);
+            meanMillis.put(method, MEDIAN_MILLIS * Math.exp(SIGMA * random.nextGaussian()));
+        }
+
+        File folder = Files.createTempDirectory("makespan-history").toFile();
+        for (int run = 0; run < historyRuns; run++) {
+            HistoryStore store = HistoryStore.open(folder, historyRuns);
+            for (ITestNGMethod method : methods) {
+                long duration = sample(meanMillis.get(method), random);
+                ITestResult result = Stubs.testResult(method, context, ITestResult.SUCCESS, 0, duration);
+                store.record(ResultRecord.from(result, Collections.emptyList()));
+            }
+            store.commit(String.format("run%04d", run), run);
+        }
+
+        DurationAwareMethodInterceptor interceptor = new DurationAwareMethodInterceptor(HistoryStore.open(folder, historyRuns));
+        List<IMethodInstance> declared = new ArrayList<>(methodCount);
+        for (ITestNGMethod method : methods) {
+            declared.add(Stubs.methodInstance(method));
+        }
+        List<IMethodInstance> ordered = interceptor.intercept(declared, context);
+
+        Map<ITestNGMethod, Long> actualMillis = new HashMap<>();
+        long totalMillis = 0;
+        long longestMillis = 0;
+        for (ITestNGMethod method : methods) {
+            long duration = sample(meanMillis.get(method), random);
+            actualMillis.put(method, duration);
+            totalMillis += duration;
+            longestMillis = Math.max(longestMillis, duration);
+        }
+
+        System.out.println(methodCount + " methods, " + historyRuns + " history runs, total "
+                + totalMillis / 1000 + " s of test time, longest method " + longestMillis / 1000 + " s");
+        System.out.println(String.format("%8s %14s %14s %14s %10s", "threads", "declared [s]", "LPT [s]", "bound [s]", "reduction"));
+        for (int threads : THREADS) {
+            long declaredMakespan = makespan(declared, actualMillis, threads);
+            long orderedMakespan = makespan(ordered, actualMillis, threads);
+            long bound = Math.max(totalMillis / threads, longestMillis);
+            System.out.println(String.format("%8d %14.1f %14.1f %14.1f %9.1f%%", threads,
+                    declaredMakespan / 1000d, orderedMakespan / 1000d, bound / 1000d,
+                    100d * (declaredMakespan - orderedMakespan) / declaredMakespan));
+        }
+    }
+
+    /**
+     * Greedy list scheduling: every method goes to the thread that becomes free first.
+     */
+    static long makespan(List<IMethodInstance> order, Map<ITestNGMethod, Long> millis, int threads) {
+        PriorityQueue<Long> freeAt = new PriorityQueue<>();
+        for (int i = 0; i < threads; i++) {
+            freeAt.add(0L);
+        }
+        long makespan = 0;
+        for (IMethodInstance instance : order) {
+            long finish = freeAt.poll() + millis.get(instance.getMethod());
+            makespan = Math.max(makespan, finish);
+            freeAt.add(finish);
+        }
+        return makespan;
+    }
+
+    private static long sample(double meanMillis, Random random) {
+        return Math.max(1, Math.round(meanMillis * (1 + NOISE * random.nextGaussian())));
+    }
+}
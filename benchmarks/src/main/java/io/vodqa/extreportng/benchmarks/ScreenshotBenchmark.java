@@ -0,0 +1,75 @@
+package io.vodqa.extreportng.benchmarks;
+
+import io.vodqa.extreportng.Stubs;
+import io.vodqa.extreportng.extras.SeleUtil;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures the screenshot path with a fake {@link org.openqa.selenium.TakesScreenshot} driver.
+ *
+ * {@code capture} is the cost paid on the test thread,
+ * {@code captureAndDrain} also waits for the file to be written to disk.
+ * Every capture returns a different image, so with {@code screenshot.dedup} enabled nothing is served from the store.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ScreenshotBenchmark {
+
+    @Param({"200000", "1000000", "3000000"})
+    private int imageSize;
+
+    private ScreenshotHarness harness;
+    private File reportDir;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        reportDir = Files.createTempDirectory("screenshot-benchmark").toFile();
+        System.setProperty("reportPath", reportDir.getAbsolutePath());
+        byte[] image = new byte[imageSize];
+        new Random(42).nextBytes(image);
+        AtomicLong captures = new AtomicLong();
+        SeleUtil.setReportDriver(Stubs.screenshotDriver(() -> {
+            byte[] next = image.clone();
+            long capture = captures.incrementAndGet();
+            for (int i = 0; i < 8; i++) {
+                next[i] = (byte) (capture >>> (i * 8));
+            }
+            return next;
+        }));
+        harness = new ScreenshotHarness();
+    }
+
+    @TearDown(Level.Iteration)
+    public void drain() {
+        ScreenshotHarness.drain();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(reportDir);
+    }
+
+    @Benchmark
+    public String capture() throws IOException {
+        return harness.capture("benchmark");
+    }
+
+    @Benchmark
+    public String captureAndDrain() throws IOException {
+        String path = harness.capture("benchmark");
+        ScreenshotHarness.drain();
+        return path;
+    }
+}
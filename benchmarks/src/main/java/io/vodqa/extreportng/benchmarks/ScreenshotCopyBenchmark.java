@@ -0,0 +1,92 @@
+package io.vodqa.extreportng.benchmarks;
+
+import io.vodqa.extreportng.extras.ScreenshotOutput;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the ways of getting a captured screenshot file into the screenshots folder.
+ *
+ * {@code commonsIoCopy} is the former {@link FileUtils#copyFile(File, File)} path,
+ * {@code heapCopy} reads the file into a byte array and writes it back,
+ * {@code channelCopy} and {@code transfer} are the {@link ScreenshotOutput} copy and rename.
+ *
+ * Each invocation starts from a freshly written capture, which is not measured.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ScreenshotCopyBenchmark {
+
+    @Param({"200000", "1000000", "3000000"})
+    private int imageSize;
+
+    private byte[] image;
+    private Path captureDir;
+    private Path screenshotsDir;
+    private Path source;
+    private Path target;
+    private int counter;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        image = new byte[imageSize];
+        new Random(42).nextBytes(image);
+        captureDir = Files.createTempDirectory("screenshot-capture");
+        screenshotsDir = Files.createTempDirectory("screenshot-copy-benchmark");
+    }
+
+    @Setup(Level.Invocation)
+    public void capture() throws IOException {
+        counter++;
+        source = captureDir.resolve("capture" + counter + ".png");
+        target = screenshotsDir.resolve("screenshot" + counter + ".png");
+        Files.write(source, image);
+    }
+
+    @TearDown(Level.Invocation)
+    public void cleanUp() throws IOException {
+        Files.deleteIfExists(source);
+        Files.deleteIfExists(target);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(captureDir.toFile());
+        FileUtils.deleteDirectory(screenshotsDir.toFile());
+    }
+
+    @Benchmark
+    public Path commonsIoCopy() throws IOException {
+        FileUtils.copyFile(source.toFile(), target.toFile());
+        return target;
+    }
+
+    @Benchmark
+    public Path heapCopy() throws IOException {
+        ScreenshotOutput.write(Files.readAllBytes(source), target);
+        return target;
+    }
+
+    @Benchmark
+    public Path channelCopy() throws IOException {
+        ScreenshotOutput.copy(source, target);
+        return target;
+    }
+
+    @Benchmark
+    public Path transfer() throws IOException {
+        ScreenshotOutput.transfer(source, target);
+        return target;
+    }
+}
@@ -0,0 +1,19 @@
+package io.vodqa.extreportng.benchmarks;
+
+import io.vodqa.extreportng.extras.SeleUtil;
+
+import java.io.IOException;
+
+/**
+ * Exposes the protected screenshot path of {@link SeleUtil} to the benchmarks.
+ */
+class ScreenshotHarness extends SeleUtil {
+
+    String capture(String sScreenshotName) throws IOException {
+        return captureScreenshot(getDriver(), sScreenshotName);
+    }
+
+    static void drain() {
+        awaitScreenshots();
+    }
+}
@@ -15,7 +15,7 @@ class CustomConditions {
 
     private static final Logger log = LogManager.getLogger(CustomConditions.class);
 
-    private SeleUtil.JSHelper jsHelper = new SeleUtil().new JSHelper();
+    private static final SeleUtil.JSHelper jsHelper = new SeleUtil().new JSHelper();
 
     ExpectedCondition<Boolean> isElementInViewport(WebElement element) throws IOException {
         log.debug("Executing custom condition: " + SeleUtil.getCurrentMethodName());
@@ -27,8 +27,9 @@ class CustomConditions {
             @Override
             public Boolean apply(WebDriver d) {
                 log.debug("Waiting for element to be visible in viewport");
-                log.debug(jsHelper.executeScript(jsScript, element));
-                return ((Boolean) jsHelper.executeScript(jsScript, element));
+                Boolean inViewport = (Boolean) jsHelper.executeScript(jsScript, element);
+                log.debug(inViewport);
+                return inViewport;
             }
 
             @Override
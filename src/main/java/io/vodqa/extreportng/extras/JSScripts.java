@@ -0,0 +1,93 @@
+package io.vodqa.extreportng.extras;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Immutable registry of the JavaScript helpers found under {@code scripts/} on the classpath.
+ *
+ * All scripts are read once when the class is initialised
+ * and shared by every {@link SeleUtil.JSHelper} and {@link CustomConditions} instance.
+ * Functions used by several scripts live in their own file and are put in front of the scripts that need them.
+ */
+final class JSScripts {
+
+    private static final Logger log = LogManager.getLogger(JSScripts.class.getName());
+
+    private static final String SCRIPTS_DIR = "scripts/";
+
+    private static final String[] SCRIPT_FILES = {
+            "getElementBorder.js",
+            "getElementClientRect.js",
+            "isElementInViewport.js",
+            "isVisible.js",
+            "removeElementBorder.js",
+            "scrollElementIntoMiddle.js",
+            "scrollHighlightElement.js",
+            "unhighlightLastElement.js"
+    };
+
+    private static final Map<String, String> INCLUDES = new HashMap<>();
+
+    static {
+        INCLUDES.put("isElementInViewport.js", "isVisible.js");
+        INCLUDES.put("scrollHighlightElement.js", "isVisible.js");
+    }
+
+    private static final Map<String, String> SCRIPTS = loadScripts();
+
+    private JSScripts() {
+    }
+
+    /**
+     * Gets the source of a preloaded script.
+     *
+     * @param sScriptFileName   The script file name, relative to the {@code scripts/} folder
+     * @return                  The script source
+     * @throws IOException      If the script is not part of the registry
+     */
+    static String get(String sScriptFileName) throws IOException {
+        String script = SCRIPTS.get(sScriptFileName);
+        if (script == null) {
+            throw new IOException("Script not found: " + SCRIPTS_DIR + sScriptFileName);
+        }
+        return script;
+    }
+
+    private static Map<String, String> loadScripts() {
+        Map<String, String> scripts = new HashMap<>();
+        ClassLoader classLoader = JSScripts.class.getClassLoader();
+
+        for (String sScriptFileName : SCRIPT_FILES) {
+            try (InputStream is = classLoader.getResourceAsStream(SCRIPTS_DIR + sScriptFileName)) {
+                if (is == null) {
+                    log.error("Script resource is missing: " + SCRIPTS_DIR + sScriptFileName);
+                    continue;
+                }
+                scripts.put(sScriptFileName, IOUtils.toString(is, StandardCharsets.UTF_8));
+                log.debug("Loaded script: " + sScriptFileName);
+            } catch (IOException e) {
+                log.error("Failed to load script: " + SCRIPTS_DIR + sScriptFileName);
+                log.error(e.getMessage());
+            }
+        }
+
+        for (Map.Entry<String, String> include : INCLUDES.entrySet()) {
+            String script = scripts.get(include.getKey());
+            String included = scripts.get(include.getValue());
+            if (script != null && included != null) {
+                scripts.put(include.getKey(), included + "\n" + script);
+            }
+        }
+
+        return Collections.unmodifiableMap(scripts);
+    }
+}
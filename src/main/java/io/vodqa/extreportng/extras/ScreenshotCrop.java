@@ -0,0 +1,128 @@
+package io.vodqa.extreportng.extras;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.util.List;
+
+/**
+ * Region of a screenshot around one element, applied by the {@link ScreenshotProcessor} on the writer threads.
+ *
+ * The element position comes from {@code getElementClientRect.js} in CSS pixels relative to the viewport.
+ * It is scaled by the device pixel ratio, and shifted by the scroll offset when the driver returned
+ * a screenshot of the whole page instead of the viewport.
+ */
+final class ScreenshotCrop {
+
+    private static final int VALUES = 8;
+
+    private final double left;
+    private final double top;
+    private final double width;
+    private final double height;
+    private final double scrollX;
+    private final double scrollY;
+    private final double viewportHeight;
+    private final double pixelRatio;
+    private final int padding;
+
+    private ScreenshotCrop(double[] values, int padding) {
+        this.left = values[0];
+        this.top = values[1];
+        this.width = values[2];
+        this.height = values[3];
+        this.scrollX = values[4];
+        this.scrollY = values[5];
+        this.viewportHeight = values[6];
+        this.pixelRatio = values[7] > 0 ? values[7] : 1;
+        this.padding = Math.max(0, padding);
+    }
+
+    /**
+     * @param scriptResult  The value returned by {@code getElementClientRect.js}
+     * @param padding       The margin kept around the element, in CSS pixels
+     * @return              The crop
+     * @throws IllegalArgumentException If the script result is not a list of numbers
+     */
+    static ScreenshotCrop fromScriptResult(Object scriptResult, int padding) {
+        if (!(scriptResult instanceof List) || ((List<?>) scriptResult).size() < VALUES) {
+            throw new IllegalArgumentException("Unexpected element rect: " + scriptResult);
+        }
+
+        List<?> list = (List<?>) scriptResult;
+        double[] values = new double[VALUES];
+        for (int i = 0; i < VALUES; i++) {
+            Object value = list.get(i);
+            if (!(value instanceof Number)) {
+                throw new IllegalArgumentException("Unexpected element rect: " + scriptResult);
+            }
+            values[i] = ((Number) value).doubleValue();
+        }
+        return new ScreenshotCrop(values, padding);
+    }
+
+    /**
+     * @return true if the element has no area to capture
+     */
+    boolean isEmpty() {
+        return width <= 0 || height <= 0;
+    }
+
+    /**
+     * Gets the element region on an image, padded and clipped to the image.
+     *
+     * @param imageWidth    The screenshot width in pixels
+     * @param imageHeight   The screenshot height in pixels
+     * @return              The region, or null if the element is not on the image
+     */
+    Rectangle getBounds(int imageWidth, int imageHeight) {
+        // a screenshot taller than the viewport is of the whole page, in document coordinates
+        boolean fullPage = imageHeight > Math.round(viewportHeight * pixelRatio) + 1;
+        double x = (left - padding + (fullPage ? scrollX : 0)) * pixelRatio;
+        double y = (top - padding + (fullPage ? scrollY : 0)) * pixelRatio;
+        double w = (width + 2 * padding) * pixelRatio;
+        double h = (height + 2 * padding) * pixelRatio;
+
+        int x0 = (int) Math.max(0, Math.floor(x));
+        int y0 = (int) Math.max(0, Math.floor(y));
+        int x1 = (int) Math.min(imageWidth, Math.ceil(x + w));
+        int y1 = (int) Math.min(imageHeight, Math.ceil(y + h));
+        if (x1 <= x0 || y1 <= y0) {
+            return null;
+        }
+        return new Rectangle(x0, y0, x1 - x0, y1 - y0);
+    }
+
+    /**
+     * Crops the image to the element region.
+     *
+     * @param image The screenshot
+     * @return      The cropped image, or the screenshot itself if the element is not on it
+     */
+    BufferedImage apply(BufferedImage image) {
+        Rectangle bounds = getBounds(image.getWidth(), image.getHeight());
+        if (bounds == null) {
+            return image;
+        }
+        return image.getSubimage(bounds.x, bounds.y, bounds.width, bounds.height);
+    }
+
+    /**
+     * Adds the crop to a screenshot digest, so the same screenshot cropped differently is stored separately.
+     *
+     * @param digest The screenshot digest
+     */
+    void update(MessageDigest digest) {
+        ByteBuffer buffer = ByteBuffer.allocate(VALUES * 8 + 4);
+        buffer.putDouble(left).putDouble(top).putDouble(width).putDouble(height)
+                .putDouble(scrollX).putDouble(scrollY).putDouble(viewportHeight).putDouble(pixelRatio)
+                .putInt(padding);
+        digest.update(buffer.array());
+    }
+
+    @Override
+    public String toString() {
+        return "[" + left + ", " + top + ", " + width + "x" + height + ", padding " + padding + "]";
+    }
+}
@@ -0,0 +1,158 @@
+package io.vodqa.extreportng.extras;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+
+/**
+ * The screenshots folder of the run and the file operations used to fill it.
+ *
+ * The folder is resolved and created once per report path, instead of on every capture.
+ * Captured files are moved into it with a rename when the driver's temp file is on the same file system,
+ * and otherwise copied with {@link FileChannel#transferTo}, so the image bytes never pass through the JVM heap.
+ */
+public final class ScreenshotOutput {
+
+    private static final Logger log = LogManager.getLogger(ScreenshotOutput.class.getName());
+
+    static final String FOLDER_NAME = "Screenshots";
+
+    private static final ScreenshotOutput INSTANCE = new ScreenshotOutput();
+
+    private static final int DIGEST_BUFFER_SIZE = 64 * 1024;
+
+    private static final ThreadLocal<ByteBuffer> digestBuffer = ThreadLocal.withInitial(() -> ByteBuffer.allocate(DIGEST_BUFFER_SIZE));
+
+    private volatile Folder folder;
+
+    private ScreenshotOutput() {
+    }
+
+    static ScreenshotOutput getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Gets the screenshots folder of the current report path, creating it on first use.
+     *
+     * @return              The screenshots folder
+     * @throws IOException  If the folder can't be created
+     */
+    Path getFolder() throws IOException {
+        String reportPath = System.getProperty("reportPath");
+        Folder f = folder;
+        if (f == null || !f.reportPath.equals(reportPath)) {
+            Path path = Paths.get(reportPath, FOLDER_NAME).toAbsolutePath();
+            Files.createDirectories(path);
+            log.debug("Screenshots folder: " + path);
+            f = new Folder(reportPath, path);
+            folder = f;
+        }
+        return f.path;
+    }
+
+    /**
+     * Moves a file to the target, with a rename if possible and a channel copy otherwise.
+     * The source is gone afterwards.
+     *
+     * @param source        The file to be moved
+     * @param target        The target file, replaced if it exists
+     * @throws IOException  If the file can't be moved
+     */
+    public static void transfer(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+            return;
+        } catch (AtomicMoveNotSupportedException e) {
+            log.debug("Can't rename " + source + " to " + target + ", copying it");
+        }
+
+        copy(source, target);
+        Files.deleteIfExists(source);
+    }
+
+    /**
+     * Copies a file with {@link FileChannel#transferTo}, which the OS can serve without user-space buffers.
+     *
+     * @param source        The file to be copied
+     * @param target        The target file, replaced if it exists
+     * @throws IOException  If the file can't be copied
+     */
+    public static void copy(Path source, Path target) throws IOException {
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+             FileChannel out = open(target)) {
+            long size = in.size();
+            long position = 0;
+            while (position < size) {
+                position += in.transferTo(position, size - position, out);
+            }
+        }
+    }
+
+    /**
+     * Writes the bytes to the target file with a single channel write.
+     *
+     * @param bytes         The file content
+     * @param target        The target file, replaced if it exists
+     * @throws IOException  If the file can't be written
+     */
+    public static void write(byte[] bytes, Path target) throws IOException {
+        try (FileChannel out = open(target)) {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * Updates the digest with the content of a file, read in chunks into a reused buffer.
+     * The file is not mapped: a mapping stays open until it is garbage collected,
+     * and on Windows an open mapping makes the following move or delete of the file fail.
+     *
+     * @param digest        The digest to be updated
+     * @param file          The file
+     * @throws IOException  If the file can't be read
+     */
+    static void digest(MessageDigest digest, Path file) throws IOException {
+        ByteBuffer buffer = digestBuffer.get();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer.clear();
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+    }
+
+    private static FileChannel open(Path target) throws IOException {
+        try {
+            return FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        } catch (NoSuchFileException e) {
+            Files.createDirectories(target.toAbsolutePath().getParent());
+            return FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        }
+    }
+
+    private static final class Folder {
+        private final String reportPath;
+        private final Path path;
+
+        private Folder(String reportPath, Path path) {
+            this.reportPath = reportPath;
+            this.path = path;
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package io.vodqa.extreportng.extras;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Iterator;
+
+/**
+ * Image processing stage between screenshot capture and write.
+ * It runs on the {@link ScreenshotWriter} threads, so the test thread never pays for decoding or encoding.
+ *
+ * Configured with system properties:
+ * <ul>
+ *     <li>{@code screenshot.format} - {@code png} (lossless, default) or {@code jpg} (lossy)</li>
+ *     <li>{@code screenshot.quality} - jpg quality from 0.0 to 1.0, default 0.8</li>
+ *     <li>{@code screenshot.maxDimension} - max width/height in pixels, larger images are downscaled. 0 disables</li>
+ *     <li>{@code screenshot.thumbnail} - max width/height of the thumbnail shown inline in the report. 0 disables</li>
+ * </ul>
+ * Invalid values are logged and replaced by the defaults.
+ */
+final class ScreenshotProcessor {
+
+    private static final Logger log = LogManager.getLogger(ScreenshotProcessor.class.getName());
+
+    private static final String DEFAULT_FORMAT = "png";
+    private static final double DEFAULT_QUALITY = 0.8;
+    private static final String THUMBNAIL_FORMAT = "jpg";
+    private static final float THUMBNAIL_QUALITY = 0.7f;
+
+    private final String format;
+    private final float quality;
+    private final int maxDimension;
+    private final int thumbnailDimension;
+
+    ScreenshotProcessor(String format, float quality, int maxDimension, int thumbnailDimension) {
+        this.format = normalizeFormat(format);
+        this.quality = Math.max(0f, Math.min(1f, quality));
+        this.maxDimension = Math.max(0, maxDimension);
+        this.thumbnailDimension = Math.max(0, thumbnailDimension);
+
+        if (!isSupported(this.format)) {
+            throw new IllegalArgumentException("Unsupported screenshot format: " + format);
+        }
+    }
+
+    /**
+     * Creates the processor configured with the system properties.
+     * It is created when the first screenshot is written, so an invalid value must not throw:
+     * it is logged and the default is used instead.
+     *
+     * @return The configured processor
+     */
+    static ScreenshotProcessor fromSystemProperties() {
+        String format = System.getProperty("screenshot.format", DEFAULT_FORMAT);
+        if (!isSupported(normalizeFormat(format))) {
+            log.warn("Unsupported screenshot format: " + format + ", using " + DEFAULT_FORMAT);
+            format = DEFAULT_FORMAT;
+        }
+
+        return new ScreenshotProcessor(format,
+                (float) getNumberProperty("screenshot.quality", DEFAULT_QUALITY),
+                (int) getNumberProperty("screenshot.maxDimension", 0),
+                (int) getNumberProperty("screenshot.thumbnail", 0));
+    }
+
+    private static double getNumberProperty(String name, double defaultValue) {
+        String value = System.getProperty(name);
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            log.warn("System property " + name + " is not a number: " + value + ", using " + defaultValue);
+            return defaultValue;
+        }
+    }
+
+    private static String normalizeFormat(String format) {
+        return "jpeg".equalsIgnoreCase(format) ? "jpg" : format.toLowerCase();
+    }
+
+    private static boolean isSupported(String format) {
+        return "png".equals(format) || "jpg".equals(format);
+    }
+
+    /**
+     * @return The file extension of processed images, without the dot
+     */
+    String getExtension() {
+        return format;
+    }
+
+    /**
+     * @return The file extension of thumbnails, without the dot
+     */
+    String getThumbnailExtension() {
+        return THUMBNAIL_FORMAT;
+    }
+
+    /**
+     * @return true if thumbnails are generated
+     */
+    boolean hasThumbnails() {
+        return thumbnailDimension > 0;
+    }
+
+    /**
+     * @return true if the captured PNG bytes can be written as they are
+     */
+    private boolean isPassThrough() {
+        return "png".equals(format) && maxDimension == 0;
+    }
+
+    /**
+     * @return true if captured files can be moved to the screenshots folder without decoding them
+     */
+    boolean canTransfer() {
+        return isPassThrough() && !hasThumbnails();
+    }
+
+    /**
+     * Re-encodes and downscales the captured image as configured, writes it to the target file
+     * and writes the thumbnail if one is requested.
+     *
+     * @param png       The captured PNG bytes
+     * @param target    The image file
+     * @param thumbnail The thumbnail file, or null if no thumbnail should be written
+     * @throws IOException If the image can't be decoded or written
+     */
+    void process(byte[] png, File target, File thumbnail) throws IOException {
+        process(png, target, thumbnail, null);
+    }
+
+    /**
+     * Crops the captured image to an element, then processes it as {@link #process(byte[], File, File)} does.
+     *
+     * @param png       The captured PNG bytes
+     * @param target    The image file
+     * @param thumbnail The thumbnail file, or null if no thumbnail should be written
+     * @param crop      The element region to keep, or null to keep the whole image
+     * @throws IOException If the image can't be decoded or written
+     */
+    void process(byte[] png, File target, File thumbnail, ScreenshotCrop crop) throws IOException {
+        if (isPassThrough() && thumbnail == null && crop == null) {
+            ScreenshotOutput.write(png, target.toPath());
+            return;
+        }
+
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(png));
+        if (image == null) {
+            log.error("Screenshot is not a readable image, writing it unprocessed: " + target);
+            ScreenshotOutput.write(png, target.toPath());
+            return;
+        }
+
+        if (crop != null) {
+            image = crop.apply(image);
+        }
+
+        if (isPassThrough() && crop == null) {
+            ScreenshotOutput.write(png, target.toPath());
+        } else {
+            write(scale(image, maxDimension), format, quality, target);
+        }
+
+        if (thumbnail != null) {
+            write(scale(image, thumbnailDimension), THUMBNAIL_FORMAT, THUMBNAIL_QUALITY, thumbnail);
+        }
+    }
+
+    private static BufferedImage scale(BufferedImage image, int maxDim) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        if (maxDim == 0 || (width <= maxDim && height <= maxDim)) {
+            return image;
+        }
+
+        double ratio = Math.min((double) maxDim / width, (double) maxDim / height);
+        int scaledWidth = Math.max(1, (int) Math.round(width * ratio));
+        int scaledHeight = Math.max(1, (int) Math.round(height * ratio));
+
+        BufferedImage scaled = new BufferedImage(scaledWidth, scaledHeight, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = scaled.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(image, 0, 0, scaledWidth, scaledHeight, null);
+        } finally {
+            g.dispose();
+        }
+        return scaled;
+    }
+
+    private static void write(BufferedImage image, String format, float quality, File target) throws IOException {
+        FileUtils.forceMkdirParent(target);
+
+        if (!"jpg".equals(format)) {
+            if (!ImageIO.write(image, format, target)) {
+                throw new IOException("No image writer found for format: " + format);
+            }
+            return;
+        }
+
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName(format);
+        if (!writers.hasNext()) {
+            throw new IOException("No image writer found for format: " + format);
+        }
+
+        ImageWriter writer = writers.next();
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setCompressionQuality(quality);
+
+        // the image output stream does not truncate an existing file
+        Files.deleteIfExists(target.toPath());
+        try (ImageOutputStream ios = ImageIO.createImageOutputStream(target)) {
+            writer.setOutput(ios);
+            writer.write(null, new IIOImage(toRgb(image), null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    private static BufferedImage toRgb(BufferedImage image) {
+        if (image.getType() == BufferedImage.TYPE_INT_RGB) {
+            return image;
+        }
+
+        // jpg has no alpha channel
+        BufferedImage rgb = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = rgb.createGraphics();
+        try {
+            g.drawImage(image, 0, 0, null);
+        } finally {
+            g.dispose();
+        }
+        return rgb;
+    }
+}
@@ -0,0 +1,233 @@
+package io.vodqa.extreportng.extras;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Content-addressed screenshot store, enabled with the {@code screenshot.dedup} system property.
+ *
+ * Screenshot files are named after the SHA-1 hash of the image bytes,
+ * so identical captures (retries, same error page, same failed state captured by several nodes)
+ * share one file. A repeated capture is linked to the stored file under its own name where the file system
+ * supports hard links, otherwise the report references the stored file. Captured bytes and captured files
+ * are named the same way.
+ * New images are handed over to the {@link ScreenshotWriter}; a hash only counts as stored once its file is written,
+ * so a failed write is retried by the next identical capture.
+ * Captured files are hashed in chunks through a small reused buffer and moved, so they are never read into the heap as a whole.
+ */
+final class ScreenshotStore {
+
+    private static final Logger log = LogManager.getLogger(ScreenshotStore.class.getName());
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private static final ScreenshotStore INSTANCE = new ScreenshotStore();
+
+    private final ThreadLocal<MessageDigest> digest = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    private final Map<String, Boolean> stored = new ConcurrentHashMap<>();
+    private final Map<String, Boolean> writing = new ConcurrentHashMap<>();
+    private final Map<String, String> thumbnails = new ConcurrentHashMap<>();
+    private final AtomicLong dedupHits = new AtomicLong();
+
+    private ScreenshotStore() {
+    }
+
+    static ScreenshotStore getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Stores the image cropped to an element and returns its path.
+     * The crop is part of the hash, so only the same image cropped to the same region is deduplicated.
+     *
+     * @param image     The captured image bytes
+     * @param crop      The element region to keep, or null to keep the whole image
+     * @param folder    The screenshots folder
+     * @param sFileName The file name the caller asked for, without extension
+     * @return          The screenshot file path
+     */
+    String store(byte[] image, ScreenshotCrop crop, Path folder, String sFileName) {
+        MessageDigest md = digest.get();
+        md.reset();
+        md.update(image);
+        if (crop != null) {
+            crop.update(md);
+        }
+        String sHash = toHex(md.digest());
+        String extension = ScreenshotWriter.getInstance().getProcessor().getExtension();
+        Path file = folder.resolve(sHash + "." + extension);
+        String key = file.toString();
+
+        if (stored.containsKey(key)) {
+            countHit(file);
+            return alias(file, folder.resolve(sFileName + "." + extension));
+        }
+
+        if (writing.putIfAbsent(key, Boolean.TRUE) != null) {
+            // the same image is being written for another capture and that write may still fail
+            Path target = folder.resolve(sFileName + "." + extension);
+            write(image, crop, target, folder.resolve(sFileName), null);
+            return target.toString();
+        }
+
+        write(image, crop, file, folder.resolve(sHash), written -> {
+            if (written) {
+                stored.put(key, Boolean.TRUE);
+            }
+            writing.remove(key);
+        });
+        return key;
+    }
+
+    /**
+     * Stores an image file written by the driver and returns its path.
+     * The file is moved to the screenshots folder, or deleted if an identical image has already been stored.
+     * Only used when the {@link ScreenshotProcessor} leaves images as they are.
+     *
+     * @param captured      The file written by the driver
+     * @param folder        The screenshots folder
+     * @param sFileName     The file name the caller asked for, without extension
+     * @return              The screenshot file path
+     * @throws IOException  If the captured file can't be read
+     */
+    String store(Path captured, Path folder, String sFileName) throws IOException {
+        MessageDigest md = digest.get();
+        md.reset();
+        ScreenshotOutput.digest(md, captured);
+        String extension = ScreenshotWriter.getInstance().getProcessor().getExtension();
+        Path file = folder.resolve(toHex(md.digest()) + "." + extension);
+        String key = file.toString();
+
+        if (stored.containsKey(key)) {
+            countHit(file);
+            Files.deleteIfExists(captured);
+            return alias(file, folder.resolve(sFileName + "." + extension));
+        }
+
+        if (writing.putIfAbsent(key, Boolean.TRUE) != null) {
+            // the same image is being moved for another capture and that move may still fail
+            Path target = folder.resolve(sFileName + "." + extension);
+            ScreenshotWriter.getInstance().transfer(captured, target);
+            return target.toString();
+        }
+
+        ScreenshotWriter.getInstance().transfer(captured, file, moved -> {
+            if (moved) {
+                stored.put(key, Boolean.TRUE);
+            }
+            writing.remove(key);
+        });
+        return key;
+    }
+
+    private void countHit(Path file) {
+        long hits = dedupHits.incrementAndGet();
+        log.debug("Identical screenshot already stored: " + file + ". Dedup hits: " + hits);
+    }
+
+    /**
+     * Links the file name the caller asked for to the stored file.
+     *
+     * @param file  The stored screenshot file
+     * @param alias The file named by the caller
+     * @return      The alias path, or the stored file path if the link can't be created
+     */
+    private String alias(Path file, Path alias) {
+        try {
+            Files.createLink(alias, file);
+        } catch (IOException | UnsupportedOperationException e) {
+            log.debug("Failed to link " + alias + " to " + file + ": " + e.getMessage());
+            return file.toString();
+        }
+
+        String thumbnail = thumbnails.get(file.toString());
+        if (thumbnail != null) {
+            thumbnails.put(alias.toString(), thumbnail);
+        }
+        return alias.toString();
+    }
+
+    /**
+     * Hands the image over to the {@link ScreenshotWriter}, together with a thumbnail path
+     * when thumbnails are enabled.
+     *
+     * @param image           The captured image bytes
+     * @param file            The screenshot file
+     * @param thumbnailBase   The thumbnail file without suffix and extension
+     */
+    void write(byte[] image, Path file, Path thumbnailBase) {
+        write(image, null, file, thumbnailBase, null);
+    }
+
+    /**
+     * Hands the image over to the {@link ScreenshotWriter} to be cropped to an element,
+     * together with a thumbnail path when thumbnails are enabled.
+     *
+     * @param image           The captured image bytes
+     * @param crop            The element region to keep, or null to keep the whole image
+     * @param file            The screenshot file
+     * @param thumbnailBase   The thumbnail file without suffix and extension
+     * @param done            Called with the outcome of the write, may be null
+     */
+    void write(byte[] image, ScreenshotCrop crop, Path file, Path thumbnailBase, Consumer<Boolean> done) {
+        ScreenshotWriter writer = ScreenshotWriter.getInstance();
+        ScreenshotProcessor processor = writer.getProcessor();
+
+        if (!processor.hasThumbnails()) {
+            writer.write(image, file.toFile(), null, crop, done);
+            return;
+        }
+
+        Path thumbnail = thumbnailBase.resolveSibling(thumbnailBase.getFileName() + "_thumb." + processor.getThumbnailExtension());
+        thumbnails.put(file.toString(), thumbnail.toString());
+        writer.write(image, file.toFile(), thumbnail.toFile(), crop, done);
+    }
+
+    /**
+     * @param sFilePath The screenshot file path
+     * @return          The thumbnail path of the screenshot, or null if it has none
+     */
+    String getThumbnail(String sFilePath) {
+        return thumbnails.get(sFilePath);
+    }
+
+    /**
+     * @return The number of captures that were served by an already stored file
+     */
+    long getDedupHits() {
+        return dedupHits.get();
+    }
+
+    /**
+     * @return The number of distinct screenshot files stored
+     */
+    int getStoredCount() {
+        return stored.size();
+    }
+
+    private static String toHex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i * 2] = HEX[(bytes[i] >> 4) & 0xF];
+            chars[i * 2 + 1] = HEX[bytes[i] & 0xF];
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,226 @@
+package io.vodqa.extreportng.extras;
+
+import io.vodqa.extreportng.metrics.Metric;
+import io.vodqa.extreportng.metrics.ReportMetrics;
+import io.vodqa.extreportng.utils.VirtualThreads;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Bounded write-behind pipeline for screenshot files.
+ *
+ * The test thread hands over the captured image bytes together with the target file
+ * and returns straight away, the disk write is done by a small pool of background writer threads.
+ * When the queue is full the submitting thread writes the file itself, so memory stays bounded.
+ *
+ * Images are passed through the {@link ScreenshotProcessor} before they are written.
+ * Files captured by the driver are moved to their target by {@link ScreenshotOutput#transfer(Path, Path)}.
+ *
+ * Writer pool size and queue capacity can be changed with the
+ * {@code screenshot.writer.threads} and {@code screenshot.writer.queue} system properties.
+ *
+ * In the virtual thread mode ({@link VirtualThreads}) every write runs on its own virtual thread,
+ * the number of writes in flight is bounded by the same thread count plus queue capacity.
+ */
+final class ScreenshotWriter {
+
+    private static final Logger log = LogManager.getLogger(ScreenshotWriter.class.getName());
+
+    private static final int WRITER_THREADS = Integer.getInteger("screenshot.writer.threads", 2);
+    private static final int QUEUE_CAPACITY = Integer.getInteger("screenshot.writer.queue", 64);
+
+    private static final ScreenshotWriter INSTANCE = new ScreenshotWriter();
+
+    private final ExecutorService executor;
+    private final Semaphore inFlight;
+    private final ScreenshotProcessor processor = ScreenshotProcessor.fromSystemProperties();
+    private final Phaser pending = new Phaser(1);
+    private final AtomicInteger failedWrites = new AtomicInteger();
+    private final ReentrantLock drainLock = new ReentrantLock();
+
+    private ScreenshotWriter() {
+        if (VirtualThreads.isEnabled()) {
+            executor = VirtualThreads.newVirtualThreadPerTaskExecutor();
+            inFlight = new Semaphore(WRITER_THREADS + QUEUE_CAPACITY);
+            return;
+        }
+
+        inFlight = null;
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadFactory threadFactory = r -> {
+            Thread t = new Thread(r, "screenshot-writer-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+
+        executor = new ThreadPoolExecutor(WRITER_THREADS, WRITER_THREADS, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY), threadFactory, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    static ScreenshotWriter getInstance() {
+        return INSTANCE;
+    }
+
+    ScreenshotProcessor getProcessor() {
+        return processor;
+    }
+
+    /**
+     * Queues the image bytes to be written to the given file.
+     *
+     * @param image     The captured image bytes
+     * @param target    The file the image should be written to
+     */
+    void write(byte[] image, File target) {
+        write(image, target, null);
+    }
+
+    /**
+     * Queues the image bytes to be processed and written to the given file,
+     * together with a thumbnail.
+     *
+     * @param image     The captured image bytes
+     * @param target    The file the image should be written to
+     * @param thumbnail The file the thumbnail should be written to, or null for no thumbnail
+     */
+    void write(byte[] image, File target, File thumbnail) {
+        write(image, target, thumbnail, null);
+    }
+
+    /**
+     * Queues the image bytes to be cropped, processed and written to the given file,
+     * together with a thumbnail.
+     *
+     * @param image     The captured image bytes
+     * @param target    The file the image should be written to
+     * @param thumbnail The file the thumbnail should be written to, or null for no thumbnail
+     * @param crop      The element region to keep, or null to keep the whole image
+     */
+    void write(byte[] image, File target, File thumbnail, ScreenshotCrop crop) {
+        write(image, target, thumbnail, crop, null);
+    }
+
+    /**
+     * Queues the image bytes to be cropped, processed and written to the given file,
+     * together with a thumbnail, and reports the outcome once the file is written.
+     *
+     * @param image     The captured image bytes
+     * @param target    The file the image should be written to
+     * @param thumbnail The file the thumbnail should be written to, or null for no thumbnail
+     * @param crop      The element region to keep, or null to keep the whole image
+     * @param done      Called with true once the file is written, with false if writing failed, may be null
+     */
+    void write(byte[] image, File target, File thumbnail, ScreenshotCrop crop, Consumer<Boolean> done) {
+        submit(() -> process(image, target, thumbnail, crop, done));
+    }
+
+    /**
+     * Queues a captured file to be moved to the given file.
+     *
+     * @param source    The file written by the driver
+     * @param target    The file the image should be moved to
+     */
+    void transfer(Path source, Path target) {
+        transfer(source, target, null);
+    }
+
+    /**
+     * Queues a captured file to be moved to the given file.
+     *
+     * @param source    The file written by the driver
+     * @param target    The file the image should be moved to
+     * @param done      Called with true once the file is moved, with false if moving failed, may be null
+     */
+    void transfer(Path source, Path target, Consumer<Boolean> done) {
+        submit(() -> move(source, target, done));
+    }
+
+    private void submit(Runnable task) {
+        pending.register();
+        if (inFlight == null) {
+            executor.execute(task);
+        } else if (inFlight.tryAcquire()) {
+            executor.execute(() -> {
+                try {
+                    task.run();
+                } finally {
+                    inFlight.release();
+                }
+            });
+        } else {
+            task.run();
+        }
+    }
+
+    private void process(byte[] image, File target, File thumbnail, ScreenshotCrop crop, Consumer<Boolean> done) {
+        long start = System.nanoTime();
+        boolean written = false;
+        try {
+            processor.process(image, target, thumbnail, crop);
+            written = true;
+            log.debug("Wrote screenshot to: " + target);
+        } catch (IOException | RuntimeException e) {
+            failedWrites.incrementAndGet();
+            log.error("Failed to write screenshot: " + target);
+            log.error(e.toString());
+        } finally {
+            ReportMetrics.record(Metric.SCREENSHOT_WRITE, start);
+            if (done != null) {
+                done.accept(written);
+            }
+            pending.arriveAndDeregister();
+        }
+    }
+
+    private void move(Path source, Path target, Consumer<Boolean> done) {
+        long start = System.nanoTime();
+        boolean moved = false;
+        try {
+            ScreenshotOutput.transfer(source, target);
+            moved = true;
+            log.debug("Moved screenshot to: " + target);
+        } catch (IOException | RuntimeException e) {
+            failedWrites.incrementAndGet();
+            log.error("Failed to move screenshot: " + source + " to: " + target);
+            log.error(e.toString());
+        } finally {
+            ReportMetrics.record(Metric.SCREENSHOT_WRITE, start);
+            if (done != null) {
+                done.accept(moved);
+            }
+            pending.arriveAndDeregister();
+        }
+    }
+
+    /**
+     * Blocks until every screenshot queued so far has been written to disk.
+     */
+    void drain() {
+        drainLock.lock();
+        try {
+            log.debug("Waiting for pending screenshot writes");
+            pending.awaitAdvance(pending.arrive());
+
+            int failed = failedWrites.getAndSet(0);
+            if (failed > 0) {
+                log.error("Failed to write " + failed + " screenshot(s), see log for details");
+            }
+        } finally {
+            drainLock.unlock();
+        }
+    }
+}
@@ -1,28 +1,25 @@
 package io.vodqa.extreportng.extras;
 
-import org.apache.commons.io.FileUtils;
-import org.apache.commons.io.IOUtils;
+import io.vodqa.extreportng.metrics.Metric;
+import io.vodqa.extreportng.metrics.ReportMetrics;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.openqa.selenium.*;
 import org.openqa.selenium.support.ui.FluentWait;
 import org.openqa.selenium.support.ui.Wait;
-import sun.misc.Launcher;
 
-import java.io.File;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringWriter;
-import java.net.URISyntaxException;
-import java.net.URL;
-import java.nio.charset.Charset;
+import java.nio.file.Path;
 import java.text.SimpleDateFormat;
+import java.util.Collections;
 import java.util.Date;
-import java.util.Enumeration;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
-import java.util.jar.JarEntry;
-import java.util.jar.JarFile;
 
 import static java.util.concurrent.TimeUnit.SECONDS;
 
@@ -33,22 +30,62 @@ public class SeleUtil implements SeleDriver {
 
     private static final Logger log = LogManager.getLogger(SeleUtil.class.getName());
 
-    private static WebDriver driver;
+    private static final long VIEWPORT_WAIT_MILLIS = 3000;
+    private static final boolean DEDUP_SCREENSHOTS =
+            Boolean.parseBoolean(System.getProperty("screenshot.dedup", "false"));
+    private static final boolean CAPTURE_FILES =
+            "file".equalsIgnoreCase(System.getProperty("screenshot.capture", "bytes"));
+    private static final int ELEMENT_PADDING = Integer.getInteger("screenshot.element.padding", 0);
 
-    private SeleUtil.Highlight hiUtil = new Highlight();
+    private static final Set<WebDriver> croppedElementDrivers =
+            Collections.newSetFromMap(Collections.synchronizedMap(new WeakHashMap<>()));
+    private static final Set<WebDriver> scrollFallbackDrivers =
+            Collections.newSetFromMap(Collections.synchronizedMap(new WeakHashMap<>()));
+
+    private static volatile WebDriver driver;
+    private static final ThreadLocal<WebDriver> threadDriver = new ThreadLocal<>();
+
+    private final ThreadLocal<SeleUtil.Highlight> hiUtil = ThreadLocal.withInitial(Highlight::new);
     private SeleUtil.JSHelper jsHelper = new JSHelper();
 
     public SeleUtil() {
 //        this.driver = driver;
     }
 
+    /**
+     * Sets the driver shared by all test threads
+     *
+     * @param driver The {@link WebDriver} to be used for screenshots
+     */
     public static void setReportDriver(WebDriver driver) {
         SeleUtil.driver = SeleDriver.getSeleDriver(driver);
     }
 
+    /**
+     * Sets the driver for the current test thread only.
+     * Use it when tests run in parallel with a driver per thread,
+     * it takes precedence over the driver set with {@link #setReportDriver(WebDriver)}
+     *
+     * @param driver The {@link WebDriver} to be used for screenshots on the current thread
+     */
+    public static void setThreadReportDriver(WebDriver driver) {
+        threadDriver.set(SeleDriver.getSeleDriver(driver));
+    }
+
+    /**
+     * Removes the driver set for the current test thread
+     */
+    public static void removeThreadReportDriver() {
+        threadDriver.remove();
+    }
+
     protected static WebDriver getDriver() {
-        log.debug("Returning driver: " + driver);
-        return driver;
+        WebDriver current = threadDriver.get();
+        if (current == null) {
+            current = driver;
+        }
+        log.debug("Returning driver: " + current);
+        return current;
     }
 
     public class Highlight {
@@ -78,6 +115,55 @@ public class SeleUtil implements SeleDriver {
             lastElem = null;
         }
 
+        /**
+         * Scrolls the element into the middle of the viewport, waits for it to be visible
+         * and optionally highlights it, all in a single async script call.
+         *
+         * @param elem      {@link WebElement} to be scrolled to
+         * @param highlight true to highlight the element
+         * @return          true if the element ended up in viewport,
+         *                  false if it did not or the driver could not run the async script
+         */
+        boolean scrollIntoViewport(WebElement elem, boolean highlight) throws IOException {
+            final String jsScript = jsHelper.getScriptStringFromFile("scrollHighlightElement.js");
+
+            if (highlight) {
+                unhighlightLast();
+            }
+
+            Object result;
+            try {
+                result = jsHelper.executeAsyncScript(jsScript, elem, highlight, VIEWPORT_WAIT_MILLIS);
+            } catch (WebDriverException e) {
+                logScrollFallback("Single call scroll failed, falling back to step by step scroll: " + e.getMessage());
+                return false;
+            }
+
+            if (!(result instanceof Map) || !Boolean.TRUE.equals(((Map) result).get("inViewport"))) {
+                logScrollFallback("Element is not in viewport after single call scroll, falling back to step by step scroll: " + result);
+                return false;
+            }
+
+            if (highlight) {
+                lastElem = elem;
+                lastBorder = (String) ((Map) result).get("border");
+                log.debug("Highlighted: " + elem + "\n Previous border: " + lastBorder);
+            }
+            return true;
+        }
+
+        /**
+         * The fallback is expected on drivers without async script support,
+         * so it is logged as a warning once per driver and at debug level after that.
+         */
+        private void logScrollFallback(String message) {
+            if (scrollFallbackDrivers.add(getDriver())) {
+                log.warn(message);
+            } else {
+                log.debug(message);
+            }
+        }
+
         private void unhighlightLast() throws IOException{
             final String jsScript = jsHelper.getScriptStringFromFile("unhighlightLastElement.js");
 
@@ -102,12 +188,12 @@ public class SeleUtil implements SeleDriver {
 //        private JavascriptExecutor js = (JavascriptExecutor)getDriver();
 
         final String getScriptStringFromFile(String sScriptFileName) throws IOException {
-            log.debug("Converting file to string for: " + sScriptFileName);
+            log.debug("Getting preloaded script for: " + sScriptFileName);
 
             String jsScriptString;
 
             try {
-                jsScriptString = IOUtils.toString(getClass().getClassLoader().getResourceAsStream("scripts/" + sScriptFileName), Charset.defaultCharset());
+                jsScriptString = JSScripts.get(sScriptFileName);
             } catch (IOException e) {
                 log.error("Exception found in method: " + getCurrentMethodName());
                 log.error(e.getMessage());
@@ -115,14 +201,19 @@ public class SeleUtil implements SeleDriver {
                 throw e;
             }
 
-            log.debug("Script string to be returned: " + jsScriptString);
             return jsScriptString;
         }
 
+        Object executeAsyncScript(String jsScript, Object... var) {
+            log.debug("Executing async JS script");
+            // failures are handled by the caller, which falls back to the synchronous scripts
+            return ((JavascriptExecutor)getDriver()).executeAsyncScript(jsScript, var);
+        }
+
         Object executeScript(String jsScript, Object... var) {
             log.debug("Executing JS script");
             try {
-                return ((JavascriptExecutor)driver).executeScript(jsScript, var);
+                return ((JavascriptExecutor)getDriver()).executeScript(jsScript, var);
             } catch (Exception e) {
                 log.error("Exception found in method: " + getCurrentMethodName());
                 log.error(e.getMessage());
@@ -135,14 +226,30 @@ public class SeleUtil implements SeleDriver {
     protected String captureScreenshot(WebDriver driver, String sScreenshotName) throws IOException {
         try {
             log.debug("Attempting to capture screenshot");
+            long start = System.nanoTime();
             TakesScreenshot ts=(TakesScreenshot)driver;
             log.debug("Getting screenshot: " + ts + " with Driver: " + driver);
-            File source=ts.getScreenshotAs(OutputType.FILE);
-            log.debug("Source file: " + source);
-            final String sScreenshotFilePath = sPath(sScreenshotName);
-            FileUtils.copyFile(source, new File(sScreenshotFilePath));
-            log.debug("Copied screenshot to: " + sScreenshotFilePath);
-            hiUtil.unhighlightLast();
+            final Path folder = ScreenshotOutput.getInstance().getFolder();
+            final String sScreenshotFilePath;
+            if (CAPTURE_FILES && ScreenshotWriter.getInstance().getProcessor().canTransfer()) {
+                Path source = ts.getScreenshotAs(OutputType.FILE).toPath();
+                log.debug("Captured screenshot file: " + source);
+                if (DEDUP_SCREENSHOTS) {
+                    sScreenshotFilePath = ScreenshotStore.getInstance().store(source, folder, sFileName(sScreenshotName));
+                    log.debug("Screenshot " + sScreenshotName + " stored as: " + sScreenshotFilePath);
+                } else {
+                    Path target = folder.resolve(sFileName(sScreenshotName) + "." + ScreenshotWriter.getInstance().getProcessor().getExtension());
+                    sScreenshotFilePath = target.toString();
+                    ScreenshotWriter.getInstance().transfer(source, target);
+                    log.debug("Queued screenshot for moving to: " + sScreenshotFilePath);
+                }
+            } else {
+                byte[] source=ts.getScreenshotAs(OutputType.BYTES);
+                log.debug("Captured screenshot bytes: " + source.length);
+                sScreenshotFilePath = storeScreenshot(source, null, folder, sScreenshotName);
+            }
+            ReportMetrics.record(Metric.SCREENSHOT_CAPTURE, start);
+            hiUtil.get().unhighlightLast();
             return sScreenshotFilePath;
         } catch (IOException e) {
             log.error("Exception found in method: " + getCurrentMethodName());
@@ -152,15 +259,41 @@ public class SeleUtil implements SeleDriver {
         }
     }
 
+    /**
+     * Hands captured image bytes over to the screenshot store.
+     *
+     * @param source            The captured image bytes
+     * @param crop              The element region to keep, or null to keep the whole image
+     * @param folder            The screenshots folder
+     * @param sScreenshotName   The screenshot name, used for the file name,
+     *                          or for the link to the stored file when dedup is enabled
+     * @return                  The screenshot file path
+     */
+    private static String storeScreenshot(byte[] source, ScreenshotCrop crop, Path folder, String sScreenshotName) {
+        final String sScreenshotFilePath;
+        if (DEDUP_SCREENSHOTS) {
+            sScreenshotFilePath = ScreenshotStore.getInstance().store(source, crop, folder, sFileName(sScreenshotName));
+            log.debug("Screenshot " + sScreenshotName + " stored as: " + sScreenshotFilePath);
+        } else {
+            final Path basePath = folder.resolve(sFileName(sScreenshotName));
+            final Path target = folder.resolve(basePath.getFileName() + "." + ScreenshotWriter.getInstance().getProcessor().getExtension());
+            sScreenshotFilePath = target.toString();
+            ScreenshotStore.getInstance().write(source, crop, target, basePath, null);
+            log.debug("Queued screenshot for writing to: " + sScreenshotFilePath);
+        }
+        return sScreenshotFilePath;
+    }
+
     protected String captureScreenshot(WebDriver driver, String sScreenshotName, WebElement element, boolean highlight) throws Exception {
         log.debug("Attempting to capture screenshot of element: " + element);
         log.debug("Highlight parameter: " + highlight);
 
         try {
-            if (highlight && isElementDisplayed(element)) {
+            boolean displayed = isElementDisplayed(element);
+            if (highlight && displayed) {
                 log.debug("Element is displayed and highlight is: " + highlight + ". Attempting scroll to element and highlight");
                 scrollElementIntoMiddle(element, highlight);
-            } else if (isElementDisplayed(element)) {
+            } else if (displayed) {
                 log.debug("Element is displayed and highlight is: " + highlight + ". Attempting scroll to element");
                 scrollElementIntoMiddle(element);
             } else {
@@ -183,6 +316,83 @@ public class SeleUtil implements SeleDriver {
         return captureScreenshot(driver, sScreenshotName);
     }
 
+    /**
+     * Captures a screenshot of one element only.
+     *
+     * The element is scrolled into the viewport first. Without padding the driver is asked for an element screenshot,
+     * drivers that don't support it get a viewport screenshot cropped to the element's bounding rect
+     * on the screenshot writer threads. The padding around the element is set in CSS pixels
+     * with the {@code screenshot.element.padding} system property.
+     *
+     * Falls back to a viewport screenshot if the element is not displayed.
+     *
+     * @param driver            The {@link WebDriver} to take the screenshot with
+     * @param sScreenshotName   The image file name
+     * @param element           The {@link WebElement} to be captured
+     * @return                  The screenshot file path
+     * @throws Exception        If the screenshot can't be captured
+     */
+    protected String captureElementScreenshot(WebDriver driver, String sScreenshotName, WebElement element) throws Exception {
+        log.debug("Attempting to capture screenshot of element only: " + element);
+
+        if (!isElementDisplayed(element)) {
+            log.error("Element is not displayed, capturing the viewport instead. Locator: " + element);
+            return captureScreenshot(driver, sScreenshotName);
+        }
+
+        try {
+            scrollElementIntoMiddle(element);
+            long start = System.nanoTime();
+            final Path folder = ScreenshotOutput.getInstance().getFolder();
+            final String sScreenshotFilePath;
+
+            byte[] elementImage = ELEMENT_PADDING == 0 ? getElementScreenshot(driver, element) : null;
+            if (elementImage != null) {
+                log.debug("Captured element screenshot bytes: " + elementImage.length);
+                sScreenshotFilePath = storeScreenshot(elementImage, null, folder, sScreenshotName);
+            } else {
+                ScreenshotCrop crop = ScreenshotCrop.fromScriptResult(jsHelper.executeScript(
+                        jsHelper.getScriptStringFromFile("getElementClientRect.js"), element), ELEMENT_PADDING);
+                if (crop.isEmpty()) {
+                    log.error("Element has no size, capturing the viewport instead. Locator: " + element);
+                    crop = null;
+                }
+                byte[] source = ((TakesScreenshot) driver).getScreenshotAs(OutputType.BYTES);
+                log.debug("Captured screenshot bytes: " + source.length + ", element region: " + crop);
+                sScreenshotFilePath = storeScreenshot(source, crop, folder, sScreenshotName);
+            }
+            ReportMetrics.record(Metric.SCREENSHOT_CAPTURE, start);
+            return sScreenshotFilePath;
+        } catch (Exception e) {
+            log.error("Exception found in method: " + getCurrentMethodName());
+            log.error(e.getMessage());
+            log.error(getExceptionMessage(e));
+            throw e;
+        }
+    }
+
+    /**
+     * Asks the driver for a screenshot of the element.
+     * Once a driver has answered that it does not support the command, its element screenshots are always cropped.
+     *
+     * @param driver    The {@link WebDriver} the element belongs to
+     * @param element   The {@link WebElement} to be captured
+     * @return          The PNG bytes, or null if the driver can't take element screenshots
+     */
+    private static byte[] getElementScreenshot(WebDriver driver, WebElement element) {
+        if (croppedElementDrivers.contains(driver)) {
+            return null;
+        }
+
+        try {
+            return element.getScreenshotAs(OutputType.BYTES);
+        } catch (UnsupportedCommandException e) {
+            croppedElementDrivers.add(driver);
+            log.info("Driver does not take element screenshots, cropping viewport screenshots instead: " + e.getMessage());
+            return null;
+        }
+    }
+
     private void scrollElementIntoMiddle(WebElement element) throws IOException {
         log.info("Attempting to move(scroll) to element with JavaScriptExecutor call");
 
@@ -205,6 +415,11 @@ public class SeleUtil implements SeleDriver {
     private void scrollElementIntoMiddle(WebElement element, boolean highlight) throws Exception {
         log.info("Attempting to move(scroll) to element with JavaScriptExecutor call");
 
+        if (hiUtil.get().scrollIntoViewport(element, highlight)) {
+            log.debug("Element is in viewport after single call scroll");
+            return;
+        }
+
         int counter = 0;
         int maxTry = 5;
 
@@ -219,7 +434,7 @@ public class SeleUtil implements SeleDriver {
                                 (new CustomConditions().
                                         isElementInViewport(element), 3, 500, TimeUnit.MILLISECONDS);
                         log.debug("Element is visible. Attempting to highlight");
-                        hiUtil.highlightElement(element);
+                        hiUtil.get().highlightElement(element);
                         break breakWhile;
                     } else if (isElementDisplayed(element)) {
                         log.debug("Element is displayed and highlight is: " + highlight);
@@ -261,8 +476,53 @@ public class SeleUtil implements SeleDriver {
         }
     }
 
-    private static String sPath(String sScreenshotName) {
-        return System.getProperty("reportPath") + "\\Screenshots\\" + getCurrentTime() + "_" + sScreenshotName + ".png";
+    /**
+     * Blocks until all captured screenshots have been written to disk.
+     * Should be called before the report is flushed.
+     */
+    protected static void awaitScreenshots() {
+        ScreenshotWriter.getInstance().drain();
+    }
+
+    /**
+     * @return true if screenshots are deduplicated, the {@code screenshot.dedup} system property
+     */
+    public static boolean isScreenshotDedupEnabled() {
+        return DEDUP_SCREENSHOTS;
+    }
+
+    /**
+     * Gets the number of screenshots that were identical to an already stored one
+     * and therefore reference the existing file instead of writing a new one.
+     *
+     * @return The number of screenshot dedup hits
+     */
+    public static long getScreenshotDedupHits() {
+        return ScreenshotStore.getInstance().getDedupHits();
+    }
+
+    /**
+     * Gets the number of distinct screenshot files stored.
+     *
+     * @return The number of stored screenshot files
+     */
+    public static int getStoredScreenshotCount() {
+        return ScreenshotStore.getInstance().getStoredCount();
+    }
+
+    /**
+     * Gets the thumbnail of a captured screenshot.
+     * Thumbnails are only generated when the {@code screenshot.thumbnail} system property is set.
+     *
+     * @param sScreenshotFilePath   The screenshot path returned by the capture
+     * @return                      The thumbnail path, or null if the screenshot has no thumbnail
+     */
+    protected static String getScreenshotThumbnail(String sScreenshotFilePath) {
+        return ScreenshotStore.getInstance().getThumbnail(sScreenshotFilePath);
+    }
+
+    private static String sFileName(String sScreenshotName) {
+        return getCurrentTime() + "_" + sScreenshotName;
     }
 
     private static String getCurrentTime() {
@@ -302,14 +562,14 @@ public class SeleUtil implements SeleDriver {
     }
 
     private static Object waitUntil(Function function, int timeOutInSeconds) {
-        FluentWait<WebDriver> wait = new FluentWait<>(driver)
+        FluentWait<WebDriver> wait = new FluentWait<>(getDriver())
                 .withTimeout(timeOutInSeconds, SECONDS);
 
         return wait.until(function);
     }
 
     private static Object waitUntil(Function function, int timeOutInSeconds, int poolingInterval) {
-        Wait<WebDriver> wait = new FluentWait<>(driver)
+        Wait<WebDriver> wait = new FluentWait<>(getDriver())
                 .withTimeout(timeOutInSeconds, SECONDS)
                 .pollingEvery(poolingInterval, SECONDS);
 
@@ -317,7 +577,7 @@ public class SeleUtil implements SeleDriver {
     }
 
     private static Object waitUntil(Function function, int timeOutInSeconds, int poolingInterval, TimeUnit poolingIntervalUnit) {
-        Wait<WebDriver> wait = new FluentWait<>(driver)
+        Wait<WebDriver> wait = new FluentWait<>(getDriver())
                 .withTimeout(timeOutInSeconds, SECONDS)
                 .pollingEvery(poolingInterval, poolingIntervalUnit);
 
@@ -325,7 +585,7 @@ public class SeleUtil implements SeleDriver {
     }
 
     private static Object waitUntil(Function function, int timeOutInSeconds, int poolingInterval, TimeUnit poolingIntervalUnit, Exception ignoredException) {
-        Wait<WebDriver> wait = new FluentWait<>(driver)
+        Wait<WebDriver> wait = new FluentWait<>(getDriver())
                 .withTimeout(timeOutInSeconds, SECONDS)
                 .pollingEvery(poolingInterval, poolingIntervalUnit)
                 .ignoring(ignoredException.getClass());
@@ -334,7 +594,7 @@ public class SeleUtil implements SeleDriver {
     }
 
     private static Object waitUntil(Function function, int timeOutInSeconds, int poolingInterval, TimeUnit poolingIntervalUnit, Exception ignoredException, String sMessage) {
-        Wait<WebDriver> wait = new FluentWait<>(driver)
+        Wait<WebDriver> wait = new FluentWait<>(getDriver())
                 .withTimeout(timeOutInSeconds, SECONDS)
                 .pollingEvery(poolingInterval, poolingIntervalUnit)
                 .ignoring(ignoredException.getClass())
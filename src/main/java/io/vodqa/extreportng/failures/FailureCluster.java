@@ -0,0 +1,99 @@
+package io.vodqa.extreportng.failures;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Group of failures sharing one {@link FailureSignature}.
+ *
+ * Keeps the count, the first failure as representative trace and the names of the first few failed tests.
+ */
+public final class FailureCluster {
+
+    static final int MAX_SAMPLES = 20;
+
+    private final int id;
+    private final long signature;
+    private final String exception;
+    private final String message;
+    private final String trace;
+    private final String normalizedTrace;
+    private final LongAdder count = new LongAdder();
+    private final AtomicInteger sampleCount = new AtomicInteger();
+    private final AtomicReferenceArray<String> samples = new AtomicReferenceArray<>(MAX_SAMPLES);
+
+    FailureCluster(int id, long signature, Throwable representative, String trace) {
+        this.id = id;
+        this.signature = signature;
+        this.exception = representative.getClass().getName();
+        this.message = representative.getMessage();
+        this.trace = trace;
+        this.normalizedTrace = FailureSignature.describe(representative);
+    }
+
+    void add(String testName) {
+        count.increment();
+        int slot = sampleCount.getAndIncrement();
+        if (slot < MAX_SAMPLES) {
+            samples.set(slot, testName);
+        }
+    }
+
+    /**
+     * @return The cluster number, in order of first occurrence starting from 1
+     */
+    public int getId() {
+        return id;
+    }
+
+    public long getSignature() {
+        return signature;
+    }
+
+    public String getException() {
+        return exception;
+    }
+
+    /**
+     * @return The message of the representative failure
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * @return The full stack trace of the representative failure
+     */
+    public String getTrace() {
+        return trace;
+    }
+
+    /**
+     * @return The normalized stack trace shared by all failures of the cluster
+     */
+    public String getNormalizedTrace() {
+        return normalizedTrace;
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * @return The names of the first failed tests of the cluster
+     */
+    public List<String> getSampleTests() {
+        int size = Math.min(sampleCount.get(), MAX_SAMPLES);
+        List<String> tests = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            String test = samples.get(i);
+            if (test != null) {
+                tests.add(test);
+            }
+        }
+        return tests;
+    }
+}
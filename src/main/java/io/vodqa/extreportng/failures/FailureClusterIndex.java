@@ -0,0 +1,134 @@
+package io.vodqa.extreportng.failures;
+
+import com.google.common.base.Throwables;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Incremental index of the failures of a run, grouped by {@link FailureSignature}.
+ *
+ * Recording a failure is one signature computation and one hash map lookup,
+ * the representative trace is only rendered for the first failure of a cluster.
+ * At the end of the run the clusters are written to {@code failure-clusters.html} and {@code failure-clusters.json}
+ * next to the html report, largest cluster first.
+ */
+public class FailureClusterIndex {
+
+    public static final String HTML_FILE = "failure-clusters.html";
+    public static final String JSON_FILE = "failure-clusters.json";
+
+    private final Map<Long, FailureCluster> clusters = new ConcurrentHashMap<>();
+    private final AtomicInteger nextId = new AtomicInteger();
+
+    /**
+     * Adds a failure to its cluster, creating the cluster on first occurrence.
+     *
+     * @param t         The failure
+     * @param testName  The name of the failed test or node
+     * @return          The cluster of the failure
+     */
+    public FailureCluster record(Throwable t, String testName) {
+        long signature = FailureSignature.of(t);
+        FailureCluster cluster = clusters.get(signature);
+        if (cluster == null) {
+            cluster = clusters.computeIfAbsent(signature,
+                    s -> new FailureCluster(nextId.incrementAndGet(), s, t, Throwables.getStackTraceAsString(t)));
+        }
+        cluster.add(testName);
+        return cluster;
+    }
+
+    /**
+     * @return The clusters, largest first
+     */
+    public List<FailureCluster> getClusters() {
+        List<FailureCluster> sorted = new ArrayList<>(clusters.values());
+        sorted.sort(Comparator.comparingLong(FailureCluster::getCount).reversed().thenComparingInt(FailureCluster::getId));
+        return sorted;
+    }
+
+    public boolean isEmpty() {
+        return clusters.isEmpty();
+    }
+
+    /**
+     * Writes the clusters next to the report. Nothing is written if there were no failures.
+     *
+     * @param reportPath    The report output folder
+     * @throws IOException  If the files can't be written
+     */
+    public void publish(String reportPath) throws IOException {
+        List<FailureCluster> sorted = getClusters();
+        if (sorted.isEmpty()) {
+            return;
+        }
+
+        List<Map<String, Object>> json = new ArrayList<>(sorted.size());
+        long failures = 0;
+        for (FailureCluster cluster : sorted) {
+            failures += cluster.getCount();
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("id", cluster.getId());
+            entry.put("signature", Long.toHexString(cluster.getSignature()));
+            entry.put("count", cluster.getCount());
+            entry.put("exception", cluster.getException());
+            entry.put("message", cluster.getMessage());
+            entry.put("tests", cluster.getSampleTests());
+            entry.put("trace", cluster.getTrace());
+            json.add(entry);
+        }
+
+        Gson gson = new GsonBuilder().setPrettyPrinting().disableHtmlEscaping().create();
+        try (Writer writer = Files.newBufferedWriter(new File(reportPath, JSON_FILE).toPath(), StandardCharsets.UTF_8)) {
+            gson.toJson(json, writer);
+        }
+
+        StringBuilder html = new StringBuilder(4096);
+        html.append("<!DOCTYPE html>\n<html>\n<head>\n<meta charset='utf-8'>\n<title>Failure Clusters</title>\n<style>\n")
+                .append("body { font: 14px Arial, sans-serif; margin: 24px; }\n")
+                .append("section { margin-bottom: 32px; border-left: 4px solid #c62828; padding-left: 12px; }\n")
+                .append("pre { white-space: pre-wrap; background: #fafafa; padding: 8px; }\n")
+                .append("</style>\n</head>\n<body>\n<h1>Failure Clusters</h1>\n<p>")
+                .append(failures).append(" failures in ").append(sorted.size()).append(" clusters</p>\n<ol>\n");
+        for (FailureCluster cluster : sorted) {
+            html.append("<li><a href='#cluster-").append(cluster.getId()).append("'>")
+                    .append(escape(cluster.getException())).append("</a> &times; ").append(cluster.getCount()).append("</li>\n");
+        }
+        html.append("</ol>\n");
+
+        for (FailureCluster cluster : sorted) {
+            html.append("<section id='cluster-").append(cluster.getId()).append("'>\n")
+                    .append("<h2>#").append(cluster.getId()).append(' ').append(escape(cluster.getException()))
+                    .append(" &times; ").append(cluster.getCount()).append("</h2>\n");
+            if (cluster.getMessage() != null) {
+                html.append("<p>").append(escape(cluster.getMessage())).append("</p>\n");
+            }
+            html.append("<p>Tests: ").append(escape(String.join(", ", cluster.getSampleTests())));
+            if (cluster.getCount() > cluster.getSampleTests().size()) {
+                html.append(" and ").append(cluster.getCount() - cluster.getSampleTests().size()).append(" more");
+            }
+            html.append("</p>\n<details><summary>Signature</summary><pre>").append(escape(cluster.getNormalizedTrace()))
+                    .append("</pre></details>\n<pre>").append(escape(cluster.getTrace())).append("</pre>\n</section>\n");
+        }
+        html.append("</body>\n</html>\n");
+
+        Files.write(new File(reportPath, HTML_FILE).toPath(), html.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String escape(String text) {
+        return text == null ? "" : text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("'", "&#39;");
+    }
+}
@@ -0,0 +1,126 @@
+package io.vodqa.extreportng.failures;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * Stable signature of a failure, the 64-bit FNV-1a hash of its normalized stack trace.
+ *
+ * Normalization keeps the exception class and the declaring class and method of every frame, and drops:
+ * <ul>
+ *     <li>messages and line numbers</li>
+ *     <li>reflection frames ({@code Method.invoke}, generated accessors)</li>
+ *     <li>dynamic proxy and generated lambda classes, lambda method numbers</li>
+ * </ul>
+ * Only the first {@value #MAX_FRAMES} kept frames of every throwable in the cause chain are hashed,
+ * so computing a signature costs the same for every failure, whatever the stack depth.
+ */
+public final class FailureSignature {
+
+    static final int MAX_FRAMES = 32;
+    static final int MAX_CAUSES = 8;
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private FailureSignature() {
+    }
+
+    /**
+     * @param t The failure
+     * @return  The signature of the failure
+     */
+    public static long of(Throwable t) {
+        long hash = FNV_OFFSET;
+        Set<Throwable> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        int causes = 0;
+
+        for (Throwable cause = t; cause != null && causes < MAX_CAUSES && seen.add(cause); cause = cause.getCause(), causes++) {
+            hash = hash(hash, cause.getClass().getName());
+            hash = hash(hash, "\n");
+
+            int frames = 0;
+            for (StackTraceElement frame : cause.getStackTrace()) {
+                if (frames == MAX_FRAMES) {
+                    break;
+                }
+                if (isNoise(frame)) {
+                    continue;
+                }
+                hash = hash(hash, normalizeClass(frame.getClassName()));
+                hash = hash(hash, ".");
+                hash = hash(hash, normalizeMethod(frame.getMethodName()));
+                hash = hash(hash, "\n");
+                frames++;
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * @param t The failure
+     * @return  The normalized stack trace the signature is computed from, readable form
+     */
+    public static String describe(Throwable t) {
+        StringBuilder sb = new StringBuilder(1024);
+        Set<Throwable> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        int causes = 0;
+
+        for (Throwable cause = t; cause != null && causes < MAX_CAUSES && seen.add(cause); cause = cause.getCause(), causes++) {
+            if (causes > 0) {
+                sb.append("Caused by: ");
+            }
+            sb.append(cause.getClass().getName()).append('\n');
+
+            int frames = 0;
+            for (StackTraceElement frame : cause.getStackTrace()) {
+                if (frames == MAX_FRAMES) {
+                    sb.append("    ...\n");
+                    break;
+                }
+                if (isNoise(frame)) {
+                    continue;
+                }
+                sb.append("    at ").append(normalizeClass(frame.getClassName())).append('.')
+                        .append(normalizeMethod(frame.getMethodName())).append('\n');
+                frames++;
+            }
+        }
+        return sb.toString();
+    }
+
+    static boolean isNoise(StackTraceElement frame) {
+        String className = frame.getClassName();
+        return className.startsWith("sun.reflect.")
+                || className.startsWith("jdk.internal.reflect.")
+                || className.startsWith("java.lang.reflect.")
+                || className.startsWith("com.sun.proxy.")
+                || className.startsWith("jdk.proxy")
+                || className.contains("$Proxy")
+                || className.contains("$$Lambda");
+    }
+
+    static String normalizeClass(String className) {
+        // cglib/bytebuddy generated subclasses: Foo$$EnhancerByCGLIB$$1a2b3c -> Foo
+        int generated = className.indexOf("$$");
+        return generated > 0 ? className.substring(0, generated) : className;
+    }
+
+    static String normalizeMethod(String methodName) {
+        // lambda$doSomething$3 -> lambda$doSomething
+        if (methodName.startsWith("lambda$")) {
+            int last = methodName.lastIndexOf('$');
+            return last > "lambda$".length() ? methodName.substring(0, last) : methodName;
+        }
+        return methodName;
+    }
+
+    private static long hash(long hash, String text) {
+        for (int i = 0; i < text.length(); i++) {
+            hash ^= text.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+}
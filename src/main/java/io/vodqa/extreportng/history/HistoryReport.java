@@ -0,0 +1,124 @@
+package io.vodqa.extreportng.history;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Writes the trend and flakiness analytics of the tests of the current run to {@code history.html}.
+ */
+public class HistoryReport {
+
+    public static final String HTML_FILE = "history.html";
+
+    /**
+     * Tests are reported as slower when the recent p95 duration drifted by more than this ratio.
+     */
+    static final double DRIFT_THRESHOLD = 0.2;
+
+    private static final int MAX_ROWS = 100;
+
+    private HistoryReport() {
+    }
+
+    /**
+     * @param store         The committed {@link HistoryStore}
+     * @param reportPath    The report output folder
+     * @return              The report file
+     * @throws IOException  If the report can't be written
+     */
+    public static File write(HistoryStore store, String reportPath) throws IOException {
+        List<TestHistory> tests = new ArrayList<>();
+        for (TestHistory history : store.getAll()) {
+            if (store.isInCurrentRun(history.getKey())) {
+                tests.add(history);
+            }
+        }
+
+        StringBuilder html = new StringBuilder(8192);
+        html.append("<!DOCTYPE html>\n<html>\n<head>\n<meta charset='utf-8'>\n<title>Test History</title>\n<style>\n")
+                .append("body { font: 14px Arial, sans-serif; margin: 24px; }\n")
+                .append("table { border-collapse: collapse; margin-bottom: 32px; }\n")
+                .append("th, td { padding: 4px 10px; border-bottom: 1px solid #ddd; text-align: left; }\n")
+                .append("td.num { text-align: right; }\n")
+                .append("</style>\n</head>\n<body>\n<h1>Test History</h1>\n<p>")
+                .append(tests.size()).append(" tests of this run, window of the last ").append(TestHistory.WINDOW)
+                .append(" runs, recent runs are the last ").append(TestHistory.RECENT).append("</p>\n");
+
+        section(html, "Flaky tests", tests, TestHistory::getFlakiness, 0d);
+        section(html, "Duration regressions (p95)", tests, h -> h.getDurationDrift(95), DRIFT_THRESHOLD);
+        section(html, "Declining pass rate", tests, h -> -h.getPassRateTrend(), 0d);
+        html.append("</body>\n</html>\n");
+
+        File file = new File(reportPath, HTML_FILE);
+        Files.write(file.toPath(), html.toString().getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    /**
+     * @param history   The history of a test method
+     * @return          One line summary of the history, for the test log
+     */
+    public static String describe(TestHistory history) {
+        double drift = history.getDurationDrift(95);
+        return String.format(Locale.ROOT, "History: %d runs, pass rate %.0f%% (recent %.0f%%), flakiness %.2f, "
+                        + "p50 %d ms, p95 %d ms%s",
+                history.getRuns(), history.getPassRate(TestHistory.WINDOW) * 100, history.getPassRate(TestHistory.RECENT) * 100,
+                history.getFlakiness(), history.getDurationPercentile(50, 0, TestHistory.WINDOW),
+                history.getDurationPercentile(95, 0, TestHistory.WINDOW),
+                Double.isNaN(drift) ? "" : String.format(Locale.ROOT, ", p95 drift %+.0f%%", drift * 100));
+    }
+
+    private static void section(StringBuilder html, String title, List<TestHistory> tests,
+                                ToDoubleFunction<TestHistory> score, double threshold) {
+        List<TestHistory> rows = new ArrayList<>();
+        for (TestHistory history : tests) {
+            double value = score.applyAsDouble(history);
+            if (!Double.isNaN(value) && value > threshold) {
+                rows.add(history);
+            }
+        }
+        rows.sort(Comparator.comparingDouble(score).reversed());
+
+        html.append("<h2>").append(title).append(" (").append(rows.size()).append(")</h2>\n");
+        if (rows.isEmpty()) {
+            html.append("<p>None</p>\n");
+            return;
+        }
+
+        html.append("<table>\n<tr><th>Test</th><th>Runs</th><th>Pass rate</th><th>Recent pass rate</th><th>Flakiness</th>")
+                .append("<th>p50 ms</th><th>p95 ms</th><th>Recent p95 ms</th><th>p95 drift</th></tr>\n");
+        for (TestHistory history : rows.subList(0, Math.min(MAX_ROWS, rows.size()))) {
+            double drift = history.getDurationDrift(95);
+            html.append("<tr><td>").append(escape(history.getKey())).append("</td>")
+                    .append(cell(Integer.toString(history.getRuns())))
+                    .append(cell(percent(history.getPassRate(TestHistory.WINDOW))))
+                    .append(cell(percent(history.getPassRate(TestHistory.RECENT))))
+                    .append(cell(String.format(Locale.ROOT, "%.2f", history.getFlakiness())))
+                    .append(cell(Long.toString(history.getDurationPercentile(50, 0, TestHistory.WINDOW))))
+                    .append(cell(Long.toString(history.getDurationPercentile(95, 0, TestHistory.WINDOW))))
+                    .append(cell(Long.toString(history.getDurationPercentile(95, 0, TestHistory.RECENT))))
+                    .append(cell(Double.isNaN(drift) ? "-" : String.format(Locale.ROOT, "%+.0f%%", drift * 100)))
+                    .append("</tr>\n");
+        }
+        html.append("</table>\n");
+    }
+
+    private static String cell(String value) {
+        return "<td class='num'>" + value + "</td>";
+    }
+
+    private static String percent(double rate) {
+        return String.format(Locale.ROOT, "%.0f%%", rate * 100);
+    }
+
+    private static String escape(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+}
@@ -0,0 +1,313 @@
+package io.vodqa.extreportng.history;
+
+import io.vodqa.extreportng.shard.ResultRecord;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Local store of the test outcomes of past runs, kept under {@code test-output/history/}.
+ *
+ * <ul>
+ *     <li>{@code runs.log} - append-only, one line per run: run id, start time, tests, passed, failed, skipped</li>
+ *     <li>{@code runs/<run id>.tsv.gz} - immutable outcomes of one run: key, status, duration, start time.
+ *     Only the latest {@code keepRuns} files are kept</li>
+ *     <li>{@code summary.bin} - the query index, one {@link TestHistory} window per test method,
+ *     rewritten at the end of every run</li>
+ * </ul>
+ *
+ * Analytics only read the summary, so their cost depends on the number of distinct tests,
+ * not on the number of runs stored. Tests that were not part of any of the last {@value TestHistory#WINDOW} runs
+ * are dropped from the summary. Runs finishing at the same time are serialized with a file lock.
+ */
+public class HistoryStore {
+
+    private static final Logger log = LogManager.getLogger(HistoryStore.class.getName());
+
+    public static final String HISTORY_FOLDER = "history";
+
+    private static final int SUMMARY_MAGIC = 0x54484953;
+    private static final int SUMMARY_VERSION = 2;
+
+    private final File folder;
+    private final int keepRuns;
+    private final Map<String, TestHistory> history;
+    private final Map<String, ResultRecord> currentRun = new ConcurrentHashMap<>();
+
+    private HistoryStore(File folder, int keepRuns, Map<String, TestHistory> history) {
+        this.folder = folder;
+        this.keepRuns = Math.max(1, keepRuns);
+        this.history = history;
+    }
+
+    /**
+     * Opens the store and loads the summary of the past runs.
+     *
+     * @param folder        The history folder
+     * @param keepRuns      The number of raw run files kept
+     * @return              The store
+     * @throws IOException  If the folder can't be created or the summary can't be read
+     */
+    public static HistoryStore open(File folder, int keepRuns) throws IOException {
+        Files.createDirectories(new File(folder, "runs").toPath());
+        Map<String, TestHistory> history = new ConcurrentHashMap<>(readSummary(new File(folder, "summary.bin")).histories);
+        log.info("Loaded history of " + history.size() + " tests from: " + folder);
+        return new HistoryStore(folder, keepRuns, history);
+    }
+
+    /**
+     * @return The default history folder, next to the run folders of the report listener
+     */
+    public static File defaultFolder() {
+        String reportPath = System.getProperty("reportPath");
+        File runsFolder = reportPath == null
+                ? new File(System.getProperty("user.dir"), "test-output")
+                : new File(reportPath).getAbsoluteFile().getParentFile();
+        return new File(runsFolder, HISTORY_FOLDER);
+    }
+
+    /**
+     * Creates a run id that sorts in run order and stays unique for runs started in the same second.
+     *
+     * @param runMillis The start time of the run
+     * @return          The run id, {@code yyyyMMddHHmmss-<random>}
+     */
+    public static String runId(long runMillis) {
+        return new SimpleDateFormat("yyyyMMddHHmmss").format(new Date(runMillis))
+                + '-' + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    /**
+     * @param className The test class name
+     * @param method    The test method name
+     * @param params    The test parameters, or null
+     * @return          The history key of the test method
+     */
+    public static String key(String className, String method, String params) {
+        String key = className + '#' + method;
+        return params == null ? key : key + '[' + params + ']';
+    }
+
+    /**
+     * @param record    The result of a test method
+     * @return          The history key of the test method
+     */
+    public static String key(ResultRecord record) {
+        return key(record.getClassName(), record.getMethod(), record.getParameters());
+    }
+
+    /**
+     * @param key   The history key
+     * @return      The history of the test method from past runs, or null if it never ran
+     */
+    public TestHistory get(String key) {
+        return history.get(key);
+    }
+
+    /**
+     * @return The histories of all test methods from past runs
+     */
+    public Collection<TestHistory> getAll() {
+        return Collections.unmodifiableCollection(history.values());
+    }
+
+    /**
+     * Adds the outcome of a test method of the current run. Of several attempts the latest finished one is kept.
+     *
+     * @param record The {@link ResultRecord} of the finished test
+     */
+    public void record(ResultRecord record) {
+        currentRun.merge(key(record), record, (a, b) -> b.getEndMillis() >= a.getEndMillis() ? b : a);
+    }
+
+    /**
+     * @param key   The history key
+     * @return      true if the test method ran in the current run
+     */
+    public boolean isInCurrentRun(String key) {
+        return currentRun.containsKey(key);
+    }
+
+    /**
+     * @return The number of test methods recorded in the current run
+     */
+    public int getRecordedCount() {
+        return currentRun.size();
+    }
+
+    /**
+     * Writes the current run to the store and updates the summary.
+     * Afterwards {@link #get(String)} and {@link #getAll()} include the current run.
+     *
+     * @param runId         The run id, see {@link #runId(long)}
+     * @param runMillis     The start time of the run
+     * @throws IOException  If the store can't be written
+     */
+    public void commit(String runId, long runMillis) throws IOException {
+        File lockFile = new File(folder, ".lock");
+        try (FileChannel channel = FileChannel.open(lockFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             FileLock ignored = channel.lock()) {
+            // another run may have committed since this one started
+            Summary summary = readSummary(new File(folder, "summary.bin"));
+            Map<String, TestHistory> latest = summary.histories;
+            int run = ++summary.runs;
+
+            int passed = 0;
+            int failed = 0;
+            int skipped = 0;
+            File runFile = new File(new File(folder, "runs"), runId + ".tsv.gz");
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+                    new GZIPOutputStream(Files.newOutputStream(runFile.toPath())), StandardCharsets.UTF_8))) {
+                for (Map.Entry<String, ResultRecord> entry : currentRun.entrySet()) {
+                    ResultRecord record = entry.getValue();
+                    long duration = record.getEndMillis() - record.getStartMillis();
+                    writer.write(entry.getKey().replace('\t', ' ').replace('\n', ' '));
+                    writer.write('\t');
+                    writer.write(record.getStatus());
+                    writer.write('\t');
+                    writer.write(Long.toString(duration));
+                    writer.write('\t');
+                    writer.write(Long.toString(record.getStartMillis()));
+                    writer.write('\n');
+
+                    if (ResultRecord.SKIP.equals(record.getStatus())) {
+                        skipped++;
+                        TestHistory testHistory = latest.get(entry.getKey());
+                        if (testHistory != null) {
+                            testHistory.setLastSeenRun(run);
+                        }
+                        continue;
+                    }
+                    boolean failure = ResultRecord.FAIL.equals(record.getStatus());
+                    if (failure) {
+                        failed++;
+                    } else {
+                        passed++;
+                    }
+                    TestHistory testHistory = latest.computeIfAbsent(entry.getKey(), TestHistory::new);
+                    testHistory.add(failure, duration, runMillis);
+                    testHistory.setLastSeenRun(run);
+                }
+            }
+
+            evict(latest, run);
+            writeSummary(summary, new File(folder, "summary.bin"));
+            history.clear();
+            history.putAll(latest);
+            Files.write(new File(folder, "runs.log").toPath(),
+                    (runId + '\t' + runMillis + '\t' + currentRun.size() + '\t' + passed + '\t' + failed + '\t' + skipped + '\n')
+                            .getBytes(StandardCharsets.UTF_8),
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            pruneRuns();
+            log.info("Recorded " + currentRun.size() + " test outcomes of run " + runId + " in: " + folder);
+        }
+    }
+
+    /**
+     * Drops the tests that were not part of any of the last {@value TestHistory#WINDOW} runs,
+     * e.g. renamed or removed tests, so the summary does not grow forever.
+     */
+    private static void evict(Map<String, TestHistory> histories, int run) {
+        int evicted = 0;
+        for (Iterator<TestHistory> it = histories.values().iterator(); it.hasNext(); ) {
+            if (run - it.next().getLastSeenRun() >= TestHistory.WINDOW) {
+                it.remove();
+                evicted++;
+            }
+        }
+        if (evicted > 0) {
+            log.info("Dropped " + evicted + " tests not seen in the last " + TestHistory.WINDOW + " runs from the history");
+        }
+    }
+
+    private void pruneRuns() {
+        File[] runs = new File(folder, "runs").listFiles((dir, name) -> name.endsWith(".tsv.gz"));
+        if (runs == null || runs.length <= keepRuns) {
+            return;
+        }
+
+        // run ids are timestamps, so name order is run order
+        Arrays.sort(runs);
+        for (int i = 0; i < runs.length - keepRuns; i++) {
+            try {
+                Files.deleteIfExists(runs[i].toPath());
+            } catch (IOException e) {
+                log.error("Failed to prune history run file " + runs[i] + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private static Summary readSummary(File file) throws IOException {
+        Summary summary = new Summary();
+        if (!file.isFile()) {
+            return summary;
+        }
+
+        try (InputStream is = Files.newInputStream(file.toPath());
+             DataInputStream in = new DataInputStream(new BufferedInputStream(is, 1 << 16))) {
+            int version;
+            if (in.readInt() != SUMMARY_MAGIC || (version = in.readInt()) < 1 || version > SUMMARY_VERSION) {
+                log.error("Unknown history summary format, starting a new history: " + file);
+                return summary;
+            }
+            if (version > 1) {
+                summary.runs = in.readInt();
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                TestHistory testHistory = TestHistory.read(in, version);
+                summary.histories.put(testHistory.getKey(), testHistory);
+            }
+        }
+        return summary;
+    }
+
+    private static void writeSummary(Summary summary, File file) throws IOException {
+        File temp = new File(file.getParentFile(), file.getName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp.toPath()), 1 << 16))) {
+            out.writeInt(SUMMARY_MAGIC);
+            out.writeInt(SUMMARY_VERSION);
+            out.writeInt(summary.runs);
+            out.writeInt(summary.histories.size());
+            for (TestHistory testHistory : summary.histories.values()) {
+                testHistory.write(out);
+            }
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Contents of {@code summary.bin}: the number of committed runs and the history of every test method.
+     */
+    private static final class Summary {
+        private int runs;
+        private final Map<String, TestHistory> histories = new HashMap<>();
+    }
+}
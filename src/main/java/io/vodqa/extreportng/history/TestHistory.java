@@ -0,0 +1,233 @@
+package io.vodqa.extreportng.history;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Rolling outcome and duration window of one test method over the last {@value #WINDOW} runs.
+ *
+ * Outcomes are a bit mask, bit 0 being the latest run and a set bit a failure,
+ * durations are a ring buffer. Every statistic is computed from the window only,
+ * so it costs the same whether the store holds ten runs or ten thousand.
+ */
+public final class TestHistory {
+
+    public static final int WINDOW = 64;
+
+    /**
+     * Number of latest runs compared against the rest of the window for trends and duration drift.
+     */
+    public static final int RECENT = 10;
+
+    private final String key;
+    private long failures;
+    private int runs;
+    private final int[] durations = new int[WINDOW];
+    private int next;
+    private long lastRunMillis;
+    private int lastSeenRun;
+
+    TestHistory(String key) {
+        this.key = key;
+    }
+
+    void add(boolean failed, long durationMillis, long runMillis) {
+        failures = (failures << 1) | (failed ? 1L : 0L);
+        durations[next] = (int) Math.min(Integer.MAX_VALUE, Math.max(0, durationMillis));
+        next = (next + 1) % WINDOW;
+        runs++;
+        lastRunMillis = runMillis;
+    }
+
+    /**
+     * @return The history key, {@code class#method} followed by the parameters in brackets, if any
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * @return The number of runs recorded, including the ones that dropped out of the window
+     */
+    public int getRuns() {
+        return runs;
+    }
+
+    /**
+     * @return The number of runs in the window
+     */
+    public int getWindowSize() {
+        return Math.min(runs, WINDOW);
+    }
+
+    public long getLastRunMillis() {
+        return lastRunMillis;
+    }
+
+    /**
+     * @return The store-wide number of the last run the test method was part of, skipped or not
+     */
+    int getLastSeenRun() {
+        return lastSeenRun;
+    }
+
+    void setLastSeenRun(int run) {
+        lastSeenRun = run;
+    }
+
+    /**
+     * @return true if the latest recorded run failed
+     */
+    public boolean isLastFailed() {
+        return runs > 0 && (failures & 1L) != 0;
+    }
+
+    /**
+     * @param lastRuns  The number of latest runs to look at
+     * @return          The pass rate from 0 to 1, or NaN if there are no runs
+     */
+    public double getPassRate(int lastRuns) {
+        int n = Math.min(lastRuns, getWindowSize());
+        if (n == 0) {
+            return Double.NaN;
+        }
+        return (n - Long.bitCount(failures & mask(n))) / (double) n;
+    }
+
+    /**
+     * @return The failure rate over the window from 0 to 1, or NaN if there are no runs
+     */
+    public double getFailureRate() {
+        return 1d - getPassRate(WINDOW);
+    }
+
+    /**
+     * @return The pass rate of the recent runs minus the pass rate of the window, negative when a test gets worse
+     */
+    public double getPassRateTrend() {
+        return getPassRate(RECENT) - getPassRate(WINDOW);
+    }
+
+    /**
+     * Flip rate of the outcomes: the number of pass/fail changes between consecutive runs
+     * divided by the number of consecutive run pairs. 0 is stable, 1 alternates every run.
+     *
+     * @return The flakiness score from 0 to 1, 0 if there are less than 2 runs
+     */
+    public double getFlakiness() {
+        int n = getWindowSize();
+        if (n < 2) {
+            return 0d;
+        }
+        return Long.bitCount((failures ^ (failures >>> 1)) & mask(n - 1)) / (double) (n - 1);
+    }
+
+    /**
+     * @param age   0 for the latest run
+     * @return      The duration of the run in milliseconds
+     */
+    public int getDuration(int age) {
+        return durations[(next - 1 - age + 2 * WINDOW) % WINDOW];
+    }
+
+    /**
+     * @param percentile    The percentile from 0 to 100
+     * @param fromAge       The age of the latest run included, 0 for the latest run
+     * @param toAge         The age of the first run not included
+     * @return              The duration percentile in milliseconds, or -1 if the range holds no runs
+     */
+    public long getDurationPercentile(double percentile, int fromAge, int toAge) {
+        int to = Math.min(toAge, getWindowSize());
+        if (fromAge >= to) {
+            return -1;
+        }
+
+        int[] sorted = new int[to - fromAge];
+        for (int age = fromAge; age < to; age++) {
+            sorted[age - fromAge] = getDuration(age);
+        }
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100d * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    /**
+     * @return The mean duration of the window in milliseconds, or -1 if there are no runs
+     */
+    public long getMeanDuration() {
+        int n = getWindowSize();
+        if (n == 0) {
+            return -1;
+        }
+        long total = 0;
+        for (int age = 0; age < n; age++) {
+            total += getDuration(age);
+        }
+        return total / n;
+    }
+
+    /**
+     * @param percentile    The percentile from 0 to 100
+     * @return              The relative change of the duration percentile of the recent runs against the older runs
+     *                      of the window, 0.25 meaning 25% slower, or NaN if there are not enough runs to compare
+     */
+    public double getDurationDrift(double percentile) {
+        long baseline = getDurationPercentile(percentile, RECENT, WINDOW);
+        long recent = getDurationPercentile(percentile, 0, RECENT);
+        if (baseline <= 0 || recent < 0) {
+            return Double.NaN;
+        }
+        return (recent - baseline) / (double) baseline;
+    }
+
+    private static long mask(int bits) {
+        return bits >= 64 ? -1L : (1L << bits) - 1;
+    }
+
+    void write(DataOutput out) throws IOException {
+        // writeUTF is limited to 64KB, data provider parameters can be longer
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(keyBytes.length);
+        out.write(keyBytes);
+        out.writeInt(lastSeenRun);
+        out.writeLong(failures);
+        out.writeInt(runs);
+        out.writeLong(lastRunMillis);
+        int n = getWindowSize();
+        out.writeByte(n);
+        // oldest first, so reading back is a plain replay
+        for (int age = n - 1; age >= 0; age--) {
+            out.writeInt(getDuration(age));
+        }
+    }
+
+    /**
+     * @param in        The summary input
+     * @param version   The summary format version, version 1 has no last seen run and a modified UTF-8 key
+     * @return          The history read
+     * @throws IOException If the summary can't be read
+     */
+    static TestHistory read(DataInput in, int version) throws IOException {
+        TestHistory history;
+        if (version == 1) {
+            history = new TestHistory(in.readUTF());
+        } else {
+            byte[] keyBytes = new byte[in.readInt()];
+            in.readFully(keyBytes);
+            history = new TestHistory(new String(keyBytes, StandardCharsets.UTF_8));
+            history.lastSeenRun = in.readInt();
+        }
+        history.failures = in.readLong();
+        history.runs = in.readInt();
+        history.lastRunMillis = in.readLong();
+        int n = in.readUnsignedByte();
+        for (int i = 0; i < n; i++) {
+            history.durations[i] = in.readInt();
+        }
+        history.next = n % WINDOW;
+        return history;
+    }
+}
@@ -0,0 +1,163 @@
+package io.vodqa.extreportng.journal;
+
+import com.aventstack.extentreports.AnalysisStrategy;
+import com.aventstack.extentreports.ExtentReports;
+import com.aventstack.extentreports.ExtentTest;
+import com.aventstack.extentreports.Status;
+import com.aventstack.extentreports.markuputils.MarkupHelper;
+import com.aventstack.extentreports.reporter.ExtentHtmlReporter;
+import com.aventstack.extentreports.reporter.configuration.Theme;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Rebuilds the html report from a {@link ResultJournal} after a crash.
+ *
+ * Usage:
+ * <pre>
+ *     java -cp tnghtmlreport.jar io.vodqa.extreportng.journal.JournalRecovery &lt;report.journal&gt; [output folder]
+ * </pre>
+ */
+public class JournalRecovery {
+
+    private static final Logger log = LogManager.getLogger(JournalRecovery.class.getName());
+
+    private final File journalFile;
+    private final Map<Integer, ExtentTest> nodes = new HashMap<>();
+    private int events;
+
+    public JournalRecovery(File journalFile) {
+        this.journalFile = journalFile;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: JournalRecovery <report.journal> [output folder]");
+            System.exit(2);
+        }
+
+        File journal = new File(args[0]);
+        File output = args.length > 1 ? new File(args[1]) : journal.getAbsoluteFile().getParentFile();
+        File report = new JournalRecovery(journal).recover(output);
+        System.out.println("Recovered report: " + report.getAbsolutePath());
+    }
+
+    /**
+     * Replays the journal into {@code test-report.html} in the given folder.
+     *
+     * @param outputFolder  The folder the report is written to
+     * @return              The report file
+     * @throws IOException  If the journal can't be read or the report can't be written
+     */
+    public File recover(File outputFolder) throws IOException {
+        if (!outputFolder.exists() && !outputFolder.mkdirs()) {
+            throw new IOException("Failed to create output folder: " + outputFolder);
+        }
+        File reportFile = new File(outputFolder, "test-report.html");
+
+        ExtentHtmlReporter htmlReporter = new ExtentHtmlReporter(reportFile);
+        htmlReporter.config().setTheme(Theme.DARK);
+        ExtentReports extent = new ExtentReports();
+        extent.setAnalysisStrategy(AnalysisStrategy.SUITE);
+        extent.attachReporter(htmlReporter);
+
+        try (FileChannel channel = FileChannel.open(journalFile.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            for (long segmentStart = 0; segmentStart < size; segmentStart += ResultJournal.SEGMENT_SIZE) {
+                long length = Math.min(ResultJournal.SEGMENT_SIZE, size - segmentStart);
+                replaySegment(extent, channel.map(FileChannel.MapMode.READ_ONLY, segmentStart, length));
+            }
+        }
+
+        log.info("Replayed " + events + " journal events into: " + reportFile);
+        extent.flush();
+        return reportFile;
+    }
+
+    private void replaySegment(ExtentReports extent, MappedByteBuffer buffer) {
+        while (buffer.remaining() >= ResultJournal.HEADER_SIZE) {
+            int start = buffer.position();
+            int length = buffer.getInt();
+            if (length < ResultJournal.HEADER_SIZE || length > buffer.remaining() + 4) {
+                // unused tail of the segment, or a record that was never completed
+                return;
+            }
+
+            byte type = buffer.get();
+            byte statusOrdinal = buffer.get();
+            long timestamp = buffer.getLong();
+            int id = buffer.getInt();
+            int parentId = buffer.getInt();
+            int chars = buffer.getInt();
+            StringBuilder text = new StringBuilder(chars);
+            for (int i = 0; i < chars; i++) {
+                text.append(buffer.getChar());
+            }
+            buffer.position(start + length);
+
+            Status status = statusOrdinal == ResultJournal.NO_STATUS ? null : Status.values()[statusOrdinal];
+            replay(extent, type, status, new Date(timestamp), id, parentId, text.toString());
+            events++;
+        }
+    }
+
+    private void replay(ExtentReports extent, byte type, Status status, Date timestamp, int id, int parentId, String text) {
+        ExtentTest node = nodes.get(id);
+        ExtentTest parent = nodes.get(parentId);
+
+        switch (type) {
+            case ResultJournal.SUITE_START:
+                nodes.put(id, extent.createTest(text));
+                break;
+            case ResultJournal.CONTEXT_START:
+            case ResultJournal.TEST_START:
+            case ResultJournal.NODE_START:
+                if (parent == null) {
+                    log.error("Journal node " + id + " has unknown parent " + parentId + ", attaching it to the report root");
+                    node = extent.createTest(text);
+                } else {
+                    node = parent.createNode(text);
+                }
+                node.getModel().setStartTime(timestamp);
+                nodes.put(id, node);
+                break;
+            case ResultJournal.LOG:
+                if (node != null) {
+                    node.log(status == null ? Status.INFO : status, text);
+                }
+                break;
+            case ResultJournal.MEDIA:
+                if (node != null) {
+                    try {
+                        node.addScreenCaptureFromPath(text);
+                    } catch (IOException e) {
+                        log.error("Failed to attach journaled screenshot: " + text);
+                    }
+                }
+                break;
+            case ResultJournal.CONTEXT_FINISH:
+            case ResultJournal.TEST_FINISH:
+                if (node != null) {
+                    Status finalStatus = status == null ? Status.PASS : status;
+                    if (text.isEmpty()) {
+                        node.log(finalStatus, finalStatus.toString());
+                    } else {
+                        node.log(finalStatus, MarkupHelper.createCodeBlock(text));
+                    }
+                    node.getModel().setEndTime(timestamp);
+                }
+                break;
+            default:
+                log.error("Unknown journal event type: " + type);
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package io.vodqa.extreportng.journal;
+
+import com.aventstack.extentreports.Status;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Crash-safe write-ahead journal of the listener events.
+ *
+ * Events are appended to memory-mapped segments of the journal file. A record is written straight into the segment
+ * under the lock, the text char by char, so an append allocates nothing. A background thread forces the segments
+ * to disk periodically.
+ * If the JVM dies before the report is flushed, {@link JournalRecovery} rebuilds the html report from the journal.
+ *
+ * Record layout, all values big-endian:
+ * <pre>
+ *     int length | byte type | byte status | long timestamp | int id | int parentId | int chars | char[chars] text
+ * </pre>
+ * The length is written last, so a record is only visible to the reader once it is complete.
+ * A zero length, or less than 4 bytes left in a segment, means the rest of the segment is unused.
+ */
+public final class ResultJournal implements Closeable {
+
+    private static final Logger log = LogManager.getLogger(ResultJournal.class.getName());
+
+    public static final byte SUITE_START = 1;
+    public static final byte CONTEXT_START = 2;
+    public static final byte CONTEXT_FINISH = 3;
+    public static final byte TEST_START = 4;
+    public static final byte TEST_FINISH = 5;
+    public static final byte NODE_START = 6;
+    public static final byte LOG = 7;
+    public static final byte MEDIA = 8;
+
+    public static final String JOURNAL_FILE_NAME = "report.journal";
+
+    static final int SEGMENT_SIZE = 32 * 1024 * 1024;
+    static final int HEADER_SIZE = 4 + 1 + 1 + 8 + 4 + 4 + 4;
+    static final byte NO_STATUS = -1;
+
+    private static final int MAX_TEXT_CHARS = (SEGMENT_SIZE - HEADER_SIZE) / 2;
+
+    private final File journalFile;
+    private final FileChannel channel;
+    private final ScheduledExecutorService syncer;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private volatile MappedByteBuffer segment;
+    private long segmentStart;
+    private volatile boolean closed;
+
+    /**
+     * Creates the journal in the given folder.
+     *
+     * @param folder        The report output folder
+     * @param fsyncMillis   Interval between forcing the journal to disk, in milliseconds
+     * @throws IOException  If the journal file can't be created
+     */
+    public ResultJournal(File folder, long fsyncMillis) throws IOException {
+        journalFile = new File(folder, JOURNAL_FILE_NAME);
+        channel = FileChannel.open(journalFile.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        segmentStart = 0;
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, segmentStart, SEGMENT_SIZE);
+
+        syncer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "report-journal-sync");
+            t.setDaemon(true);
+            return t;
+        });
+        syncer.scheduleWithFixedDelay(this::sync, fsyncMillis, fsyncMillis, TimeUnit.MILLISECONDS);
+        log.info("Writing report journal to: " + journalFile);
+    }
+
+    /**
+     * Appends an event to the journal.
+     *
+     * @param type      The event type, one of the constants of this class
+     * @param id        Id of the report node the event belongs to
+     * @param parentId  Id of the parent node, 0 if there is none
+     * @param status    The {@link Status} of the event, or null
+     * @param text      The event text (name, log message, media path), or null
+     */
+    public void append(byte type, int id, int parentId, Status status, CharSequence text) {
+        if (closed) {
+            return;
+        }
+
+        int chars = text == null ? 0 : Math.min(text.length(), MAX_TEXT_CHARS);
+        int length = HEADER_SIZE + chars * 2;
+        long timestamp = System.currentTimeMillis();
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+
+            try {
+                if (segment.remaining() < length) {
+                    nextSegment();
+                }
+            } catch (IOException e) {
+                log.error("Failed to extend report journal, journaling stopped: " + e.getMessage());
+                closed = true;
+                return;
+            }
+
+            MappedByteBuffer buffer = segment;
+            int start = buffer.position();
+            buffer.position(start + 4);
+            buffer.put(type)
+                    .put(status == null ? NO_STATUS : (byte) status.ordinal())
+                    .putLong(timestamp)
+                    .putInt(id)
+                    .putInt(parentId)
+                    .putInt(chars);
+            for (int i = 0; i < chars; i++) {
+                buffer.putChar(text.charAt(i));
+            }
+            // the length goes last, the reader skips the record until it is there
+            buffer.putInt(start, length);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void nextSegment() throws IOException {
+        segment.force();
+        segmentStart += SEGMENT_SIZE;
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, segmentStart, SEGMENT_SIZE);
+    }
+
+    /**
+     * Forces the current segment to disk.
+     */
+    public void sync() {
+        try {
+            segment.force();
+        } catch (RuntimeException e) {
+            log.error("Failed to sync report journal: " + e.getMessage());
+        }
+    }
+
+    public File getJournalFile() {
+        return journalFile;
+    }
+
+    /**
+     * Forces the journal to disk and trims the unused part of the last segment.
+     */
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (closed && !channel.isOpen()) {
+                return;
+            }
+            closed = true;
+            syncer.shutdown();
+            segment.force();
+
+            long length = segmentStart + segment.position();
+            try {
+                channel.truncate(length);
+            } catch (IOException e) {
+                // some platforms don't allow truncating a mapped file, the zeroed tail is skipped on recovery
+                log.debug("Could not trim report journal: " + e.getMessage());
+            }
+            channel.close();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,227 @@
+(function () {
+    'use strict';
+
+    var ROW_HEIGHT = 28;
+    var OVERSCAN = 20;
+    var MAX_CACHED_CHUNKS = 40;
+    var STATUS_NAMES = {P: 'PASS', F: 'FAIL', S: 'SKIP'};
+
+    var manifest;
+    // global row index -> chunk id and offset, built from the manifest only
+    var rowChunk, rowOffset, rowStatus;
+    var chunkStart = [];
+    var filtered;
+    var chunks = {};
+    var chunkOrder = [];
+    var loading = {};
+    var selectedRow = -1;
+
+    var list, spacer, rows, details;
+
+    window.__reportManifest = function (data) {
+        manifest = data;
+        buildIndex();
+        init();
+    };
+
+    window.__reportChunk = function (id, tests) {
+        delete loading[id];
+        chunks[id] = tests;
+        chunkOrder.push(id);
+        while (chunkOrder.length > MAX_CACHED_CHUNKS) {
+            delete chunks[chunkOrder.shift()];
+        }
+        render();
+        if (selectedRow >= 0 && rowChunk[selectedRow] === id) {
+            showDetails(selectedRow);
+        }
+    };
+
+    function buildIndex() {
+        var total = 0, c, i, row = 0;
+        for (c = 0; c < manifest.chunks.length; c++) {
+            total += manifest.chunks[c].count;
+        }
+        rowChunk = new Int32Array(total);
+        rowOffset = new Int32Array(total);
+        rowStatus = new Array(total);
+        for (c = 0; c < manifest.chunks.length; c++) {
+            var chunk = manifest.chunks[c];
+            chunkStart[chunk.id] = row;
+            for (i = 0; i < chunk.count; i++, row++) {
+                rowChunk[row] = chunk.id;
+                rowOffset[row] = i;
+                rowStatus[row] = chunk.statuses.charAt(i);
+            }
+        }
+    }
+
+    function init() {
+        list = document.getElementById('list');
+        spacer = document.getElementById('list-spacer');
+        rows = document.getElementById('list-rows');
+        details = document.getElementById('details');
+
+        var totals = document.getElementById('totals');
+        ['PASS', 'FAIL', 'SKIP'].forEach(function (status) {
+            var span = document.createElement('span');
+            span.className = 'status-' + status.charAt(0);
+            span.textContent = status + ': ' + (manifest.totals[status] || 0);
+            totals.appendChild(span);
+        });
+
+        var categorySelect = document.getElementById('filter-category');
+        manifest.categories.forEach(function (name, id) {
+            categorySelect.appendChild(option(id, name));
+        });
+
+        var contextSelect = document.getElementById('filter-context');
+        var contexts = {};
+        manifest.chunks.forEach(function (chunk) {
+            var key = chunk.suite + ' / ' + chunk.context;
+            if (!contexts[key]) {
+                contexts[key] = true;
+                contextSelect.appendChild(option(key, key));
+            }
+        });
+
+        ['filter-status', 'filter-category', 'filter-context'].forEach(function (id) {
+            document.getElementById(id).addEventListener('change', applyFilters);
+        });
+        list.addEventListener('scroll', render);
+        window.addEventListener('resize', render);
+        rows.addEventListener('click', function (e) {
+            var target = e.target.closest('.row');
+            if (target) {
+                selectedRow = +target.getAttribute('data-row');
+                showDetails(selectedRow);
+                render();
+            }
+        });
+
+        applyFilters();
+    }
+
+    function option(value, text) {
+        var o = document.createElement('option');
+        o.value = value;
+        o.textContent = text;
+        return o;
+    }
+
+    function applyFilters() {
+        var status = document.getElementById('filter-status').value;
+        var category = +document.getElementById('filter-category').value;
+        var context = document.getElementById('filter-context').value;
+        var matches = [];
+
+        manifest.chunks.forEach(function (chunk) {
+            if (context && chunk.suite + ' / ' + chunk.context !== context) {
+                return;
+            }
+            var start = chunkStart[chunk.id];
+            for (var i = 0; i < chunk.count; i++) {
+                if (status && chunk.statuses.charAt(i) !== status) {
+                    continue;
+                }
+                if (category >= 0 && chunk.categories[i].indexOf(category) < 0) {
+                    continue;
+                }
+                matches.push(start + i);
+            }
+        });
+
+        filtered = new Int32Array(matches);
+        document.getElementById('match-count').textContent = filtered.length + ' tests';
+        spacer.style.height = (filtered.length * ROW_HEIGHT) + 'px';
+        list.scrollTop = 0;
+        render();
+    }
+
+    function render() {
+        var first = Math.max(0, Math.floor(list.scrollTop / ROW_HEIGHT) - OVERSCAN);
+        var last = Math.min(filtered.length, Math.ceil((list.scrollTop + list.clientHeight) / ROW_HEIGHT) + OVERSCAN);
+        var html = [];
+
+        for (var i = first; i < last; i++) {
+            var row = filtered[i];
+            var tests = chunks[rowChunk[row]];
+            var status = rowStatus[row];
+            var cls = 'row' + (row === selectedRow ? ' selected' : '') + (tests ? '' : ' loading');
+            html.push('<div class="' + cls + '" data-row="' + row + '">'
+                + '<span class="status status-' + status + '">' + STATUS_NAMES[status] + '</span>');
+            if (tests) {
+                var test = tests[rowOffset[row]];
+                var chunk = manifest.chunks[rowChunk[row]];
+                html.push(escape(test.name) + (test.parameters ? ' ' + escape(test.parameters) : '')
+                    + '<span class="context">' + escape(chunk.context) + ' &middot; '
+                    + duration(test) + '</span>');
+            } else {
+                html.push('loading&hellip;');
+                loadChunk(rowChunk[row]);
+            }
+            html.push('</div>');
+        }
+
+        rows.style.top = (first * ROW_HEIGHT) + 'px';
+        rows.innerHTML = html.join('');
+    }
+
+    function loadChunk(id) {
+        if (chunks[id] || loading[id]) {
+            return;
+        }
+        loading[id] = true;
+        var script = document.createElement('script');
+        script.src = 'data/chunk-' + id + '.js';
+        script.onload = script.onerror = function () {
+            document.body.removeChild(script);
+        };
+        document.body.appendChild(script);
+    }
+
+    function showDetails(row) {
+        var tests = chunks[rowChunk[row]];
+        if (!tests) {
+            details.innerHTML = '<p class="hint">Loading&hellip;</p>';
+            loadChunk(rowChunk[row]);
+            return;
+        }
+
+        var test = tests[rowOffset[row]];
+        var html = ['<h2>' + escape(test.name) + '</h2>',
+            '<p><span class="status status-' + rowStatus[row] + '">' + STATUS_NAMES[rowStatus[row]] + '</span> '
+            + escape(test.className) + ' &middot; ' + duration(test) + '</p>'];
+        if (test.description) {
+            html.push('<p>' + escape(test.description) + '</p>');
+        }
+        if (test.parameters) {
+            html.push('<p>Parameters: ' + escape(test.parameters) + '</p>');
+        }
+        if (test.groups && test.groups.length) {
+            html.push('<p>Categories: ' + escape(test.groups.join(', ')) + '</p>');
+        }
+        if (test.logs.length) {
+            html.push('<table>');
+            test.logs.forEach(function (entry) {
+                // log details are report markup, as in the single page report
+                html.push('<tr><td class="status status-' + entry.status.toLowerCase() + '">' + entry.status + '</td><td>'
+                    + (entry.node ? '<b>' + escape(entry.node) + ':</b> ' : '') + (entry.details || '') + '</td></tr>');
+            });
+            html.push('</table>');
+        }
+        if (test.throwable) {
+            html.push('<h3>Exception</h3><pre>' + escape(test.throwable) + '</pre>');
+        }
+        details.innerHTML = html.join('');
+    }
+
+    function duration(test) {
+        return ((test.end - test.start) / 1000).toFixed(2) + 's';
+    }
+
+    function escape(text) {
+        return String(text == null ? '' : text).replace(/&/g, '&amp;').replace(/</g, '&lt;')
+            .replace(/>/g, '&gt;').replace(/"/g, '&quot;').replace(/'/g, '&#39;');
+    }
+})();
@@ -0,0 +1,15 @@
+/*
+ * Returns the bounding client rect of the specified element together with the viewport state
+ * needed to find it on a screenshot, in the form of:
+ *
+ * [left, top, width, height, scrollX, scrollY, viewportHeight, devicePixelRatio]
+ *
+ * All values are in CSS pixels, except the device pixel ratio.
+ */
+var rect = arguments[0].getBoundingClientRect();
+var doc = document.documentElement;
+return [rect.left, rect.top, rect.width, rect.height,
+        window.pageXOffset || doc.scrollLeft || 0,
+        window.pageYOffset || doc.scrollTop || 0,
+        window.innerHeight || doc.clientHeight,
+        window.devicePixelRatio || 1];
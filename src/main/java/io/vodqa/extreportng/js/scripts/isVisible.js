@@ -0,0 +1,30 @@
+/*
+ * Shared by the scripts that wait for an element to be visible,
+ * JSScripts puts it in front of isElementInViewport.js and scrollHighlightElement.js.
+ *
+ * Returns true if the element is displayed and its center is inside the viewport, not covered by another element.
+ */
+function isVisible(elem) {
+    if (!(elem instanceof Element)) throw Error('DomUtil: elem is not an element.');
+    const style = getComputedStyle(elem);
+    if (style.display === 'none') return false;
+    if (style.visibility !== 'visible') return false;
+    if (style.opacity < 0.1) return false;
+    const rect = elem.getBoundingClientRect();
+    if (elem.offsetWidth + elem.offsetHeight + rect.height + rect.width === 0) {
+        return false;
+    }
+    const elemCenter = {
+        x: rect.left + elem.offsetWidth / 2,
+        y: rect.top + elem.offsetHeight / 2
+    };
+    if (elemCenter.x < 0) return false;
+    if (elemCenter.x > (document.documentElement.clientWidth || window.innerWidth)) return false;
+    if (elemCenter.y < 0) return false;
+    if (elemCenter.y > (document.documentElement.clientHeight || window.innerHeight)) return false;
+    let pointContainer = document.elementFromPoint(elemCenter.x, elemCenter.y);
+    do {
+        if (pointContainer === elem) return true;
+    } while (pointContainer = pointContainer.parentNode);
+    return false;
+}
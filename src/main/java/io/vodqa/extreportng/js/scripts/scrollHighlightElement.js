@@ -0,0 +1,57 @@
+/*
+ * Scrolls the element into the middle of the viewport, waits until it is completely visible,
+ * optionally highlights it and passes the result to the async callback in the form of:
+ *
+ * {inViewport: true, border: "2px inset #000000;2px inset #000000;2px inset #000000;2px inset #000000"}
+ * {inViewport: false, border: null}
+ *
+ * where border holds the element border before highlighting, delimited by ';' (semicolon)
+ * in order of top, right, bottom, left.
+ *
+ * arguments[0] - element
+ * arguments[1] - true to highlight the element
+ * arguments[2] - max time in milliseconds to wait for the element to be in viewport
+ * arguments[3] - callback injected by executeAsyncScript
+ *
+ * Requires isVisible.js
+ */
+var elem = arguments[0];
+var highlight = arguments[1];
+var timeout = arguments[2];
+var callback = arguments[arguments.length - 1];
+
+function getBorder(elem) {
+    var style = document.defaultView.getComputedStyle(elem);
+    return ['top', 'right', 'bottom', 'left'].map(function (side) {
+        return style.getPropertyValue('border-' + side + '-width')
+                + ' ' + style.getPropertyValue('border-' + side + '-style')
+                + ' ' + style.getPropertyValue('border-' + side + '-color');
+    }).join(';');
+}
+
+var nextFrame = window.requestAnimationFrame || function (f) { return setTimeout(f, 16); };
+var start = Date.now();
+
+function check() {
+    try {
+        if (isVisible(elem)) {
+            var border = null;
+            if (highlight) {
+                border = getBorder(elem);
+                // highlight the element
+                elem.style.border = '2px solid blue';
+            }
+            callback({inViewport: true, border: border});
+        } else if (Date.now() - start > timeout) {
+            callback({inViewport: false, border: null});
+        } else {
+            nextFrame(check);
+        }
+    } catch (e) {
+        callback({inViewport: false, border: null});
+    }
+}
+
+var viewPortHeight = Math.max(document.documentElement.clientHeight, window.innerHeight || 0);
+window.scrollBy(0, elem.getBoundingClientRect().top - (viewPortHeight / 2));
+check();
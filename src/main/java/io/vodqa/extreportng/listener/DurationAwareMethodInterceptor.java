@@ -0,0 +1,196 @@
+package io.vodqa.extreportng.listener;
+
+import io.vodqa.extreportng.history.HistoryStore;
+import io.vodqa.extreportng.history.TestHistory;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.testng.IMethodInstance;
+import org.testng.IMethodInterceptor;
+import org.testng.ITestContext;
+import org.testng.ITestNGMethod;
+import org.testng.xml.XmlTest;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Orders test methods by the durations and outcomes recorded in the {@link HistoryStore}.
+ *
+ * Methods are ordered longest first (LPT scheduling). When TestNG runs methods in parallel, every free thread takes
+ * the next method of the list, so the long methods start early and the short ones fill the gaps at the end,
+ * which shrinks the wall-clock tail of the run. Methods without history are assumed to take the median duration
+ * of the methods being ordered.
+ *
+ * When the suite-level parameter {@code report.order.failingFirst} is set to {@code true},
+ * methods that failed in their last run go first, for fast feedback.
+ *
+ * Tests with {@code preserve-order} set to {@code true}, the TestNG default, keep their order,
+ * so the test needs {@code preserve-order="false"}.
+ *
+ * Register it next to the report listener, with {@code report.history} enabled so the history is recorded:
+ * <pre>
+ *     &lt;listener class-name="io.vodqa.extreportng.listener.DurationAwareMethodInterceptor" /&gt;
+ * </pre>
+ */
+public class DurationAwareMethodInterceptor implements IMethodInterceptor {
+
+    private static final Logger log = LogManager.getLogger(DurationAwareMethodInterceptor.class.getName());
+
+    private volatile HistoryStore store;
+    private volatile Map<String, List<TestHistory>> histories;
+
+    public DurationAwareMethodInterceptor() {
+    }
+
+    /**
+     * @param store The history the order is based on
+     */
+    public DurationAwareMethodInterceptor(HistoryStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public List<IMethodInstance> intercept(List<IMethodInstance> methods, ITestContext context) {
+        if (methods.size() < 2 || isPreserveOrder(context)) {
+            return methods;
+        }
+
+        Map<String, List<TestHistory>> methodHistories = getHistories();
+        Map<ITestNGMethod, MethodEstimate> methodEstimates = new IdentityHashMap<>();
+        for (IMethodInstance m : methods) {
+            MethodEstimate estimate = estimate(methodHistories, m.getMethod());
+            if (estimate != null) {
+                methodEstimates.put(m.getMethod(), estimate);
+            }
+        }
+        if (methodEstimates.isEmpty()) {
+            return methods;
+        }
+
+        boolean failingFirst = Boolean.parseBoolean(context.getSuite().getParameter("report.order.failingFirst"));
+        MethodEstimate defaultEstimate = new MethodEstimate(getMedianMillis(methodEstimates), false);
+
+        List<IMethodInstance> ordered = new ArrayList<>(methods);
+        Comparator<IMethodInstance> longestFirst = Comparator.comparingLong(
+                (IMethodInstance m) -> methodEstimates.getOrDefault(m.getMethod(), defaultEstimate).millis).reversed();
+        if (failingFirst) {
+            ordered.sort(Comparator.comparing(
+                    (IMethodInstance m) -> !methodEstimates.getOrDefault(m.getMethod(), defaultEstimate).lastFailed)
+                    .thenComparing(longestFirst));
+        } else {
+            ordered.sort(longestFirst);
+        }
+
+        log.debug("Ordered " + ordered.size() + " methods of " + context.getName() + " by duration"
+                + (failingFirst ? ", failed in the last run first" : ""));
+        return ordered;
+    }
+
+    /**
+     * @param method    The test method
+     * @return          The expected duration of all invocations of the method in milliseconds,
+     *                  or -1 if the method has no history
+     */
+    public long getExpectedMillis(ITestNGMethod method) {
+        MethodEstimate estimate = estimate(getHistories(), method);
+        return estimate == null ? -1 : estimate.millis;
+    }
+
+    private static boolean isPreserveOrder(ITestContext context) {
+        XmlTest xmlTest = context.getCurrentXmlTest();
+        // String in older TestNG versions, Boolean in newer ones
+        return xmlTest != null && Boolean.parseBoolean(String.valueOf(xmlTest.getPreserveOrder()));
+    }
+
+    /**
+     * Invocations with different parameters are one method instance that runs on one thread,
+     * so their durations add up. Only the parameters of the last run of the method are counted,
+     * rows that were removed from a data provider since don't add to the estimate.
+     *
+     * @return The estimate of the method, or null if the method has no history
+     */
+    private static MethodEstimate estimate(Map<String, List<TestHistory>> methodHistories, ITestNGMethod method) {
+        List<TestHistory> invocations = methodHistories.get(methodKey(method));
+        if (invocations == null) {
+            return null;
+        }
+
+        long lastRunMillis = Long.MIN_VALUE;
+        for (TestHistory invocation : invocations) {
+            lastRunMillis = Math.max(lastRunMillis, invocation.getLastRunMillis());
+        }
+
+        long millis = 0;
+        boolean lastFailed = false;
+        for (TestHistory invocation : invocations) {
+            if (invocation.getLastRunMillis() == lastRunMillis) {
+                millis += Math.max(0, invocation.getMeanDuration());
+                lastFailed |= invocation.isLastFailed();
+            }
+        }
+        return new MethodEstimate(millis, lastFailed);
+    }
+
+    private static String methodKey(ITestNGMethod method) {
+        return HistoryStore.key(method.getRealClass().getName(), method.getMethodName(), null);
+    }
+
+    private static long getMedianMillis(Map<ITestNGMethod, MethodEstimate> estimates) {
+        long[] millis = new long[estimates.size()];
+        int i = 0;
+        for (MethodEstimate estimate : estimates.values()) {
+            millis[i++] = estimate.millis;
+        }
+        Arrays.sort(millis);
+        return millis[millis.length / 2];
+    }
+
+    /**
+     * Groups the history per method, the histories of the parameter rows of a method are in one list.
+     */
+    private Map<String, List<TestHistory>> getHistories() {
+        Map<String, List<TestHistory>> result = histories;
+        if (result != null) {
+            return result;
+        }
+
+        HistoryStore history = store;
+        if (history == null) {
+            try {
+                history = HistoryStore.open(HistoryStore.defaultFolder(), Integer.MAX_VALUE);
+            } catch (IOException e) {
+                log.error("Failed to read test history, keeping the default method order: " + e.getMessage());
+                histories = Collections.emptyMap();
+                return histories;
+            }
+            store = history;
+        }
+
+        result = new HashMap<>();
+        for (TestHistory testHistory : history.getAll()) {
+            String key = testHistory.getKey();
+            int params = key.indexOf('[');
+            String methodKey = params < 0 ? key : key.substring(0, params);
+            result.computeIfAbsent(methodKey, k -> new ArrayList<>()).add(testHistory);
+        }
+        histories = result;
+        return result;
+    }
+
+    private static final class MethodEstimate {
+        private final long millis;
+        private final boolean lastFailed;
+
+        MethodEstimate(long millis, boolean lastFailed) {
+            this.millis = millis;
+            this.lastFailed = lastFailed;
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package io.vodqa.extreportng.listener;
+
+import com.aventstack.extentreports.ExtentTest;
+import com.aventstack.extentreports.Status;
+import com.aventstack.extentreports.model.Log;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Bounded log retention of one test.
+ *
+ * The first {@code head} entries go straight to the report, the last {@code tail} entries are kept
+ * in a fixed-size ring buffer and added when the test finishes, everything in between is elided.
+ * Entries with status {@link Status#WARNING} and above are always kept; once the ring buffer is in use
+ * they are held back as well, so the test finish adds both in logging order with their original timestamps.
+ * Elided entries are summarized per status and, if enabled, spilled to a gzip file linked from the report.
+ *
+ * An entry can be any log of the test: a message, a {@link com.aventstack.extentreports.markuputils.Markup},
+ * a {@link Throwable} or one with a media file. It is added by a callback, the retention only needs its status
+ * and a text for the spill file.
+ */
+final class LogRetention {
+
+    private static final Logger log = LogManager.getLogger(LogRetention.class.getName());
+
+    private static final Set<Status> ALWAYS_KEPT = EnumSet.of(Status.FATAL, Status.FAIL, Status.ERROR, Status.WARNING);
+    private static final String SPILL_FOLDER = "log-spill";
+    private static final AtomicInteger spillCounter = new AtomicInteger();
+
+    private final int head;
+    private final int tail;
+    private final boolean spill;
+
+    private final Entry[] ring;
+    private int ringStart;
+    private int ringSize;
+    private final List<Entry> kept = new ArrayList<>();
+
+    private long seen;
+    private long sequence;
+    private final long[] elided = new long[Status.values().length];
+
+    private File spillFile;
+    private Writer spillWriter;
+
+    /**
+     * @param head  Number of entries kept from the start of the test
+     * @param tail  Number of entries kept from the end of the test
+     * @param spill true to write elided entries to a gzip file
+     */
+    LogRetention(int head, int tail, boolean spill) {
+        this.head = Math.max(0, head);
+        this.tail = Math.max(0, tail);
+        this.spill = spill;
+        this.ring = new Entry[this.tail];
+    }
+
+    /**
+     * Logs the entry to the test, or retains it for later, or elides it.
+     *
+     * @param test      The {@link ExtentTest} of the test
+     * @param status    The log status
+     * @param message   The log message
+     */
+    void log(ExtentTest test, Status status, String message) {
+        log(test, status, message, node -> node.log(status, message));
+    }
+
+    /**
+     * Adds the entry to the test, or retains it for later, or elides it.
+     *
+     * @param test      The {@link ExtentTest} of the test
+     * @param status    The log status
+     * @param text      The text of the entry written to the spill file
+     * @param entry     Adds the entry to the test node it is given
+     */
+    void log(ExtentTest test, Status status, String text, Consumer<ExtentTest> entry) {
+        if (ALWAYS_KEPT.contains(status) || seen < head) {
+            if (!ALWAYS_KEPT.contains(status)) {
+                seen++;
+            }
+            if (ringSize == 0) {
+                entry.accept(test);
+            } else {
+                // retained entries logged before it are added when the test finishes
+                kept.add(new Entry(sequence++, status, text, entry));
+            }
+            return;
+        }
+
+        seen++;
+        if (tail == 0) {
+            elide(status, text);
+            return;
+        }
+
+        int slot;
+        if (ringSize == tail) {
+            slot = ringStart;
+            elide(ring[slot].status, ring[slot].text);
+            ringStart = (ringStart + 1) % tail;
+        } else {
+            slot = (ringStart + ringSize) % tail;
+            ringSize++;
+        }
+        ring[slot] = new Entry(sequence++, status, text, entry);
+    }
+
+    /**
+     * Adds the elided entries summary, then the retained tail entries and the entries held back
+     * after them in logging order, to the test.
+     *
+     * @param test      The {@link ExtentTest} of the test
+     * @param testName  The test name, used for the spill file link
+     */
+    void finish(ExtentTest test, String testName) {
+        String summary = getElidedSummary();
+        if (summary != null) {
+            test.info(summary + getSpillLink(testName));
+        }
+
+        int next = 0;
+        for (int i = 0; i < ringSize; i++) {
+            int slot = (ringStart + i) % tail;
+            Entry entry = ring[slot];
+            for (; next < kept.size() && kept.get(next).sequence < entry.sequence; next++) {
+                kept.get(next).addTo(test);
+            }
+            entry.addTo(test);
+            ring[slot] = null;
+        }
+        for (; next < kept.size(); next++) {
+            kept.get(next).addTo(test);
+        }
+        ringSize = 0;
+        kept.clear();
+    }
+
+    private void elide(Status status, String message) {
+        elided[status.ordinal()]++;
+        if (!spill) {
+            return;
+        }
+
+        try {
+            if (spillWriter == null) {
+                openSpillFile();
+            }
+            spillWriter.write(status.toString());
+            spillWriter.write('\t');
+            spillWriter.write(message == null ? "" : message);
+            spillWriter.write('\n');
+        } catch (IOException e) {
+            log.error("Failed to write elided log entries, spilling stopped: " + e.getMessage());
+            closeSpillFile();
+            spillFile = null;
+        }
+    }
+
+    private void openSpillFile() throws IOException {
+        File folder = new File(System.getProperty("reportPath"), SPILL_FOLDER);
+        Files.createDirectories(folder.toPath());
+        spillFile = new File(folder, "elided_" + spillCounter.incrementAndGet() + ".log.gz");
+        spillWriter = new BufferedWriter(new OutputStreamWriter(
+                new GZIPOutputStream(Files.newOutputStream(spillFile.toPath())), StandardCharsets.UTF_8));
+    }
+
+    private void closeSpillFile() {
+        if (spillWriter == null) {
+            return;
+        }
+        try {
+            spillWriter.close();
+        } catch (IOException e) {
+            log.error("Failed to close elided log entries file: " + e.getMessage());
+        }
+        spillWriter = null;
+    }
+
+    private String getElidedSummary() {
+        StringBuilder sb = null;
+        for (Status status : Status.values()) {
+            long count = elided[status.ordinal()];
+            if (count == 0) {
+                continue;
+            }
+            sb = sb == null ? new StringBuilder() : sb.append(", ");
+            sb.append(String.format("%,d", count)).append(' ').append(status.toString().toUpperCase()).append(" entries");
+        }
+        return sb == null ? null : sb.append(" elided").toString();
+    }
+
+    private String getSpillLink(String testName) {
+        closeSpillFile();
+        if (spillFile == null) {
+            return "";
+        }
+        String relativePath = SPILL_FOLDER + "/" + spillFile.getName();
+        return ", see <a href='" + relativePath + "' target='_blank'>" + escape(testName) + " elided entries</a>";
+    }
+
+    private static String escape(String text) {
+        return text == null ? "" : text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("'", "&#39;");
+    }
+
+    /**
+     * A log entry held back until the test finishes, with the time it was logged.
+     */
+    private static final class Entry {
+        private final long sequence;
+        private final Status status;
+        private final String text;
+        private final Consumer<ExtentTest> entry;
+        private final long timestamp = System.currentTimeMillis();
+
+        Entry(long sequence, Status status, String text, Consumer<ExtentTest> entry) {
+            this.sequence = sequence;
+            this.status = status;
+            this.text = text;
+            this.entry = entry;
+        }
+
+        void addTo(ExtentTest test) {
+            entry.accept(test);
+            List<Log> logs = test.getModel().getLogContext().getAll();
+            if (!logs.isEmpty()) {
+                logs.get(logs.size() - 1).setTimestamp(new Date(timestamp));
+            }
+        }
+    }
+}
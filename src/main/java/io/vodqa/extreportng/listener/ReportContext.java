@@ -0,0 +1,167 @@
+package io.vodqa.extreportng.listener;
+
+import com.aventstack.extentreports.ExtentTest;
+import org.testng.ITestResult;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Per-thread report context of the test method being executed.
+ *
+ * It is bound in {@code beforeInvocation} and cleared in {@code afterInvocation},
+ * and holds direct references to the current test node and its named child nodes,
+ * so the logging helpers don't need to resolve them through {@link org.testng.Reporter}
+ * and the synchronized attribute map of the {@link org.testng.ITestResult} on every call.
+ *
+ * In the async mode the nodes are created and updated by the {@link ReportEventBus} builder thread,
+ * the context then holds the {@link ITestResult} they are stored on, and the sequence of the last update
+ * published by its thread, so reading the model only waits for the updates of this thread.
+ */
+final class ReportContext {
+
+    private static final ThreadLocal<ReportContext> current = ThreadLocal.withInitial(ReportContext::new);
+
+    private ExtentTest test;
+    private ReportEventBus bus;
+    private long sequence;
+    private ITestResult result;
+    private LogRetention logRetention;
+    private final Map<String, ExtentTest> nodes = new HashMap<>();
+    private final Set<Throwable> failures = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    private ReportContext() {
+    }
+
+    /**
+     * @return The report context of the current thread
+     */
+    static ReportContext current() {
+        return current.get();
+    }
+
+    /**
+     * Binds the context to a test method that is about to be executed.
+     *
+     * @param test          The {@link ExtentTest} of the test method
+     * @param logRetention  The {@link LogRetention} of the test method, or null to keep every log entry
+     */
+    void bind(ExtentTest test, LogRetention logRetention) {
+        this.test = test;
+        this.result = null;
+        this.logRetention = logRetention;
+        nodes.clear();
+        failures.clear();
+    }
+
+    /**
+     * Binds the context to a test method whose node is created by the report builder thread.
+     *
+     * @param bus           The {@link ReportEventBus} the node creation was published to
+     * @param sequence      The sequence of the node creation update
+     * @param result        The {@link ITestResult} the node is stored on
+     * @param logRetention  The {@link LogRetention} of the test method, or null to keep every log entry
+     */
+    void bind(ReportEventBus bus, long sequence, ITestResult result, LogRetention logRetention) {
+        bind(null, logRetention);
+        this.result = result;
+        published(bus, sequence);
+    }
+
+    /**
+     * Unbinds the context once the test method has finished.
+     * The last published sequence is kept for the configuration methods that run after it.
+     */
+    void clear() {
+        test = null;
+        result = null;
+        logRetention = null;
+        nodes.clear();
+        failures.clear();
+    }
+
+    /**
+     * @return The {@link ExtentTest} of the current test method, or null if no test method is bound
+     *         or its node is created by the report builder thread
+     */
+    ExtentTest getTest() {
+        return test;
+    }
+
+    /**
+     * @return The {@link ITestResult} of the current test method if its node is created by the report builder thread,
+     *         otherwise null
+     */
+    ITestResult getResult() {
+        return result;
+    }
+
+    /**
+     * Remembers an update published by this thread.
+     *
+     * @param bus       The {@link ReportEventBus} the update was published to
+     * @param sequence  The sequence of the update
+     */
+    void published(ReportEventBus bus, long sequence) {
+        this.bus = bus;
+        this.sequence = sequence;
+    }
+
+    /**
+     * Waits until the report builder thread has applied the updates published by this thread.
+     */
+    void awaitPublished() {
+        if (bus != null) {
+            bus.await(sequence);
+        }
+    }
+
+    /**
+     * @return true if a test method is bound, whether or not its node has been created yet
+     */
+    private boolean isBound() {
+        return test != null || result != null;
+    }
+
+    /**
+     * Remembers a failure reported for the current test method,
+     * so the same {@link Throwable} reported by a helper and again by TestNG is counted once.
+     *
+     * @param t The failure
+     * @return  true if the failure was not reported for the current test method yet,
+     *          always true if no test method is bound
+     */
+    boolean addFailure(Throwable t) {
+        return !isBound() || failures.add(t);
+    }
+
+    /**
+     * @return The {@link LogRetention} of the current test method, or null if every log entry is kept
+     */
+    LogRetention getLogRetention() {
+        return logRetention;
+    }
+
+    /**
+     * @param nodeName  The name of the node
+     * @return          The node created for the current test method with the given name, or null
+     */
+    ExtentTest getNode(String nodeName) {
+        return isBound() ? nodes.get(nodeName) : null;
+    }
+
+    /**
+     * Remembers a node created for the current test method.
+     *
+     * @param nodeName  The name of the node
+     * @param node      The {@link ExtentTest} node
+     */
+    void putNode(String nodeName, ExtentTest node) {
+        if (isBound()) {
+            nodes.put(nodeName, node);
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package io.vodqa.extreportng.listener;
+
+import io.vodqa.extreportng.metrics.Metric;
+import io.vodqa.extreportng.metrics.ReportMetrics;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.Closeable;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Hands report updates over from the TestNG threads to one report builder thread.
+ *
+ * The listener callbacks capture what they need from TestNG into an update and publish it here,
+ * the builder thread applies the updates to the Extent model in publishing order.
+ * A producer claims a slot of the bounded ring buffer with one compare-and-set of the bus state and stores the update;
+ * it only waits when the builder is a whole buffer behind.
+ * The state holds the number of claimed slots and the closed flag, so no update can be claimed once the bus is closed
+ * and the builder applies every update claimed before.
+ * Code reading the model calls {@link #await(long)} with the last sequence its thread published first,
+ * {@link #awaitAll()} is only for the end of the suite.
+ */
+final class ReportEventBus implements Closeable {
+
+    private static final Logger log = LogManager.getLogger(ReportEventBus.class.getName());
+
+    static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    private static final int SPIN_TRIES = 100;
+    private static final int YIELD_TRIES = 100;
+    private static final long MAX_PARK_NANOS = 1000000;
+    private static final long CLOSED = 1L << 62;
+
+    private final int mask;
+    private final Runnable[] entries;
+    private final AtomicLongArray published;
+    // number of claimed slots, plus CLOSED once the bus is closed
+    private final AtomicLong state = new AtomicLong();
+    private final AtomicLong applied = new AtomicLong(-1);
+    private volatile long gatingSequence = -1;
+    private final Thread builder;
+    // keeps the updates published after close from running at once
+    private final Lock lateUpdateLock = new ReentrantLock();
+
+    /**
+     * Creates the bus and starts the builder thread.
+     *
+     * @param capacity The number of buffered updates, rounded up to a power of two
+     */
+    ReportEventBus(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        mask = size - 1;
+        entries = new Runnable[size];
+        published = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            published.set(i, -1);
+        }
+
+        builder = new Thread(this::build, "report-builder");
+        builder.setDaemon(true);
+        builder.start();
+    }
+
+    /**
+     * Publishes an update, waiting for the builder if the buffer is full.
+     * Once the bus is closed the update is applied on the calling thread, after the builder has applied the rest
+     * and one at a time.
+     *
+     * @param update    The update of the report model
+     * @return          The sequence of the update, to be passed to {@link #await(long)}
+     */
+    long publish(Runnable update) {
+        long current;
+        do {
+            current = state.get();
+            if ((current & CLOSED) != 0) {
+                long last = (current & ~CLOSED) - 1;
+                await(last);
+                lateUpdateLock.lock();
+                try {
+                    update.run();
+                } finally {
+                    lateUpdateLock.unlock();
+                }
+                return last;
+            }
+        } while (!state.compareAndSet(current, current + 1));
+
+        long sequence = current;
+        long wrapPoint = sequence - entries.length;
+        if (wrapPoint > gatingSequence) {
+            long minimum;
+            int idle = 0;
+            while (wrapPoint > (minimum = applied.get())) {
+                checkBuilder();
+                idle = idle(idle);
+            }
+            gatingSequence = minimum;
+        }
+
+        int slot = (int) sequence & mask;
+        entries[slot] = update;
+        published.lazySet(slot, sequence);
+        return sequence;
+    }
+
+    /**
+     * Waits until the builder has applied the update with the given sequence and all updates before it.
+     *
+     * @param sequence The update sequence returned by {@link #publish(Runnable)}
+     */
+    void await(long sequence) {
+        if (Thread.currentThread() == builder) {
+            return;
+        }
+
+        int idle = 0;
+        while (applied.get() < sequence) {
+            checkBuilder();
+            idle = idle(idle);
+        }
+    }
+
+    /**
+     * Waits until the builder has applied every update published so far.
+     */
+    void awaitAll() {
+        await(lastClaimed());
+    }
+
+    private long lastClaimed() {
+        return (state.get() & ~CLOSED) - 1;
+    }
+
+    private void checkBuilder() {
+        if (!builder.isAlive() && applied.get() < lastClaimed()) {
+            throw new IllegalStateException("The report builder thread has stopped");
+        }
+    }
+
+    private void build() {
+        long next = 0;
+        int idle = 0;
+
+        while (true) {
+            int slot = (int) next & mask;
+            if (published.get(slot) == next) {
+                Runnable update = entries[slot];
+                entries[slot] = null;
+                long start = System.nanoTime();
+                try {
+                    update.run();
+                } catch (RuntimeException | Error e) {
+                    log.error("Failed to apply report update: " + e);
+                }
+                ReportMetrics.record(Metric.REPORT_BUILD, start);
+                applied.lazySet(next++);
+                idle = 0;
+            } else if ((state.get() & CLOSED) != 0 && next > lastClaimed()) {
+                break;
+            } else {
+                idle = idle(idle);
+            }
+        }
+    }
+
+    /**
+     * Waits for the next update: spins first, then yields, then parks for longer and longer.
+     */
+    private static int idle(int idle) {
+        if (idle >= SPIN_TRIES + YIELD_TRIES) {
+            LockSupport.parkNanos(Math.min(MAX_PARK_NANOS, 1000L << Math.min(10, idle - SPIN_TRIES - YIELD_TRIES)));
+        } else if (idle >= SPIN_TRIES) {
+            Thread.yield();
+        }
+        return idle + 1;
+    }
+
+    /**
+     * Lets the builder apply the updates claimed so far and waits for it.
+     * Should be called once the tests have finished, later updates are applied on the publishing thread.
+     */
+    @Override
+    public void close() {
+        long current = state.getAndUpdate(s -> s | CLOSED);
+        if ((current & CLOSED) != 0) {
+            return;
+        }
+        try {
+            builder.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error("Interrupted while waiting for the report builder");
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package io.vodqa.extreportng.listener;
+
+import com.aventstack.extentreports.ExtentTest;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.testng.Reporter;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Folds consecutive {@link Reporter} output lines of a test into collapsible log blocks,
+ * so that a test with thousands of lines produces a handful of report log entries instead of one per line.
+ *
+ * Lines above the per-test limit are not added to the report,
+ * they are written to a spill file under {@code reporter-logs/} and linked from the test.
+ */
+class ReporterOutputBatcher {
+
+    private static final Logger log = LogManager.getLogger(ReporterOutputBatcher.class.getName());
+
+    static final int DEFAULT_LINES_PER_ENTRY = 100;
+    static final int DEFAULT_MAX_LINES = 1000;
+
+    private static final String SPILL_FOLDER = "reporter-logs";
+
+    private final int linesPerEntry;
+    private final int maxLines;
+    private final AtomicInteger spillCounter;
+
+    /**
+     * @param linesPerEntry Max number of lines folded into one log entry
+     * @param maxLines      Max number of lines added to the report per test, the rest is spilled to a file
+     * @param spillCounter  Numbers the spill files, shared by the batchers of all suites writing to the same folder
+     */
+    ReporterOutputBatcher(int linesPerEntry, int maxLines, AtomicInteger spillCounter) {
+        this.linesPerEntry = Math.max(1, linesPerEntry);
+        this.maxLines = Math.max(0, maxLines);
+        this.spillCounter = spillCounter;
+    }
+
+    /**
+     * Adds the output lines to the test in batches.
+     *
+     * @param test      The {@link ExtentTest} the output belongs to
+     * @param logs      The {@link Reporter} output lines
+     * @param testName  The test name, used for the spill file name
+     */
+    void addTo(ExtentTest test, List<String> logs, String testName) {
+        int size = logs.size();
+        if (size == 0) {
+            return;
+        }
+        if (size == 1) {
+            test.info(logs.get(0));
+            return;
+        }
+
+        int inReport = Math.min(size, maxLines);
+        for (int from = 0; from < inReport; from += linesPerEntry) {
+            int to = Math.min(from + linesPerEntry, inReport);
+            test.info(toBlock(logs, from, to));
+        }
+
+        if (size > inReport) {
+            test.info(spill(logs.subList(inReport, size), testName));
+        }
+    }
+
+    private static String toBlock(List<String> logs, int from, int to) {
+        StringBuilder sb = new StringBuilder(64 + (to - from) * 80);
+        sb.append("<details><summary>Reporter output, lines ")
+                .append(from + 1).append('-').append(to)
+                .append("</summary>");
+        for (int i = from; i < to; i++) {
+            if (i > from) {
+                sb.append("<br/>");
+            }
+            sb.append(logs.get(i));
+        }
+        return sb.append("</details>").toString();
+    }
+
+    private String spill(List<String> lines, String testName) {
+        String fileName = testName.replaceAll("[^A-Za-z0-9_.-]", "_") + "_" + spillCounter.incrementAndGet() + ".log";
+        File spillFile = new File(new File(System.getProperty("reportPath"), SPILL_FOLDER), fileName);
+
+        try {
+            Files.createDirectories(spillFile.getParentFile().toPath());
+            Files.write(spillFile.toPath(), lines, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            log.error("Failed to write reporter output spill file: " + spillFile);
+            log.error(e.getMessage());
+            return lines.size() + " more reporter output lines truncated, spill file could not be written";
+        }
+
+        return lines.size() + " more reporter output lines truncated, see <a href='" + SPILL_FOLDER + "/" + fileName
+                + "' target='_blank'>" + fileName + "</a>";
+    }
+}
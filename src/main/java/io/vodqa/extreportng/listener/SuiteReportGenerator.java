@@ -0,0 +1,252 @@
+package io.vodqa.extreportng.listener;
+
+import com.aventstack.extentreports.AnalysisStrategy;
+import com.aventstack.extentreports.ExtentReports;
+import com.aventstack.extentreports.ExtentTest;
+import com.aventstack.extentreports.model.Test;
+import com.aventstack.extentreports.reporter.ExtentHtmlReporter;
+import com.aventstack.extentreports.reporter.configuration.Theme;
+import com.google.common.base.Strings;
+import io.vodqa.extreportng.output.HtmlReportOutput;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Renders one html report per suite in parallel and merges them with an index page.
+ *
+ * The shared {@link ExtentReports} instance of the listener renders the whole run on one thread.
+ * Here every suite is built in its own {@link ExtentReports} instance from the start, so the shared model
+ * does not hold the suite, and rendered to {@code suites/<n>-<suite>.html} as a task on a {@link ForkJoinPool}.
+ * The end-of-run report time is bound by the largest suite instead of the total test count.
+ * The index page only needs the per-suite status counts, so the merge step is cheap.
+ *
+ * Not thread safe, the listener calls it under its report lock.
+ */
+final class SuiteReportGenerator {
+
+    private static final Logger log = LogManager.getLogger(SuiteReportGenerator.class.getName());
+
+    static final String SUITES_FOLDER = "suites";
+    static final String INDEX_FILE = "index.html";
+
+    private final File reportFolder;
+    private final int parallelism;
+    private final List<SuiteReport> suites = new ArrayList<>();
+
+    /**
+     * @param reportFolder  The report output folder
+     * @param parallelism   Max number of suites rendered at the same time
+     */
+    SuiteReportGenerator(File reportFolder, int parallelism) {
+        this.reportFolder = reportFolder;
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * Creates the report of a suite.
+     *
+     * @param name          The suite name
+     * @param configFile    The report config xml of the suite, or null
+     * @return              The report of the suite, the test contexts and tests of the suite are added to its suite node
+     */
+    SuiteReport createSuite(String name, String configFile) {
+        File target = new File(new File(reportFolder, SUITES_FOLDER),
+                (suites.size() + 1) + "-" + name.replaceAll("[^A-Za-z0-9_.-]", "_") + ".html");
+
+        ExtentHtmlReporter htmlReporter = new ExtentHtmlReporter(target);
+        htmlReporter.config().setTheme(Theme.DARK);
+        if (!Strings.isNullOrEmpty(configFile)) {
+            htmlReporter.loadXMLConfig(configFile);
+        }
+
+        ExtentReports extent = new ExtentReports();
+        extent.setAnalysisStrategy(AnalysisStrategy.SUITE);
+        extent.config().statusConfigurator().setStatusHierarchy(HtmlReportOutput.STATUS_HIERARCHY);
+        extent.attachReporter(htmlReporter);
+
+        SuiteReport report = new SuiteReport(extent, extent.createTest(name), target);
+        suites.add(report);
+        return report;
+    }
+
+    /**
+     * Renders the suite reports and the index page.
+     *
+     * @param systemInfo    The system information shown in every suite report, or null
+     * @param runnerOutput  The test runner output, shown on the index page
+     * @return              The index page
+     * @throws IOException  If the suites folder or the index page can't be written
+     */
+    File generate(Map<String, String> systemInfo, Collection<String> runnerOutput) throws IOException {
+        Files.createDirectories(new File(reportFolder, SUITES_FOLDER).toPath());
+
+        ForkJoinPool pool = new ForkJoinPool(Math.min(parallelism, Math.max(1, suites.size())));
+        List<SuiteSummary> summaries = new ArrayList<>();
+        try {
+            List<ForkJoinTask<SuiteSummary>> tasks = new ArrayList<>();
+            for (SuiteReport suite : suites) {
+                tasks.add(pool.submit(() -> render(suite, systemInfo)));
+            }
+
+            for (ForkJoinTask<SuiteSummary> task : tasks) {
+                try {
+                    summaries.add(task.get());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while rendering suite reports", e);
+                } catch (ExecutionException e) {
+                    log.error("Failed to render suite report: " + e.getCause());
+                }
+            }
+        } finally {
+            pool.shutdown();
+            try {
+                pool.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        return writeIndex(summaries, runnerOutput);
+    }
+
+    private SuiteSummary render(SuiteReport report, Map<String, String> systemInfo) {
+        long start = System.nanoTime();
+
+        if (systemInfo != null) {
+            for (Map.Entry<String, String> entry : systemInfo.entrySet()) {
+                report.extent.setSystemInfo(entry.getKey(), entry.getValue());
+            }
+        }
+        report.extent.flush();
+
+        SuiteSummary summary = new SuiteSummary(report.suite.getModel(), report.file);
+        log.debug("Rendered suite report " + report.file + " in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+        return summary;
+    }
+
+    private File writeIndex(List<SuiteSummary> summaries, Collection<String> runnerOutput) throws IOException {
+        int pass = 0;
+        int fail = 0;
+        int skip = 0;
+        StringBuilder rows = new StringBuilder();
+        for (SuiteSummary summary : summaries) {
+            pass += summary.pass;
+            fail += summary.fail;
+            skip += summary.skip;
+            rows.append("<tr><td><a href='").append(SUITES_FOLDER).append('/').append(escape(summary.file.getName())).append("'>")
+                    .append(escape(summary.name)).append("</a></td>")
+                    .append("<td class='").append(summary.status.toString().toLowerCase()).append("'>").append(summary.status).append("</td>")
+                    .append("<td>").append(summary.pass).append("</td>")
+                    .append("<td>").append(summary.fail).append("</td>")
+                    .append("<td>").append(summary.skip).append("</td>")
+                    .append("<td>").append(String.format("%.1f s", summary.durationMillis / 1000d)).append("</td></tr>\n");
+        }
+
+        StringBuilder html = new StringBuilder(1024 + rows.length());
+        html.append("<!DOCTYPE html>\n<html>\n<head>\n<meta charset='utf-8'>\n<title>Test Report</title>\n<style>\n")
+                .append("body { font: 14px Arial, sans-serif; margin: 24px; }\n")
+                .append("table { border-collapse: collapse; }\n")
+                .append("th, td { padding: 6px 12px; border-bottom: 1px solid #ddd; text-align: left; }\n")
+                .append(".pass { color: #2e7d32; } .fail, .fatal, .error { color: #c62828; } .skip, .warning { color: #ef6c00; }\n")
+                .append("</style>\n</head>\n<body>\n<h1>Test Report</h1>\n")
+                .append("<p>").append(summaries.size()).append(" suites, ").append(pass).append(" passed, ")
+                .append(fail).append(" failed, ").append(skip).append(" skipped</p>\n")
+                .append("<table>\n<tr><th>Suite</th><th>Status</th><th>Passed</th><th>Failed</th><th>Skipped</th><th>Duration</th></tr>\n")
+                .append(rows)
+                .append("</table>\n");
+        if (runnerOutput != null && !runnerOutput.isEmpty()) {
+            html.append("<h2>Test runner output</h2>\n<pre>");
+            for (String line : runnerOutput) {
+                html.append(escape(line)).append('\n');
+            }
+            html.append("</pre>\n");
+        }
+        html.append("</body>\n</html>\n");
+
+        File index = new File(reportFolder, INDEX_FILE);
+        Files.write(index.toPath(), html.toString().getBytes(StandardCharsets.UTF_8));
+        log.info("Merged " + summaries.size() + " suite reports into: " + index);
+        return index;
+    }
+
+    private static String escape(String text) {
+        return text == null ? "" : text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("'", "&#39;");
+    }
+
+    /**
+     * The report instance of one suite.
+     */
+    static final class SuiteReport {
+        private final ExtentReports extent;
+        private final ExtentTest suite;
+        private final File file;
+
+        SuiteReport(ExtentReports extent, ExtentTest suite, File file) {
+            this.extent = extent;
+            this.suite = suite;
+            this.file = file;
+        }
+
+        ExtentReports getExtent() {
+            return extent;
+        }
+
+        ExtentTest getSuite() {
+            return suite;
+        }
+    }
+
+    /**
+     * Status counts of the test methods of one suite, the suite's grandchildren nodes.
+     */
+    private static final class SuiteSummary {
+        private final String name;
+        private final File file;
+        private final Status status;
+        private final long durationMillis;
+        private int pass;
+        private int fail;
+        private int skip;
+
+        SuiteSummary(Test suite, File file) {
+            this.name = suite.getName();
+            this.file = file;
+            this.status = suite.getStatus();
+            this.durationMillis = suite.getEndTime().getTime() - suite.getStartTime().getTime();
+
+            for (Test context : suite.getNodeContext().getAll()) {
+                for (Test test : context.getNodeContext().getAll()) {
+                    switch (test.getStatus()) {
+                        case PASS:
+                            pass++;
+                            break;
+                        case SKIP:
+                            skip++;
+                            break;
+                        case FATAL:
+                        case FAIL:
+                        case ERROR:
+                            fail++;
+                            break;
+                        default:
+                            break;
+                    }
+                }
+            }
+        }
+    }
+}
@@ -4,11 +4,26 @@ import com.aventstack.extentreports.*;
 import com.aventstack.extentreports.markuputils.ExtentColor;
 import com.aventstack.extentreports.markuputils.Markup;
 import com.aventstack.extentreports.markuputils.MarkupHelper;
-import com.aventstack.extentreports.reporter.ExtentHtmlReporter;
-import com.aventstack.extentreports.reporter.configuration.Theme;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
+import com.google.common.base.Throwables;
 import io.vodqa.extreportng.extras.SeleUtil;
+import io.vodqa.extreportng.failures.FailureCluster;
+import io.vodqa.extreportng.failures.FailureClusterIndex;
+import io.vodqa.extreportng.history.HistoryReport;
+import io.vodqa.extreportng.history.HistoryStore;
+import io.vodqa.extreportng.history.TestHistory;
+import io.vodqa.extreportng.journal.ResultJournal;
+import io.vodqa.extreportng.live.LiveReportServer;
+import io.vodqa.extreportng.output.HtmlReportOutput;
+import io.vodqa.extreportng.output.ReportEvent;
+import io.vodqa.extreportng.output.ReportOutputs;
+import io.vodqa.extreportng.metrics.Metric;
+import io.vodqa.extreportng.metrics.MetricsSink;
+import io.vodqa.extreportng.metrics.ReportMetrics;
+import io.vodqa.extreportng.paged.PagedReportWriter;
+import io.vodqa.extreportng.shard.ResultRecord;
+import io.vodqa.extreportng.shard.ShardWriter;
 import io.vodqa.extreportng.utils.GetSystemInfo;
 import io.vodqa.extreportng.utils.SystemInfo;
 import io.vodqa.extreportng.utils.TestNodeName;
@@ -20,8 +35,19 @@ import org.testng.xml.XmlSuite;
 
 import java.io.File;
 import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Paths;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 /**
  * Created by SergioLeone on 11/05/2017.
@@ -40,24 +66,38 @@ public class TNGReportListener extends SeleUtil implements ISuiteListener, ITest
     private static final String REPORTER_ATTRIBUTE = "extentTestNgReporter";
     private static final String SUITE_ATTRIBUTE = "extentTestNgSuite";
     private ExtentReports extent;
-    private List<String> testRunnerOutput;
+    private final ReentrantLock reportLock = new ReentrantLock();
+    private Queue<String> testRunnerOutput;
     private Map<String, String> systemInfo;
-    private ExtentHtmlReporter htmlReporter;
-    private static TNGReportListener instance;
+    private static volatile TNGReportListener instance;
+    private final Map<ISuite, ReporterOutputBatcher> reporterOutputBatchers = new ConcurrentHashMap<>();
+    private final AtomicInteger reporterSpillCounter = new AtomicInteger();
+    private final Set<String> metricsSinks = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean metricsReset = new AtomicBoolean();
+    private volatile ShardWriter shardWriter;
+    private volatile ResultJournal journal;
+    private volatile LiveReportServer liveServer;
+    private volatile ReportOutputs outputs;
+    private volatile ReportEventBus eventBus;
+    private volatile PagedReportWriter pagedReport;
+    private volatile SuiteReportGenerator suiteReportGenerator;
+    private final FailureClusterIndex failureClusters = new FailureClusterIndex();
+    private volatile HistoryStore history;
+    private final long runStartMillis = System.currentTimeMillis();
     private final String reportFolderName = getCurrentDateAndTime();
 
     public TNGReportListener() {
 //        super(getDriver());
         setReportInstance(this);
-        testRunnerOutput = new ArrayList<>();
-        System.setProperty("reportPath", System.getProperty("user.dir") + "\\test-output\\" + reportFolderName);
+        testRunnerOutput = new ConcurrentLinkedQueue<>();
+        System.setProperty("reportPath", Paths.get(System.getProperty("user.dir"), "test-output", reportFolderName).toString());
         String reportPathStr = System.getProperty("reportPath");
         File reportPath;
 
         try {
             reportPath = new File(reportPathStr);
         } catch (NullPointerException e) {
-            reportPath = new File(TestNG.DEFAULT_OUTPUTDIR + reportFolderName);
+            reportPath = new File(TestNG.DEFAULT_OUTPUTDIR, reportFolderName);
         }
 
         if (!reportPath.exists()) {
@@ -66,28 +106,11 @@ public class TNGReportListener extends SeleUtil implements ISuiteListener, ITest
             }
         }
 
-        File reportFile = new File(reportPath, "test-report.html");
-
-        htmlReporter = new ExtentHtmlReporter(reportFile);
+        // the model behind the helper methods, HtmlReportOutput renders it into the html report
         extent = new ExtentReports();
 
-        List statusHierarchy = Arrays.asList(
-                Status.FATAL,
-                Status.FAIL,
-                Status.ERROR,
-                Status.WARNING,
-                Status.SKIP,
-                Status.PASS,
-                Status.DEBUG,
-                Status.INFO
-        );
-
         extent.setAnalysisStrategy(AnalysisStrategy.SUITE);
-        extent.config().statusConfigurator().setStatusHierarchy(statusHierarchy);
-
-        extent.attachReporter(htmlReporter);
-
-        htmlReporter.config().setTheme(Theme.DARK);
+        extent.config().statusConfigurator().setStatusHierarchy(HtmlReportOutput.STATUS_HIERARCHY);
     }
 
     /**
@@ -130,20 +153,402 @@ public class TNGReportListener extends SeleUtil implements ISuiteListener, ITest
      * @param iSuite TestNG {@link ISuite} object
      */
     public void onStart(ISuite iSuite) {
-        ExtentTest suite = extent.createTest(iSuite.getName());
-
+        if (metricsReset.compareAndSet(false, true)) {
+            // the metrics are static, the first suite of this listener starts them from scratch
+            ReportMetrics.reset();
+        }
+        long start = System.nanoTime();
         String configFile = iSuite.getParameter("report.config");
-
-        if (!Strings.isNullOrEmpty(configFile)) {
-            htmlReporter.loadXMLConfig(configFile);
+        ExtentReports suiteExtent = extent;
+        ExtentTest suite;
+        reportLock.lock();
+        try {
+            if (isReportOutput(iSuite, "suites")) {
+                // the suite is built in its own report only, the shared model never holds it
+                if (suiteReportGenerator == null) {
+                    suiteReportGenerator = new SuiteReportGenerator(new File(System.getProperty("reportPath")),
+                            getIntParameter(iSuite, "report.threads", Runtime.getRuntime().availableProcessors()));
+                }
+                SuiteReportGenerator.SuiteReport suiteReport = suiteReportGenerator.createSuite(iSuite.getName(), configFile);
+                suiteExtent = suiteReport.getExtent();
+                suite = suiteReport.getSuite();
+            } else {
+                suite = extent.createTest(iSuite.getName());
+            }
+        } finally {
+            reportLock.unlock();
         }
 
         if (!Strings.isNullOrEmpty(iSuite.getParameter("sysinfo.props"))) {
             generateSystemInfo(iSuite);
         }
 
-        iSuite.setAttribute(REPORTER_ATTRIBUTE, extent);
+        if (Boolean.parseBoolean(iSuite.getParameter("report.log.batch"))) {
+            reporterOutputBatchers.put(iSuite, new ReporterOutputBatcher(
+                    getIntParameter(iSuite, "report.log.batch.lines", ReporterOutputBatcher.DEFAULT_LINES_PER_ENTRY),
+                    getIntParameter(iSuite, "report.log.batch.max", ReporterOutputBatcher.DEFAULT_MAX_LINES),
+                    reporterSpillCounter));
+        }
+
+        if (Boolean.parseBoolean(iSuite.getParameter("report.shard"))) {
+            openShardWriter();
+        }
+
+        if (Boolean.parseBoolean(iSuite.getParameter("report.history"))) {
+            openHistory(getIntParameter(iSuite, "report.history.keep", 200));
+        }
+
+        if (isReportOutput(iSuite, "paged")) {
+            openPagedReport(getIntParameter(iSuite, "report.paged.chunk", PagedReportWriter.DEFAULT_CHUNK_SIZE));
+        }
+
+        if (Boolean.parseBoolean(iSuite.getParameter("report.journal"))) {
+            openJournal(getIntParameter(iSuite, "report.journal.fsync.millis", 1000));
+        }
+
+        String outputNames = iSuite.getParameter("report.outputs");
+        if (Strings.isNullOrEmpty(outputNames) && isSinglePageOutput(iSuite)) {
+            outputNames = HtmlReportOutput.NAME;
+        }
+        if (!Strings.isNullOrEmpty(outputNames)) {
+            openOutputs(iSuite, outputNames, getIntParameter(iSuite, "report.outputs.buffer", ReportOutputs.DEFAULT_BUFFER_SIZE));
+        }
+
+        if (!Strings.isNullOrEmpty(iSuite.getParameter("report.live.port"))) {
+            openLiveServer(iSuite.getParameter("report.live.host"), getIntParameter(iSuite, "report.live.port", 0),
+                    getIntParameter(iSuite, "report.live.buffer", LiveReportServer.DEFAULT_BUFFER_SIZE),
+                    getIntParameter(iSuite, "report.live.clients", LiveReportServer.DEFAULT_MAX_CLIENTS));
+        }
+        appendEvent(ResultJournal.SUITE_START, suite, null, null, iSuite.getName());
+
+        if (Boolean.parseBoolean(iSuite.getParameter("report.async"))) {
+            openEventBus(getIntParameter(iSuite, "report.async.buffer", ReportEventBus.DEFAULT_BUFFER_SIZE));
+        }
+
+        if (!Strings.isNullOrEmpty(iSuite.getParameter("metrics.sink"))) {
+            registerMetricsSinks(iSuite.getParameter("metrics.sink"));
+        }
+
+        iSuite.setAttribute(REPORTER_ATTRIBUTE, suiteExtent);
         iSuite.setAttribute(SUITE_ATTRIBUTE, suite);
+        ReportMetrics.record(Metric.LISTENER_OVERHEAD, start);
+    }
+
+    /**
+     * Opens the result shard of this JVM, if it is not open yet.
+     * Shards of several runs are merged with {@link io.vodqa.extreportng.shard.ShardMerger}
+     */
+    private void openShardWriter() {
+        reportLock.lock();
+        try {
+            if (shardWriter != null) {
+                return;
+            }
+
+            try {
+                shardWriter = new ShardWriter(new File(System.getProperty("reportPath")));
+            } catch (IOException e) {
+                throw new IllegalStateException("Failed to create result shard", e);
+            }
+        } finally {
+            reportLock.unlock();
+        }
+    }
+
+    /**
+     * Checks the suite-level parameter {@code report.output} of a suite.
+     *
+     * @param iSuite    TestNG {@link ISuite} object
+     * @param output    The report output, {@code paged} or {@code suites}
+     * @return          true if the suite is reported to the given output
+     */
+    private static boolean isReportOutput(ISuite iSuite, String output) {
+        return output.equalsIgnoreCase(iSuite.getParameter("report.output"));
+    }
+
+    /**
+     * @param iSuite    TestNG {@link ISuite} object
+     * @return          true if the suite is reported to the single page html report
+     */
+    private static boolean isSinglePageOutput(ISuite iSuite) {
+        return !isReportOutput(iSuite, "paged") && !isReportOutput(iSuite, "suites");
+    }
+
+    /**
+     * Opens the paged report of the run, if it is not open yet.
+     * The paged report is shared by the suites with {@code report.output} set to {@code paged},
+     * their tests are not part of the single page html report.
+     *
+     * @param chunkSize Max number of tests per data file
+     */
+    private void openPagedReport(int chunkSize) {
+        reportLock.lock();
+        try {
+            if (pagedReport != null) {
+                return;
+            }
+
+            try {
+                pagedReport = new PagedReportWriter(new File(System.getProperty("reportPath"), "paged"), chunkSize);
+            } catch (IOException e) {
+                throw new IllegalStateException("Failed to create paged report", e);
+            }
+        } finally {
+            reportLock.unlock();
+        }
+    }
+
+    /**
+     * Opens the history store shared by all runs, if it is not open yet.
+     * It lives next to the run folders, in {@code test-output/history}.
+     *
+     * @param keepRuns The number of raw run files kept in the store
+     */
+    private void openHistory(int keepRuns) {
+        reportLock.lock();
+        try {
+            if (history != null) {
+                return;
+            }
+
+            try {
+                history = HistoryStore.open(HistoryStore.defaultFolder(), keepRuns);
+            } catch (IOException e) {
+                throw new IllegalStateException("Failed to open test history", e);
+            }
+        } finally {
+            reportLock.unlock();
+        }
+    }
+
+    /**
+     * Opens the write-ahead journal of the run, if it is not open yet.
+     * After a crash the report is rebuilt from it with {@link io.vodqa.extreportng.journal.JournalRecovery}
+     *
+     * @param fsyncMillis Interval between forcing the journal to disk, in milliseconds
+     */
+    private void openJournal(long fsyncMillis) {
+        reportLock.lock();
+        try {
+            if (journal != null) {
+                return;
+            }
+
+            try {
+                journal = new ResultJournal(new File(System.getProperty("reportPath")), Math.max(1, fsyncMillis));
+            } catch (IOException e) {
+                throw new IllegalStateException("Failed to create report journal", e);
+            }
+        } finally {
+            reportLock.unlock();
+        }
+    }
+
+    /**
+     * Starts the live report server of the run, if it is not running yet.
+     * Browsers pointed at it follow the run while it is in progress.
+     *
+     * @param host          The address to listen on, loopback when null or empty
+     * @param port          The port to listen on, 0 picks a free port
+     * @param bufferSize    The number of events kept for replay and queued per viewer
+     * @param maxClients    The max number of concurrent viewers
+     */
+    private void openLiveServer(String host, int port, int bufferSize, int maxClients) {
+        reportLock.lock();
+        try {
+            if (liveServer != null) {
+                return;
+            }
+
+            InetSocketAddress address = Strings.isNullOrEmpty(host)
+                    ? new InetSocketAddress(InetAddress.getLoopbackAddress(), port) : new InetSocketAddress(host, port);
+            try {
+                liveServer = new LiveReportServer(address, new File(System.getProperty("reportPath")), bufferSize, maxClients);
+            } catch (IOException e) {
+                throw new IllegalStateException("Failed to start live report server", e);
+            }
+        } finally {
+            reportLock.unlock();
+        }
+    }
+
+    /**
+     * Starts the report builder thread of the async mode, if it is not running yet.
+     *
+     * The test method callbacks then only publish their updates to the {@link ReportEventBus}
+     * and the report model is built on the builder thread.
+     *
+     * @param bufferSize The number of updates buffered between the test threads and the builder
+     */
+    private void openEventBus(int bufferSize) {
+        reportLock.lock();
+        try {
+            if (eventBus == null) {
+                eventBus = new ReportEventBus(bufferSize);
+            }
+        } finally {
+            reportLock.unlock();
+        }
+    }
+
+    /**
+     * Starts the report outputs of the run, if they are not running yet.
+     *
+     * Outputs should be included in testng.xml as a comma separated list of output names or class names
+     * in the suite-level parameter with name="report.outputs", without it the html report is written
+     * by {@link HtmlReportOutput}, which renders the model of this listener.
+     *
+     * The outputs are opened once per run, by the first suite that enables them,
+     * and take their settings ({@code report.config}, {@code report.html.theme}) from that suite.
+     *
+     * @param iSuite        TestNG {@link ISuite} object
+     * @param outputNames   Comma separated output names or class names
+     * @param bufferSize    The number of events buffered between the test threads and the outputs
+     */
+    private void openOutputs(ISuite iSuite, String outputNames, int bufferSize) {
+        reportLock.lock();
+        try {
+            if (outputs != null) {
+                return;
+            }
+            outputs = ReportOutputs.open(outputNames, new File(System.getProperty("reportPath")), iSuite, bufferSize,
+                    new HtmlReportOutput(extent, reportLock));
+        } finally {
+            reportLock.unlock();
+        }
+    }
+
+    /**
+     * Appends an event to the journal and publishes it to the live report and the report outputs, if they are enabled.
+     *
+     * @param type      The journal event type
+     * @param node      The {@link ExtentTest} the event belongs to
+     * @param parent    The parent {@link ExtentTest}, or null
+     * @param status    The event {@link Status}, or null
+     * @param text      The event text, or null
+     */
+    private void appendEvent(byte type, ExtentTest node, ExtentTest parent, Status status, CharSequence text) {
+        appendEvent(type, node, parent, status, text, null);
+    }
+
+    /**
+     * Appends an event to the journal and publishes it to the live report and the report outputs, if they are enabled.
+     *
+     * @param type      The journal event type
+     * @param node      The {@link ExtentTest} the event belongs to
+     * @param parent    The parent {@link ExtentTest}, or null
+     * @param status    The event {@link Status}, or null
+     * @param text      The event text, or null
+     * @param record    The test outcome of a test finish event, or null
+     */
+    private void appendEvent(byte type, ExtentTest node, ExtentTest parent, Status status, CharSequence text, ResultRecord record) {
+        ResultJournal j = journal;
+        LiveReportServer live = liveServer;
+        ReportOutputs o = outputs;
+        if (j == null && live == null && o == null) {
+            return;
+        }
+
+        int id = node.getModel().getID();
+        int parentId = parent == null ? 0 : parent.getModel().getID();
+        if (j != null) {
+            j.append(type, id, parentId, status, text);
+        }
+        if (live != null) {
+            live.publish(type, id, parentId, status, text);
+        }
+        if (o != null) {
+            o.publish(new ReportEvent(ReportEvent.Type.fromJournalType(type), id, parentId, status,
+                    text == null ? null : text.toString(), record));
+        }
+    }
+
+    /**
+     * Journals a log added by one of the helper methods, followed by the media attached to it.
+     *
+     * @param test      The {@link ExtentTest} the log was added to
+     * @param status    The log {@link Status}
+     * @param text      The log text, or null
+     * @param provider  The attached media, or null
+     */
+    private void appendLog(ExtentTest test, Status status, CharSequence text, MediaEntityModelProvider provider) {
+        appendEvent(ResultJournal.LOG, test, null, status, text);
+        if (provider != null && provider.getMedia() != null && provider.getMedia().getPath() != null) {
+            appendEvent(ResultJournal.MEDIA, test, null, null, provider.getMedia().getPath());
+        }
+    }
+
+    /**
+     * Adds a log entry to the test node through the {@link LogRetention} of the test, if it has one.
+     *
+     * @param logRetention  The {@link LogRetention} of the test, or null
+     * @param test          The {@link ExtentTest} node
+     * @param status        The log status
+     * @param text          The text of the entry, written to the spill file if the entry is elided
+     * @param entry         Adds the entry to the node
+     */
+    private static void retain(LogRetention logRetention, ExtentTest test, Status status, String text, Consumer<ExtentTest> entry) {
+        if (logRetention != null) {
+            logRetention.log(test, status, text, entry);
+        } else {
+            entry.accept(test);
+        }
+    }
+
+    private static String getStackTrace(Throwable t) {
+        return t == null ? null : Throwables.getStackTraceAsString(t);
+    }
+
+    /**
+     * Registers the custom metrics sinks.
+     *
+     * Sinks should be included in testng.xml as a comma separated list of class names
+     * in the suite-level parameter with name="metrics.sink"
+     *
+     * @param sinkClassNames                Comma separated class names
+     *
+     * @throws IllegalArgumentException     If a specified class does not implement {@link MetricsSink}
+     * @throws IllegalStateException        If a specified class is not found or can't be instantiated
+     */
+    private void registerMetricsSinks(String sinkClassNames) {
+        for (String className : sinkClassNames.split(",")) {
+            className = className.trim();
+            if (className.isEmpty() || !metricsSinks.add(className)) {
+                continue;
+            }
+
+            try {
+                Class<?> sinkClass = Class.forName(className);
+                if (!MetricsSink.class.isAssignableFrom(sinkClass)) {
+                    throw new IllegalArgumentException(className + " does not implement " + MetricsSink.class.getName());
+                }
+                ReportMetrics.addSink((MetricsSink) sinkClass.newInstance());
+            } catch (ClassNotFoundException | InstantiationException | IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    /**
+     * Gets an integer suite-level parameter
+     *
+     * @param iSuite        TestNG {@link ISuite} object
+     * @param name          The parameter name
+     * @param defaultValue  The value returned when the parameter is not set or not a number
+     * @return              The parameter value
+     */
+    private static int getIntParameter(ISuite iSuite, String name, int defaultValue) {
+        String value = iSuite.getParameter(name);
+        if (Strings.isNullOrEmpty(value)) {
+            return defaultValue;
+        }
+
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            log.error("Suite parameter " + name + " is not a number: " + value);
+            return defaultValue;
+        }
     }
 
     /**
@@ -170,9 +575,16 @@ public class TNGReportListener extends SeleUtil implements ISuiteListener, ITest
     /**
      * This method will be automatically called on finish of every TestNG Suite
      *
+     * In the async mode it waits until the report builder thread has applied every update published so far,
+     * so the model of the finished suite is complete.
+     *
      * @param iSuite TestNG {@link ISuite} object
      */
     public void onFinish(ISuite iSuite) {
+        ReportEventBus bus = eventBus;
+        if (bus != null) {
+            bus.awaitAll();
+        }
     }
 
     /**
@@ -237,13 +649,55 @@ public class TNGReportListener extends SeleUtil implements ISuiteListener, ITest
     }
 
     public void onStart(ITestContext iTestContext) {
+        long start = System.nanoTime();
         ISuite iSuite = iTestContext.getSuite();
         ExtentTest suite = (ExtentTest) iSuite.getAttribute(SUITE_ATTRIBUTE);
-        ExtentTest testContext = suite.createNode(iTestContext.getName());
+        ExtentTest testContext;
+        reportLock.lock();
+        try {
+            testContext = suite.createNode(iTestContext.getName());
+        } finally {
+            reportLock.unlock();
+        }
         iTestContext.setAttribute("testContext", testContext);
+        appendEvent(ResultJournal.CONTEXT_START, testContext, suite, null, iTestContext.getName());
+        ReportMetrics.record(Metric.LISTENER_OVERHEAD, start);
     }
 
+    /**
+     * This method will be automatically called on finish of every TestNG Test Context.
+     *
+     * When the suite-level parameter {@code report.streaming} is set to {@code true},
+     * the html report is flushed to disk by {@link HtmlReportOutput} as soon as the test context finishes
+     * and the listener drops its references to the finished test nodes.
+     * Extent rewrites the whole report on every flush, so the total flush time grows with the square
+     * of the number of test contexts; runs with many contexts should use the paged output instead.
+     *
+     * When the suite-level parameter {@code report.output} is set to {@code paged},
+     * the tests of the finished context are written to the paged report data files instead.
+     * When it is set to {@code suites} nothing is flushed, the suite reports are rendered at the end of the run.
+     *
+     * In the async mode the context is finished on the report builder thread, after the updates of its tests.
+     *
+     * @param iTestContext TestNG {@link ITestContext} object
+     */
     public void onFinish(ITestContext iTestContext) {
+        long start = System.nanoTime();
+        ReportEventBus bus = eventBus;
+        if (bus != null) {
+            ReportContext.current().published(bus, bus.publish(() -> finishContext(iTestContext)));
+        } else {
+            finishContext(iTestContext);
+        }
+        ReportMetrics.record(Metric.LISTENER_OVERHEAD, start);
+    }
+
+    /**
+     * Adds the outcome of a finished test context to its node and hands its tests over to the paged report.
+     *
+     * @param iTestContext TestNG {@link ITestContext} object
+     */
+    private void finishContext(ITestContext iTestContext) {
         ExtentTest testContext = (ExtentTest) iTestContext.getAttribute("testContext");
         if (iTestContext.getFailedTests().size() > 0) {
             testContext.fail("Failed");
@@ -252,22 +706,108 @@ public class TNGReportListener extends SeleUtil implements ISuiteListener, ITest
         } else {
             testContext.pass("Passed");
         }
+        appendEvent(ResultJournal.CONTEXT_FINISH, testContext, null, testContext.getStatus(), null);
+
+        if (pagedReport != null && isReportOutput(iTestContext.getSuite(), "paged")) {
+            pagedReport.finishContext(iTestContext.getSuite().getName(), iTestContext.getName());
+            // the tests are in the data files now, the model only keeps the context node
+            reportLock.lock();
+            try {
+                testContext.getModel().getNodeContext().getAll().clear();
+            } finally {
+                reportLock.unlock();
+            }
+        }
+
+        if (Boolean.parseBoolean(iTestContext.getSuite().getParameter("report.streaming"))) {
+            if (outputs != null && isSinglePageOutput(iTestContext.getSuite())) {
+                outputs.publish(new ReportEvent(ReportEvent.Type.FLUSH, testContext.getModel().getID(), 0, null, null, null));
+            }
+            releaseTestContext(iTestContext);
+        }
+    }
+
+    /**
+     * Releases the node references held on the finished test context and its results.
+     *
+     * @param iTestContext TestNG {@link ITestContext} object
+     */
+    private void releaseTestContext(ITestContext iTestContext) {
+        log.debug("Releasing report nodes of finished test context: " + iTestContext.getName());
+        iTestContext.removeAttribute("testContext");
+        releaseTestNodes(iTestContext.getPassedTests());
+        releaseTestNodes(iTestContext.getFailedTests());
+        releaseTestNodes(iTestContext.getSkippedTests());
+        releaseTestNodes(iTestContext.getFailedButWithinSuccessPercentageTests());
+    }
+
+    private static void releaseTestNodes(IResultMap resultMap) {
+        for (ITestResult iTestResult : resultMap.getAllResults()) {
+            // the test node and the named nodes added with addNewNode
+            for (String name : new ArrayList<>(iTestResult.getAttributeNames())) {
+                if (iTestResult.getAttribute(name) instanceof ExtentTest) {
+                    iTestResult.removeAttribute(name);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param iSuite    TestNG {@link ISuite} object of the test
+     * @return          The {@link LogRetention} for a test of the suite, or null if the suite keeps all log entries
+     */
+    private static LogRetention createLogRetention(ISuite iSuite) {
+        int head = getIntParameter(iSuite, "report.log.retain.head", 0);
+        int tail = getIntParameter(iSuite, "report.log.retain.tail", 0);
+        if (head <= 0 && tail <= 0) {
+            return null;
+        }
+        return new LogRetention(head, tail, Boolean.parseBoolean(iSuite.getParameter("report.log.retain.spill")));
     }
 
     /**
      * Will be automatically called before invocation of every TestNG Test Method
      * and makes use of {@link ExtentReports} to add test method name and description to report.
      *
+     * In the async mode (suite-level parameter {@code report.async} set to {@code true})
+     * the test node is created on the report builder thread, see {@link ReportEventBus}.
+     *
      * @param iInvokedMethod    TestNG {@link IInvokedMethod} object
      * @param iTestResult       TestNG {@link ITestResult} object
      */
     public void beforeInvocation(IInvokedMethod iInvokedMethod, ITestResult iTestResult) {
         if (iInvokedMethod.isTestMethod()) {
-            ITestContext iTestContext = iTestResult.getTestContext();
-            ExtentTest testContext = (ExtentTest) iTestContext.getAttribute("testContext");
-            ExtentTest test = testContext.createNode(iTestResult.getName(), iTestResult.getMethod().getDescription());
-            iTestResult.setAttribute("test", test);
+            long start = System.nanoTime();
+            LogRetention logRetention = createLogRetention(iTestResult.getTestContext().getSuite());
+            ReportEventBus bus = eventBus;
+            if (bus != null) {
+                ReportContext.current().bind(bus, bus.publish(() -> startTest(iTestResult)), iTestResult, logRetention);
+            } else {
+                ReportContext.current().bind(startTest(iTestResult), logRetention);
+            }
+            ReportMetrics.record(Metric.LISTENER_OVERHEAD, start);
+        }
+    }
+
+    /**
+     * Creates the node of a test method that is about to be executed.
+     *
+     * @param iTestResult   TestNG {@link ITestResult} object
+     * @return              The {@link ExtentTest} of the test method
+     */
+    private ExtentTest startTest(ITestResult iTestResult) {
+        ITestContext iTestContext = iTestResult.getTestContext();
+        ExtentTest testContext = (ExtentTest) iTestContext.getAttribute("testContext");
+        ExtentTest test;
+        reportLock.lock();
+        try {
+            test = testContext.createNode(iTestResult.getName(), iTestResult.getMethod().getDescription());
+        } finally {
+            reportLock.unlock();
         }
+        iTestResult.setAttribute("test", test);
+        appendEvent(ResultJournal.TEST_START, test, testContext, null, iTestResult.getName());
+        return test;
     }
 
     /**
@@ -275,30 +815,119 @@ public class TNGReportListener extends SeleUtil implements ISuiteListener, ITest
      * and makes use of {@link ExtentReports} to mark completed test as passed, failed, or skipped,
      * and add the result to report.
      *
+     * {@link Reporter} output is added line by line, or in collapsible blocks
+     * when the suite-level parameter {@code report.log.batch} is set to {@code true}.
+     *
+     * Log entries retained by the {@code report.log.retain.*} policy are added before the {@link Reporter} output.
+     *
+     * In the async mode the result is added on the report builder thread, see {@link ReportEventBus}.
+     *
      * @param iInvokedMethod    TestNG {@link IInvokedMethod} object
      * @param iTestResult       TestNG {@link ITestResult} object
      */
     public void afterInvocation(IInvokedMethod iInvokedMethod, ITestResult iTestResult) {
         if (iInvokedMethod.isTestMethod()) {
-            ExtentTest test = (ExtentTest) iTestResult.getAttribute("test");
-            List<String> logs = Reporter.getOutput(iTestResult);
+            long start = System.nanoTime();
+            ReportMetrics.recordNanos(Metric.TEST_METHOD,
+                    TimeUnit.MILLISECONDS.toNanos(iTestResult.getEndMillis() - iTestResult.getStartMillis()));
+
+            ReportContext context = ReportContext.current();
+            LogRetention logRetention = context.getLogRetention();
+            int status = iTestResult.getStatus();
+            Throwable throwable = iTestResult.getThrowable();
+            // failures already reported by a helper are tracked per thread, so they are checked here
+            boolean newFailure = ITestResult.FAILURE == status && throwable != null && context.addFailure(throwable);
+
+            ReportEventBus bus = eventBus;
+            if (bus != null) {
+                context.published(bus, bus.publish(() -> finishTest(iInvokedMethod, iTestResult, status, throwable, newFailure, logRetention)));
+            } else {
+                finishTest(iInvokedMethod, iTestResult, status, throwable, newFailure, logRetention);
+            }
+            context.clear();
+            ReportMetrics.record(Metric.LISTENER_OVERHEAD, start);
+        }
+    }
+
+    /**
+     * Adds the outcome and output of a finished test method to its node and to the enabled result stores.
+     *
+     * @param iInvokedMethod    TestNG {@link IInvokedMethod} object
+     * @param iTestResult       TestNG {@link ITestResult} object
+     * @param status            The TestNG status of the result
+     * @param throwable         The failure of the result, or null
+     * @param newFailure        true if the failure was not reported for the test method yet
+     * @param logRetention      The {@link LogRetention} of the test method, or null
+     */
+    private void finishTest(IInvokedMethod iInvokedMethod, ITestResult iTestResult, int status, Throwable throwable,
+                            boolean newFailure, LogRetention logRetention) {
+        ExtentTest test = (ExtentTest) iTestResult.getAttribute("test");
+        if (logRetention != null) {
+            logRetention.finish(test, iTestResult.getName());
+        }
+
+        List<String> logs = Reporter.getOutput(iTestResult);
+        ReporterOutputBatcher reporterOutputBatcher = reporterOutputBatchers.get(iTestResult.getTestContext().getSuite());
+        if (reporterOutputBatcher != null) {
+            reporterOutputBatcher.addTo(test, logs, iTestResult.getName());
+        } else {
             for (String log : logs) {
                 test.info(log);
             }
+        }
 
-            int status = iTestResult.getStatus();
-            if (ITestResult.SUCCESS == status) {
-                test.pass("Passed");
-            } else if (ITestResult.FAILURE == status) {
-                test.fail(iTestResult.getThrowable());
-            } else {
-                test.skip("Skipped");
+        ResultRecord record = shardWriter != null || pagedReport != null || history != null || outputs != null
+                ? ResultRecord.from(iTestResult, logs) : null;
+        if (shardWriter != null) {
+            shardWriter.append(record);
+        }
+
+        if (journal != null || liveServer != null || outputs != null) {
+            for (String log : logs) {
+                appendEvent(ResultJournal.LOG, test, null, Status.INFO, log);
+            }
+        }
+
+        if (ITestResult.SUCCESS == status) {
+            test.pass("Passed");
+            appendEvent(ResultJournal.TEST_FINISH, test, null, Status.PASS, null, record);
+        } else if (ITestResult.FAILURE == status) {
+            test.fail(throwable);
+            if (newFailure) {
+                recordFailureCluster(test, throwable, iTestResult.getTestContext().getSuite());
             }
+            appendEvent(ResultJournal.TEST_FINISH, test, null, Status.FAIL, throwable == null
+                    ? null : Throwables.getStackTraceAsString(throwable), record);
+        } else {
+            test.skip("Skipped");
+            appendEvent(ResultJournal.TEST_FINISH, test, null, Status.SKIP, null, record);
+        }
 
-            for (String group : iInvokedMethod.getTestMethod().getGroups()) {
-                test.assignCategory(group);
+        boolean paged = pagedReport != null && isReportOutput(iTestResult.getTestContext().getSuite(), "paged");
+        String[] groups = iInvokedMethod.getTestMethod().getGroups();
+        // the paged report takes the groups from the record
+        if (groups.length > 0 && !paged) {
+            reportLock.lock();
+            try {
+                test.assignCategory(groups);
+            } finally {
+                reportLock.unlock();
             }
         }
+
+        if (history != null) {
+            TestHistory testHistory = history.get(HistoryStore.key(record));
+            if (testHistory != null) {
+                String trend = HistoryReport.describe(testHistory);
+                test.info(trend);
+                appendEvent(ResultJournal.LOG, test, null, Status.INFO, trend);
+            }
+            history.record(record);
+        }
+
+        if (paged) {
+            pagedReport.add(record, test);
+        }
     }
 
     /**
@@ -311,13 +940,140 @@ public class TNGReportListener extends SeleUtil implements ISuiteListener, ITest
     }
 
     public void generateReport(List<XmlSuite> list, List<ISuite> list1, String s) {
-        if (getSystemInfoMap() != null) {
-            for (Map.Entry<String, String> entry : getSystemInfoMap().entrySet()) {
-                extent.setSystemInfo(entry.getKey(), entry.getValue());
+        if (eventBus != null) {
+            eventBus.close();
+        }
+        awaitScreenshots();
+        if (isScreenshotDedupEnabled()) {
+            log.info("Screenshots stored: " + getStoredScreenshotCount() + ", dedup hits: " + getScreenshotDedupHits());
+        }
+        publishFailureClusters();
+        commitHistory();
+        long flushStart = System.nanoTime();
+        if (pagedReport != null) {
+            try {
+                pagedReport.close();
+            } catch (IOException e) {
+                log.error("Failed to write paged report: " + e.getMessage());
+            }
+        }
+
+        if (suiteReportGenerator != null) {
+            generateSuiteReports();
+        }
+        if (outputs != null) {
+            outputs.close(getSystemInfoMap() == null ? Collections.<String, String>emptyMap() : getSystemInfoMap(),
+                    new ArrayList<>(testRunnerOutput));
+        }
+        ReportMetrics.record(Metric.REPORT_FLUSH, flushStart);
+        ReportMetrics.publish(System.getProperty("reportPath"));
+
+        if (shardWriter != null) {
+            try {
+                shardWriter.close();
+            } catch (IOException e) {
+                log.error("Failed to close result shard: " + e.getMessage());
             }
         }
-        extent.setTestRunnerOutput(testRunnerOutput);
-        extent.flush();
+
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                log.error("Failed to close report journal: " + e.getMessage());
+            }
+        }
+
+        if (liveServer != null) {
+            liveServer.close();
+        }
+    }
+
+    /**
+     * Checks a failure reported by a helper on the test thread, where the failures of the test are tracked.
+     *
+     * @param t The failure, may be null
+     * @return  true if the failure is to be added to the failure cluster index
+     */
+    private static boolean isNewFailure(Throwable t) {
+        return t != null && ReportContext.current().addFailure(t);
+    }
+
+    private static boolean isNewFailure(Status status, Throwable t) {
+        return (status == Status.FAIL || status == Status.FATAL || status == Status.ERROR) && isNewFailure(t);
+    }
+
+    /**
+     * Adds a failure that was not reported for the test yet to the failure cluster index
+     * and links the cluster from the test.
+     *
+     * The link is relative to the report the test is rendered into: the single page report is next to the cluster page,
+     * the paged report and the suite reports are one folder below it.
+     *
+     * @param test      The {@link ExtentTest} the failure was reported to
+     * @param t         The failure
+     * @param iSuite    TestNG {@link ISuite} object of the test, or null if it is not known
+     */
+    private void recordFailureCluster(ExtentTest test, Throwable t, ISuite iSuite) {
+        FailureCluster cluster = failureClusters.record(t, test.getModel().getName());
+        String root = iSuite != null && !isSinglePageOutput(iSuite) ? "../" : "";
+        String link = "Failure cluster <a href='" + root + FailureClusterIndex.HTML_FILE + "#cluster-" + cluster.getId()
+                + "' target='_blank'>#" + cluster.getId() + "</a>";
+        test.info(link);
+        appendEvent(ResultJournal.LOG, test, null, Status.INFO, link);
+    }
+
+    /**
+     * Records the outcomes of this run in the history store and writes the trend and flakiness report.
+     */
+    private void commitHistory() {
+        if (history == null || history.getRecordedCount() == 0) {
+            return;
+        }
+
+        try {
+            history.commit(HistoryStore.runId(runStartMillis), runStartMillis);
+            HistoryReport.write(history, System.getProperty("reportPath"));
+        } catch (IOException e) {
+            log.error("Failed to update test history: " + e.getMessage());
+            return;
+        }
+        testRunnerOutput.add("Test history: <a href='" + HistoryReport.HTML_FILE + "' target='_blank'>trends and flaky tests</a>");
+    }
+
+    /**
+     * Writes the failure clusters next to the report and links them from the test runner output.
+     */
+    private void publishFailureClusters() {
+        if (failureClusters.isEmpty()) {
+            return;
+        }
+
+        try {
+            failureClusters.publish(System.getProperty("reportPath"));
+        } catch (IOException e) {
+            log.error("Failed to write failure clusters: " + e.getMessage());
+            return;
+        }
+        List<FailureCluster> clusters = failureClusters.getClusters();
+        log.info("Failures grouped into " + clusters.size() + " clusters, see " + FailureClusterIndex.HTML_FILE);
+        testRunnerOutput.add("Failure clusters: <a href='" + FailureClusterIndex.HTML_FILE + "' target='_blank'>"
+                + clusters.size() + " distinct failures</a>");
+    }
+
+    /**
+     * Renders one report per suite in parallel and merges them with an index page,
+     * see {@link SuiteReportGenerator}.
+     */
+    private void generateSuiteReports() {
+        reportLock.lock();
+        try {
+            suiteReportGenerator.generate(getSystemInfoMap(), new ArrayList<>(testRunnerOutput));
+        } catch (IOException e) {
+            log.error("Failed to generate suite reports: " + e.getMessage());
+        } finally {
+            reportLock.unlock();
+        }
     }
 
     /**
@@ -363,11 +1119,33 @@ public class TNGReportListener extends SeleUtil implements ISuiteListener, ITest
      * @param nodeName  The name of the node to be added
      */
     private void addNewNode(String parent, String nodeName) {
-        ITestResult result = Reporter.getCurrentTestResult();
-        Preconditions.checkState(result != null);
-        ExtentTest parentNode = (ExtentTest) result.getAttribute(parent);
-        ExtentTest childNode = parentNode.createNode(nodeName);
-        result.setAttribute(nodeName, childNode);
+        ReportContext context = ReportContext.current();
+        ITestResult result = getCurrentResult(context);
+        Supplier<ExtentTest> parentNode;
+        if ("test".equals(parent)) {
+            parentNode = currentTest();
+        } else if (SUITE_ATTRIBUTE.equals(parent)) {
+            ExtentTest suite = (ExtentTest) result.getTestContext().getSuite().getAttribute(SUITE_ATTRIBUTE);
+            parentNode = () -> suite;
+        } else {
+            parentNode = resultNode(result, parent);
+        }
+        // in the async mode the node is created on the builder thread and looked up on the result
+        boolean cached = eventBus == null;
+        updateNode(parentNode, node -> {
+            ExtentTest childNode;
+            reportLock.lock();
+            try {
+                childNode = node.createNode(nodeName);
+            } finally {
+                reportLock.unlock();
+            }
+            if (cached) {
+                context.putNode(nodeName, childNode);
+            }
+            appendEvent(ResultJournal.NODE_START, childNode, node, null, nodeName);
+            result.setAttribute(nodeName, childNode);
+        });
     }
 
     /**
@@ -384,8 +1162,7 @@ public class TNGReportListener extends SeleUtil implements ISuiteListener, ITest
      * @throws IOException
      */
     public void addScreenCapture(ITestResult iTestResult, String sScreenshotName) throws IOException {
-        ExtentTest test = (ExtentTest) iTestResult.getAttribute("test");
-        test.addScreenCaptureFromPath(captureScreenshot(getDriver(), sScreenshotName));
+        addScreenCaptureToTest(resultNode(iTestResult, "test"), captureScreenshot(getDriver(), sScreenshotName));
     }
 
     /**
@@ -405,8 +1182,7 @@ public class TNGReportListener extends SeleUtil implements ISuiteListener, ITest
      * @throws IOException
      */
     public void addScreenCapture(ITestResult iTestResult, String sScreenshotName, WebElement element, boolean highlight) throws Exception {
-        ExtentTest test = (ExtentTest) iTestResult.getAttribute("test");
-        test.addScreenCaptureFromPath(captureScreenshot(getDriver(), sScreenshotName, element, highlight));
+        addScreenCaptureToTest(resultNode(iTestResult, "test"), captureScreenshot(getDriver(), sScreenshotName, element, highlight));
     }
 
     /**
@@ -422,10 +1198,8 @@ public class TNGReportListener extends SeleUtil implements ISuiteListener, ITest
      * @throws IOException
      */
     private void addScreenCapture(ITestResult iTestResult) throws IOException {
-        ExtentTest test = (ExtentTest) iTestResult.getAttribute("test");
-        test.addScreenCaptureFromPath
-                (captureScreenshot(getDriver(),
-                        getMethodName(iTestResult) + "_" + getExtentTestStatus(iTestResult)));
+        addScreenCaptureToTest(resultNode(iTestResult, "test"), captureScreenshot(getDriver(),
+                getMethodName(iTestResult) + "_" + getExtentTestStatus(iTestResult)));
     }
 
     /**
@@ -446,11 +1220,8 @@ public class TNGReportListener extends SeleUtil implements ISuiteListener, ITest
      * @throws IOException
      */
     public void addScreenCapture(ITestResult iTestResult, WebElement element, boolean highlight) throws Exception {
-        ExtentTest test = (ExtentTest) iTestResult.getAttribute("test");
-        test.addScreenCaptureFromPath
-                (captureScreenshot(getDriver(),
-                        getMethodName(iTestResult) + "_" + getExtentTestStatus(iTestResult),
-                        element, highlight));
+        addScreenCaptureToTest(resultNode(iTestResult, "test"), captureScreenshot(getDriver(),
+                getMethodName(iTestResult) + "_" + getExtentTestStatus(iTestResult), element, highlight));
     }
 
     /**
@@ -461,10 +1232,7 @@ public class TNGReportListener extends SeleUtil implements ISuiteListener, ITest
      * @throws IOException
      */
     public void addScreenCapture(String sScreenshotName) throws IOException {
-        ITestResult iTestResult = Reporter.getCurrentTestResult();
-        Preconditions.checkState(iTestResult != null);
-        ExtentTest test = (ExtentTest) iTestResult.getAttribute("test");
-        test.addScreenCaptureFromPath(captureScreenshot(getDriver(), sScreenshotName));
+        addScreenCaptureToTest(currentTest(), captureScreenshot(getDriver(), sScreenshotName));
     }
 
     /**
@@ -480,10 +1248,65 @@ public class TNGReportListener extends SeleUtil implements ISuiteListener, ITest
      * @throws IOException
      */
     public void addScreenCapture(String sScreenshotName, WebElement element, boolean highlight) throws Exception {
-        ITestResult iTestResult = Reporter.getCurrentTestResult();
-        Preconditions.checkState(iTestResult != null);
-        ExtentTest test = (ExtentTest) iTestResult.getAttribute("test");
-        test.addScreenCaptureFromPath(captureScreenshot(getDriver(), sScreenshotName, element, highlight));
+        addScreenCaptureToTest(currentTest(), captureScreenshot(getDriver(), sScreenshotName, element, highlight));
+    }
+
+    /**
+     * Adds a screenshot of one element to the report.
+     * This method should only be used in the configuration method
+     * (i.e. in methods annotated with {@link org.testng.annotations.AfterMethod})
+     * and the {@link ITestResult} is the mandatory parameter
+     *
+     * The element is scrolled into view port and only its bounding rect is kept,
+     * plus the padding set with the {@code screenshot.element.padding} system property
+     *
+     * @param iTestResult           The {@link ITestResult} object
+     * @param sScreenshotName       The image file name
+     * @param element               {@link WebElement} to be captured
+     * @throws Exception
+     */
+    public void addElementScreenCapture(ITestResult iTestResult, String sScreenshotName, WebElement element) throws Exception {
+        addScreenCaptureToTest(resultNode(iTestResult, "test"), captureElementScreenshot(getDriver(), sScreenshotName, element));
+    }
+
+    /**
+     * Adds a screenshot of one element to the report.
+     * This method should only be used in the {@link org.testng.annotations.Test} annotated method
+     *
+     * The element is scrolled into view port and only its bounding rect is kept,
+     * plus the padding set with the {@code screenshot.element.padding} system property
+     *
+     * @param sScreenshotName   The image file name
+     * @param element           {@link WebElement} to be captured
+     * @throws Exception
+     */
+    public void addElementScreenCapture(String sScreenshotName, WebElement element) throws Exception {
+        addScreenCaptureToTest(currentTest(), captureElementScreenshot(getDriver(), sScreenshotName, element));
+    }
+
+    /**
+     * Attaches a captured screenshot to the test.
+     * When a thumbnail was generated for the screenshot, the thumbnail is shown inline
+     * and links to the full size image, so the full image is only loaded when clicked.
+     *
+     * @param test                  Looks up the {@link ExtentTest} to attach the screenshot to, see {@link #updateNode}
+     * @param sScreenshotFilePath   The captured screenshot path
+     */
+    private void addScreenCaptureToTest(Supplier<ExtentTest> test, String sScreenshotFilePath) {
+        String sThumbnailPath = getScreenshotThumbnail(sScreenshotFilePath);
+        updateNode(test, node -> {
+            appendEvent(ResultJournal.MEDIA, node, null, null, sScreenshotFilePath);
+            if (sThumbnailPath != null) {
+                node.info("<a href='" + sScreenshotFilePath + "' target='_blank'>"
+                        + "<img class='r-img' src='" + sThumbnailPath + "'/></a>");
+                return;
+            }
+            try {
+                node.addScreenCaptureFromPath(sScreenshotFilePath);
+            } catch (IOException e) {
+                log.error("Failed to attach screenshot: " + sScreenshotFilePath);
+            }
+        });
     }
 
     /**
@@ -515,6 +1338,19 @@ public class TNGReportListener extends SeleUtil implements ISuiteListener, ITest
                 (captureScreenshot(getDriver(), sScreenshotName, element, highlight)).build();
     }
 
+    /**
+     * Media model provider method for attaching a screenshot of one element to logs with a given name.
+     *
+     * @param sScreenshotName   Custom screenshot name
+     * @param element           {@link WebElement} to be captured
+     * @return                  {@link MediaEntityModelProvider} object
+     * @throws                  Exception
+     */
+    public MediaEntityModelProvider addElementMediaProvider(String sScreenshotName, WebElement element) throws Exception {
+        return MediaEntityBuilder.createScreenCaptureFromPath
+                (captureElementScreenshot(getDriver(), sScreenshotName, element)).build();
+    }
+
     /**
      * Adds info log message to the node.
      *
@@ -533,10 +1369,10 @@ public class TNGReportListener extends SeleUtil implements ISuiteListener, ITest
      * @param nodeName      The name of the node
      */
     public void addInfoLogToNode(String logMessage, String nodeName) {
-        ITestResult result = Reporter.getCurrentTestResult();
-        Preconditions.checkState(result != null);
-        ExtentTest test = (ExtentTest) result.getAttribute(nodeName);
-        test.info(logMessage);
+        updateNode(namedNode(nodeName), test -> {
+            test.info(logMessage);
+            appendEvent(ResultJournal.LOG, test, null, Status.INFO, logMessage);
+        });
     }
 
     /**
@@ -559,10 +1395,10 @@ public class TNGReportListener extends SeleUtil implements ISuiteListener, ITest
      * @param provider      {@link MediaEntityModelProvider} object for attaching media file to node
      */
     public void addInfoLogToNode(String logMessage, String nodeName, MediaEntityModelProvider provider) {
-        ITestResult result = Reporter.getCurrentTestResult();
-        Preconditions.checkState(result != null);
-        ExtentTest test = (ExtentTest) result.getAttribute(nodeName);
-        test.info(logMessage, provider);
+        updateNode(namedNode(nodeName), test -> {
+            test.info(logMessage, provider);
+            appendLog(test, Status.INFO, logMessage, provider);
+        });
     }
 
     /**
@@ -583,10 +1419,10 @@ public class TNGReportListener extends SeleUtil implements ISuiteListener, ITest
      * @param m        The {@link Markup} object
      */
     public void failTheNode(String nodeName, Markup m) {
-        ITestResult result = Reporter.getCurrentTestResult();
-        Preconditions.checkState(result != null);
-        ExtentTest test = (ExtentTest) result.getAttribute(nodeName);
-        test.fail(m);
+        updateNode(namedNode(nodeName), test -> {
+            test.fail(m);
+            appendLog(test, Status.FAIL, m.getMarkup(), null);
+        });
     }
 
     /**
@@ -607,10 +1443,15 @@ public class TNGReportListener extends SeleUtil implements ISuiteListener, ITest
      * @param t        The {@link Throwable} object
      */
     public void failTheNode(String nodeName, Throwable t) {
-        ITestResult result = Reporter.getCurrentTestResult();
-        Preconditions.checkState(result != null);
-        ExtentTest test = (ExtentTest) result.getAttribute(nodeName);
-        test.fail(t);
+        boolean newFailure = isNewFailure(t);
+        ISuite iSuite = newFailure ? currentSuite() : null;
+        updateNode(namedNode(nodeName), test -> {
+            test.fail(t);
+            appendLog(test, Status.FAIL, getStackTrace(t), null);
+            if (newFailure) {
+                recordFailureCluster(test, t, iSuite);
+            }
+        });
     }
 
     /**
@@ -635,10 +1476,15 @@ public class TNGReportListener extends SeleUtil implements ISuiteListener, ITest
      * @param provider      {@link MediaEntityModelProvider} object for attaching media file to node
      */
     public void failTheNode(String nodeName, Throwable t, MediaEntityModelProvider provider) {
-        ITestResult result = Reporter.getCurrentTestResult();
-        Preconditions.checkState(result != null);
-        ExtentTest test = (ExtentTest) result.getAttribute(nodeName);
-        test.fail(t, provider);
+        boolean newFailure = isNewFailure(t);
+        ISuite iSuite = newFailure ? currentSuite() : null;
+        updateNode(namedNode(nodeName), test -> {
+            test.fail(t, provider);
+            appendLog(test, Status.FAIL, getStackTrace(t), provider);
+            if (newFailure) {
+                recordFailureCluster(test, t, iSuite);
+            }
+        });
     }
 
     /**
@@ -657,10 +1503,10 @@ public class TNGReportListener extends SeleUtil implements ISuiteListener, ITest
      * @param logMessage The message to be logged
      */
     public void failTheNode(String nodeName, String logMessage) {
-        ITestResult result = Reporter.getCurrentTestResult();
-        Preconditions.checkState(result != null);
-        ExtentTest test = (ExtentTest) result.getAttribute(nodeName);
-        test.fail(logMessage);
+        updateNode(namedNode(nodeName), test -> {
+            test.fail(logMessage);
+            appendEvent(ResultJournal.LOG, test, null, Status.FAIL, logMessage);
+        });
     }
 
     /**
@@ -685,10 +1531,10 @@ public class TNGReportListener extends SeleUtil implements ISuiteListener, ITest
      * @param provider      {@link MediaEntityModelProvider} object for attaching media file to node
      */
     public void failTheNode(String nodeName, MediaEntityModelProvider provider, String logMessage) {
-        ITestResult result = Reporter.getCurrentTestResult();
-        Preconditions.checkState(result != null);
-        ExtentTest test = (ExtentTest) result.getAttribute(nodeName);
-        test.fail(logMessage, provider);
+        updateNode(namedNode(nodeName), test -> {
+            test.fail(logMessage, provider);
+            appendLog(test, Status.FAIL, logMessage, provider);
+        });
     }
 
     /**
@@ -709,10 +1555,10 @@ public class TNGReportListener extends SeleUtil implements ISuiteListener, ITest
      * @param m        The {@link Markup} object
      */
     public void passTheNode(String nodeName, Markup m) {
-        ITestResult result = Reporter.getCurrentTestResult();
-        Preconditions.checkState(result != null);
-        ExtentTest test = (ExtentTest) result.getAttribute(nodeName);
-        test.pass(m);
+        updateNode(namedNode(nodeName), test -> {
+            test.pass(m);
+            appendLog(test, Status.PASS, m.getMarkup(), null);
+        });
     }
 
     /**
@@ -733,10 +1579,10 @@ public class TNGReportListener extends SeleUtil implements ISuiteListener, ITest
      * @param t        The {@link Throwable} object
      */
     public void passTheNode(String nodeName, Throwable t) {
-        ITestResult result = Reporter.getCurrentTestResult();
-        Preconditions.checkState(result != null);
-        ExtentTest test = (ExtentTest) result.getAttribute(nodeName);
-        test.pass(t);
+        updateNode(namedNode(nodeName), test -> {
+            test.pass(t);
+            appendLog(test, Status.PASS, getStackTrace(t), null);
+        });
     }
 
     /**
@@ -761,10 +1607,10 @@ public class TNGReportListener extends SeleUtil implements ISuiteListener, ITest
      * @param provider      {@link MediaEntityModelProvider} object for attaching media file to node
      */
     public void passTheNode(String nodeName, Throwable t, MediaEntityModelProvider provider) {
-        ITestResult result = Reporter.getCurrentTestResult();
-        Preconditions.checkState(result != null);
-        ExtentTest test = (ExtentTest) result.getAttribute(nodeName);
-        test.pass(t, provider);
+        updateNode(namedNode(nodeName), test -> {
+            test.pass(t, provider);
+            appendLog(test, Status.PASS, getStackTrace(t), provider);
+        });
     }
 
     /**
@@ -783,10 +1629,10 @@ public class TNGReportListener extends SeleUtil implements ISuiteListener, ITest
      * @param logMessage The message to be logged
      */
     public void passTheNode(String nodeName, String logMessage) {
-        ITestResult result = Reporter.getCurrentTestResult();
-        Preconditions.checkState(result != null);
-        ExtentTest test = (ExtentTest) result.getAttribute(nodeName);
-        test.pass(logMessage);
+        updateNode(namedNode(nodeName), test -> {
+            test.pass(logMessage);
+            appendEvent(ResultJournal.LOG, test, null, Status.PASS, logMessage);
+        });
     }
 
     /**
@@ -811,10 +1657,10 @@ public class TNGReportListener extends SeleUtil implements ISuiteListener, ITest
      * @param provider      {@link MediaEntityModelProvider} object for attaching media file to node
      */
     public void passTheNode(String nodeName, MediaEntityModelProvider provider, String logMessage) {
-        ITestResult result = Reporter.getCurrentTestResult();
-        Preconditions.checkState(result != null);
-        ExtentTest test = (ExtentTest) result.getAttribute(nodeName);
-        test.pass(logMessage, provider);
+        updateNode(namedNode(nodeName), test -> {
+            test.pass(logMessage, provider);
+            appendLog(test, Status.PASS, logMessage, provider);
+        });
     }
 
     /**
@@ -828,8 +1674,11 @@ public class TNGReportListener extends SeleUtil implements ISuiteListener, ITest
      * @param provider      {@link MediaEntityModelProvider} object for attaching media file to node
      */
     public void failTheTest(String details, MediaEntityModelProvider provider) {
-        ExtentTest test = getExtentTest();
-        test.fail(details, provider);
+        LogRetention logRetention = ReportContext.current().getLogRetention();
+        updateNode(currentTest(), test -> {
+            retain(logRetention, test, Status.FAIL, details, node -> node.fail(details, provider));
+            appendLog(test, Status.FAIL, details, provider);
+        });
     }
 
     /**
@@ -840,8 +1689,11 @@ public class TNGReportListener extends SeleUtil implements ISuiteListener, ITest
      * @param details String message to log into report
      */
     public void failTheTest(String details) {
-        ExtentTest test = getExtentTest();
-        test.fail(details);
+        LogRetention logRetention = ReportContext.current().getLogRetention();
+        updateNode(currentTest(), test -> {
+            retain(logRetention, test, Status.FAIL, details, node -> node.fail(details));
+            appendEvent(ResultJournal.LOG, test, null, Status.FAIL, details);
+        });
     }
 
     /**
@@ -855,8 +1707,17 @@ public class TNGReportListener extends SeleUtil implements ISuiteListener, ITest
      * @param provider      {@link MediaEntityModelProvider} object for attaching media file to node
      */
     public void failTheTest(Throwable t, MediaEntityModelProvider provider) {
-        ExtentTest test = getExtentTest();
-        test.fail(t, provider);
+        boolean newFailure = isNewFailure(t);
+        ISuite iSuite = newFailure ? currentSuite() : null;
+        LogRetention logRetention = ReportContext.current().getLogRetention();
+        updateNode(currentTest(), test -> {
+            String stackTrace = getStackTrace(t);
+            retain(logRetention, test, Status.FAIL, stackTrace, node -> node.fail(t, provider));
+            appendLog(test, Status.FAIL, stackTrace, provider);
+            if (newFailure) {
+                recordFailureCluster(test, t, iSuite);
+            }
+        });
     }
 
     /**
@@ -868,8 +1729,17 @@ public class TNGReportListener extends SeleUtil implements ISuiteListener, ITest
      * @param t The         {@link Throwable} object
      */
     public void failTheTest(Throwable t) {
-        ExtentTest test = getExtentTest();
-        test.fail(t);
+        boolean newFailure = isNewFailure(t);
+        ISuite iSuite = newFailure ? currentSuite() : null;
+        LogRetention logRetention = ReportContext.current().getLogRetention();
+        updateNode(currentTest(), test -> {
+            String stackTrace = getStackTrace(t);
+            retain(logRetention, test, Status.FAIL, stackTrace, node -> node.fail(t));
+            appendLog(test, Status.FAIL, stackTrace, null);
+            if (newFailure) {
+                recordFailureCluster(test, t, iSuite);
+            }
+        });
     }
 
     /**
@@ -881,8 +1751,11 @@ public class TNGReportListener extends SeleUtil implements ISuiteListener, ITest
      * @param markup Markup object
      */
     public void failTheTest(Markup markup) {
-        ExtentTest test = getExtentTest();
-        test.fail(markup);
+        LogRetention logRetention = ReportContext.current().getLogRetention();
+        updateNode(currentTest(), test -> {
+            retain(logRetention, test, Status.FAIL, markup.getMarkup(), node -> node.fail(markup));
+            appendLog(test, Status.FAIL, markup.getMarkup(), null);
+        });
     }
 
     /**
@@ -896,8 +1769,11 @@ public class TNGReportListener extends SeleUtil implements ISuiteListener, ITest
      * @param provider      {@link MediaEntityModelProvider} object for attaching media file to node
      */
     public void passTheTest(String details, MediaEntityModelProvider provider) {
-        ExtentTest test = getExtentTest();
-        test.pass(details, provider);
+        LogRetention logRetention = ReportContext.current().getLogRetention();
+        updateNode(currentTest(), test -> {
+            retain(logRetention, test, Status.PASS, details, node -> node.pass(details, provider));
+            appendLog(test, Status.PASS, details, provider);
+        });
     }
 
     /**
@@ -908,8 +1784,11 @@ public class TNGReportListener extends SeleUtil implements ISuiteListener, ITest
      * @param details String message to log into report
      */
     public void passTheTest(String details) {
-        ExtentTest test = getExtentTest();
-        test.pass(details);
+        LogRetention logRetention = ReportContext.current().getLogRetention();
+        updateNode(currentTest(), test -> {
+            retain(logRetention, test, Status.PASS, details, node -> node.pass(details));
+            appendEvent(ResultJournal.LOG, test, null, Status.PASS, details);
+        });
     }
 
     /**
@@ -923,8 +1802,12 @@ public class TNGReportListener extends SeleUtil implements ISuiteListener, ITest
      * @param provider      {@link MediaEntityModelProvider} object for attaching media file to node
      */
     public void passTheTest(Throwable t, MediaEntityModelProvider provider) {
-        ExtentTest test = getExtentTest();
-        test.pass(t, provider);
+        LogRetention logRetention = ReportContext.current().getLogRetention();
+        updateNode(currentTest(), test -> {
+            String stackTrace = getStackTrace(t);
+            retain(logRetention, test, Status.PASS, stackTrace, node -> node.pass(t, provider));
+            appendLog(test, Status.PASS, stackTrace, provider);
+        });
     }
 
     /**
@@ -936,8 +1819,12 @@ public class TNGReportListener extends SeleUtil implements ISuiteListener, ITest
      * @param t The         {@link Throwable} object
      */
     public void passTheTest(Throwable t) {
-        ExtentTest test = getExtentTest();
-        test.pass(t);
+        LogRetention logRetention = ReportContext.current().getLogRetention();
+        updateNode(currentTest(), test -> {
+            String stackTrace = getStackTrace(t);
+            retain(logRetention, test, Status.PASS, stackTrace, node -> node.pass(t));
+            appendLog(test, Status.PASS, stackTrace, null);
+        });
     }
 
     /**
@@ -949,8 +1836,11 @@ public class TNGReportListener extends SeleUtil implements ISuiteListener, ITest
      * @param markup Markup object
      */
     public void passTheTest(Markup markup) {
-        ExtentTest test = getExtentTest();
-        test.pass(markup);
+        LogRetention logRetention = ReportContext.current().getLogRetention();
+        updateNode(currentTest(), test -> {
+            retain(logRetention, test, Status.PASS, markup.getMarkup(), node -> node.pass(markup));
+            appendLog(test, Status.PASS, markup.getMarkup(), null);
+        });
     }
 
     private static String getCurrentDateAndTime() {
@@ -966,11 +1856,20 @@ public class TNGReportListener extends SeleUtil implements ISuiteListener, ITest
      * Adds a log to the test node. This method should be used only in the
      * {@link org.testng.annotations.Test} annotated method
      *
+     * When the suite-level parameters {@code report.log.retain.head} and/or {@code report.log.retain.tail} are set,
+     * only the first and last entries below {@link Status#WARNING} are kept, the rest is summarized
+     * and written to a gzip file if {@code report.log.retain.spill} is {@code true}.
+     * The other {@code addLogToTest}, {@code failTheTest} and {@code passTheTest} methods are retained the same way.
+     *
      * @param status        The log status
      * @param sLogMessage   The log message
      */
     public void addLogToTest(Status status, String sLogMessage) {
-        getExtentTest().log(status, sLogMessage);
+        LogRetention logRetention = ReportContext.current().getLogRetention();
+        updateNode(currentTest(), test -> {
+            retain(logRetention, test, status, sLogMessage, node -> node.log(status, sLogMessage));
+            appendEvent(ResultJournal.LOG, test, null, status, sLogMessage);
+        });
     }
 
     /**
@@ -984,7 +1883,11 @@ public class TNGReportListener extends SeleUtil implements ISuiteListener, ITest
      * @param provider      {@link MediaEntityModelProvider} object for attaching media file to node
      */
     public void addLogToTest(Status status, String sLogMessage, MediaEntityModelProvider provider) {
-        getExtentTest().log(status, sLogMessage, provider);
+        LogRetention logRetention = ReportContext.current().getLogRetention();
+        updateNode(currentTest(), test -> {
+            retain(logRetention, test, status, sLogMessage, node -> node.log(status, sLogMessage, provider));
+            appendLog(test, status, sLogMessage, provider);
+        });
     }
 
     /**
@@ -998,7 +1901,12 @@ public class TNGReportListener extends SeleUtil implements ISuiteListener, ITest
      * @param sScreenshotName   The screenshot name to be attached to the log
      */
     public void addLogToTest(Status status, String sLogMessage, String sScreenshotName) throws IOException{
-        getExtentTest().log(status, sLogMessage, addMediaProvider(sScreenshotName));
+        MediaEntityModelProvider provider = addMediaProvider(sScreenshotName);
+        LogRetention logRetention = ReportContext.current().getLogRetention();
+        updateNode(currentTest(), test -> {
+            retain(logRetention, test, status, sLogMessage, node -> node.log(status, sLogMessage, provider));
+            appendLog(test, status, sLogMessage, provider);
+        });
     }
 
     /**
@@ -1017,7 +1925,12 @@ public class TNGReportListener extends SeleUtil implements ISuiteListener, ITest
      */
     public void addLogToTest(Status status, String sLogMessage, String sScreenshotName,
                              WebElement element, boolean highlight) throws Exception{
-        getExtentTest().log(status, sLogMessage, addMediaProvider(sScreenshotName, element, highlight));
+        MediaEntityModelProvider provider = addMediaProvider(sScreenshotName, element, highlight);
+        LogRetention logRetention = ReportContext.current().getLogRetention();
+        updateNode(currentTest(), test -> {
+            retain(logRetention, test, status, sLogMessage, node -> node.log(status, sLogMessage, provider));
+            appendLog(test, status, sLogMessage, provider);
+        });
     }
 
     /**
@@ -1029,7 +1942,17 @@ public class TNGReportListener extends SeleUtil implements ISuiteListener, ITest
      * @param t         {@link Throwable} object
      */
     public void addLogToTest(Status status, Throwable t) {
-        getExtentTest().log(status, t);
+        boolean newFailure = isNewFailure(status, t);
+        ISuite iSuite = newFailure ? currentSuite() : null;
+        LogRetention logRetention = ReportContext.current().getLogRetention();
+        updateNode(currentTest(), test -> {
+            String stackTrace = getStackTrace(t);
+            retain(logRetention, test, status, stackTrace, node -> node.log(status, t));
+            appendLog(test, status, stackTrace, null);
+            if (newFailure) {
+                recordFailureCluster(test, t, iSuite);
+            }
+        });
     }
 
     /**
@@ -1043,7 +1966,17 @@ public class TNGReportListener extends SeleUtil implements ISuiteListener, ITest
      * @param provider      {@link MediaEntityModelProvider} object for attaching media file to node
      */
     public void addLogToTest(Status status, Throwable t, MediaEntityModelProvider provider) {
-        getExtentTest().log(status, t, provider);
+        boolean newFailure = isNewFailure(status, t);
+        ISuite iSuite = newFailure ? currentSuite() : null;
+        LogRetention logRetention = ReportContext.current().getLogRetention();
+        updateNode(currentTest(), test -> {
+            String stackTrace = getStackTrace(t);
+            retain(logRetention, test, status, stackTrace, node -> node.log(status, t, provider));
+            appendLog(test, status, stackTrace, provider);
+            if (newFailure) {
+                recordFailureCluster(test, t, iSuite);
+            }
+        });
     }
 
     /**
@@ -1057,7 +1990,18 @@ public class TNGReportListener extends SeleUtil implements ISuiteListener, ITest
      * @param sScreenshotName   Screenshot name to be attached to log
      */
     public void addLogToTest(Status status, Throwable t, String sScreenshotName) throws IOException {
-        getExtentTest().log(status, t, addMediaProvider(sScreenshotName));
+        MediaEntityModelProvider provider = addMediaProvider(sScreenshotName);
+        boolean newFailure = isNewFailure(status, t);
+        ISuite iSuite = newFailure ? currentSuite() : null;
+        LogRetention logRetention = ReportContext.current().getLogRetention();
+        updateNode(currentTest(), test -> {
+            String stackTrace = getStackTrace(t);
+            retain(logRetention, test, status, stackTrace, node -> node.log(status, t, provider));
+            appendLog(test, status, stackTrace, provider);
+            if (newFailure) {
+                recordFailureCluster(test, t, iSuite);
+            }
+        });
     }
 
     /**
@@ -1077,7 +2021,18 @@ public class TNGReportListener extends SeleUtil implements ISuiteListener, ITest
      */
     public void addLogToTest(Status status, Throwable t, String sScreenshotName,
                              WebElement element, boolean highlight) throws Exception {
-        getExtentTest().log(status, t, addMediaProvider(sScreenshotName, element, highlight));
+        MediaEntityModelProvider provider = addMediaProvider(sScreenshotName, element, highlight);
+        boolean newFailure = isNewFailure(status, t);
+        ISuite iSuite = newFailure ? currentSuite() : null;
+        LogRetention logRetention = ReportContext.current().getLogRetention();
+        updateNode(currentTest(), test -> {
+            String stackTrace = getStackTrace(t);
+            retain(logRetention, test, status, stackTrace, node -> node.log(status, t, provider));
+            appendLog(test, status, stackTrace, provider);
+            if (newFailure) {
+                recordFailureCluster(test, t, iSuite);
+            }
+        });
     }
 
     /**
@@ -1087,7 +2042,11 @@ public class TNGReportListener extends SeleUtil implements ISuiteListener, ITest
      * @param markup    {@link Markup} object
      */
     public void addLogToTest(Status status, Markup markup) {
-        getExtentTest().log(status, markup);
+        LogRetention logRetention = ReportContext.current().getLogRetention();
+        updateNode(currentTest(), test -> {
+            retain(logRetention, test, status, markup.getMarkup(), node -> node.log(status, markup));
+            appendLog(test, status, markup.getMarkup(), null);
+        });
     }
 
     /**
@@ -1099,13 +2058,108 @@ public class TNGReportListener extends SeleUtil implements ISuiteListener, ITest
      * @return {@link ExtentTest} test object
      */
     public static ExtentTest getExtentTest() {
-        ITestResult iTestResult = Reporter.getCurrentTestResult();
-        Preconditions.checkState(iTestResult != null);
-        ExtentTest test = (ExtentTest) iTestResult.getAttribute("test");
+        ReportContext context = ReportContext.current();
+        ExtentTest test = context.getTest();
+        if (test == null) {
+            test = getResultNode(getCurrentResult(context), "test");
+        }
         log.debug(test);
         return test;
     }
 
+    /**
+     * @param context   The report context of the current thread
+     * @return          The {@link ITestResult} of the current test method, or of the configuration method's test
+     */
+    /**
+     * @return The suite of the current test method, or null outside of a test
+     */
+    private static ISuite currentSuite() {
+        ReportContext context = ReportContext.current();
+        ITestResult iTestResult = context.getResult() != null ? context.getResult() : Reporter.getCurrentTestResult();
+        return iTestResult == null ? null : iTestResult.getTestContext().getSuite();
+    }
+
+    private static ITestResult getCurrentResult(ReportContext context) {
+        ITestResult iTestResult = context.getResult();
+        if (iTestResult == null) {
+            iTestResult = Reporter.getCurrentTestResult();
+            Preconditions.checkState(iTestResult != null);
+        }
+        return iTestResult;
+    }
+
+    /**
+     * Gets a node stored on a result, once the report builder thread of the async mode
+     * has applied the updates published by the current thread.
+     *
+     * @param iTestResult   The {@link ITestResult} object
+     * @param name          The attribute name of the node
+     * @return              {@link ExtentTest} node object, or null
+     */
+    private static ExtentTest getResultNode(ITestResult iTestResult, String name) {
+        ReportContext.current().awaitPublished();
+        return (ExtentTest) iTestResult.getAttribute(name);
+    }
+
+    /**
+     * Applies an update to a node of the report model.
+     *
+     * In the async mode the update is published to the report builder thread and the node is looked up there,
+     * after the updates published before it, so the test thread neither waits for the node to be created
+     * nor changes the model while the builder does.
+     *
+     * @param node      Looks up the node, see {@link #currentTest()}, {@link #namedNode(String)}
+     *                  and {@link #resultNode(ITestResult, String)}
+     * @param update    The update of the node
+     */
+    private void updateNode(Supplier<ExtentTest> node, Consumer<ExtentTest> update) {
+        ReportEventBus bus = eventBus;
+        if (bus != null) {
+            ReportContext.current().published(bus, bus.publish(() -> update.accept(node.get())));
+        } else {
+            update.accept(node.get());
+        }
+    }
+
+    /**
+     * @return Looks up the test node of the current test method, or of the configuration method's test
+     */
+    private static Supplier<ExtentTest> currentTest() {
+        ReportContext context = ReportContext.current();
+        ExtentTest test = context.getTest();
+        if (test != null) {
+            return () -> test;
+        }
+        return resultNode(getCurrentResult(context), "test");
+    }
+
+    /**
+     * Looks up the node with the given name of the current test method.
+     * Nodes created during the test method are resolved from the per-thread report context,
+     * others (i.e. when called from configuration methods, or in the async mode) from the current {@link ITestResult}.
+     *
+     * @param nodeName  The name of the node
+     * @return          Looks up the {@link ExtentTest} node object
+     */
+    private static Supplier<ExtentTest> namedNode(String nodeName) {
+        ReportContext context = ReportContext.current();
+        ExtentTest node = context.getNode(nodeName);
+        if (node != null) {
+            return () -> node;
+        }
+        return resultNode(getCurrentResult(context), nodeName);
+    }
+
+    /**
+     * @param iTestResult   The {@link ITestResult} object
+     * @param name          The attribute name of the node
+     * @return              Looks up the node stored on the result
+     */
+    private static Supplier<ExtentTest> resultNode(ITestResult iTestResult, String name) {
+        return () -> (ExtentTest) iTestResult.getAttribute(name);
+    }
+
     /**
      * Get status of test node.
      *
@@ -1115,9 +2169,7 @@ public class TNGReportListener extends SeleUtil implements ISuiteListener, ITest
      * @return execution status of test
      */
     public static Status getExtentTestStatus() {
-        ITestResult iTestResult = Reporter.getCurrentTestResult();
-        Preconditions.checkState(iTestResult != null);
-        ExtentTest test = (ExtentTest) iTestResult.getAttribute("test");
+        ExtentTest test = getExtentTest();
         log.debug(test.getStatus());
         return test.getStatus();
     }
@@ -1129,7 +2181,7 @@ public class TNGReportListener extends SeleUtil implements ISuiteListener, ITest
      * @param iTestResult The {@link ITestResult} object
      */
     public static Status getExtentTestStatus(ITestResult iTestResult) {
-        ExtentTest test = (ExtentTest) iTestResult.getAttribute("test");
+        ExtentTest test = getResultNode(iTestResult, "test");
         log.debug(test.getStatus());
         return test.getStatus();
     }
@@ -1186,41 +2238,4 @@ public class TNGReportListener extends SeleUtil implements ISuiteListener, ITest
 //            return "";
 //        }
 //    }
-
-
-    // ~ Inner Classes --------------------------------------------------------
-    /** Arranges methods by classname and method name */
-    private class TestSorter implements Comparator<IInvokedMethod> {
-        // ~ Methods
-        // -------------------------------------------------------------
-
-        /** Arranges methods by classname and method name */
-        @Override
-        public int compare(IInvokedMethod obj1, IInvokedMethod obj2) {
-            int r = obj1.getTestMethod().getTestClass().getName().compareTo(obj2.getTestMethod().getTestClass().getName());
-            return r;
-        }
-    }
-
-    private class TestMethodSorter implements Comparator<ITestNGMethod> {
-        @Override
-        public int compare(ITestNGMethod obj1, ITestNGMethod obj2) {
-            int r = obj1.getTestClass().getName().compareTo(obj2.getTestClass().getName());
-            if (r == 0) {
-                r = obj1.getMethodName().compareTo(obj2.getMethodName());
-            }
-            return r;
-        }
-    }
-
-    private class TestResultsSorter implements Comparator<ITestResult> {
-        @Override
-        public int compare(ITestResult obj1, ITestResult obj2) {
-            int result = obj1.getTestClass().getName().compareTo(obj2.getTestClass().getName());
-            if (result == 0) {
-                result = obj1.getMethod().getMethodName().compareTo(obj2.getMethod().getMethodName());
-            }
-            return result;
-        }
-    }
 }
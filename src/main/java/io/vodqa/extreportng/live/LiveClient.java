@@ -0,0 +1,107 @@
+package io.vodqa.extreportng.live;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded queue of the event frames not yet sent to one viewer.
+ *
+ * {@link #offer(String)} never blocks: when the viewer can't keep up, the oldest frames are dropped
+ * and the viewer gets a {@code dropped} event with their number instead.
+ */
+final class LiveClient {
+
+    private final int capacity;
+    private final ArrayDeque<String> frames;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+
+    private long dropped;
+    private boolean closed;
+
+    LiveClient(int capacity) {
+        this.capacity = capacity;
+        this.frames = new ArrayDeque<>(Math.min(capacity, 256));
+    }
+
+    /**
+     * Queues a frame, dropping the oldest one when the queue is full.
+     *
+     * @param frame The server-sent event frame
+     */
+    void offer(String frame) {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            if (frames.size() >= capacity) {
+                frames.pollFirst();
+                dropped++;
+            }
+            frames.addLast(frame);
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Takes all queued frames, waiting for at most the given time if there are none.
+     *
+     * @param millis                The max time to wait
+     * @return                      The frames, preceded by a {@code dropped} event if frames were dropped,
+     *                              empty on timeout or when the client is closed and drained
+     * @throws InterruptedException If interrupted while waiting
+     */
+    List<String> await(long millis) throws InterruptedException {
+        lock.lock();
+        try {
+            long nanos = TimeUnit.MILLISECONDS.toNanos(millis);
+            while (frames.isEmpty() && dropped == 0 && !closed && nanos > 0) {
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            if (frames.isEmpty() && dropped == 0) {
+                return Collections.emptyList();
+            }
+
+            List<String> taken = new ArrayList<>(frames.size() + 1);
+            if (dropped > 0) {
+                taken.add(LiveReportServer.droppedFrame(dropped));
+                dropped = 0;
+            }
+            taken.addAll(frames);
+            frames.clear();
+            return taken;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Wakes up the sender; frames still queued are delivered before {@link #await(long)} returns empty.
+     */
+    void close() {
+        lock.lock();
+        try {
+            closed = true;
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    boolean isClosed() {
+        lock.lock();
+        try {
+            return closed;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,337 @@
+package io.vodqa.extreportng.live;
+
+import com.aventstack.extentreports.Status;
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.vodqa.extreportng.journal.ResultJournal;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Embedded http server streaming the listener events to browsers while the run is in progress.
+ *
+ * Endpoints:
+ * <pre>
+ *     /          live report page
+ *     /events    server-sent event stream, one event per listener event
+ *     /files/... files of the report folder, for the screenshots
+ * </pre>
+ *
+ * Publishing never blocks the test threads: every viewer has its own bounded queue,
+ * and a viewer that can't keep up loses the oldest events and gets a {@code dropped} event instead.
+ * The last {@code bufferSize} events are kept, so a viewer that reconnects with {@code Last-Event-ID}
+ * (or joins late) gets them replayed.
+ */
+public final class LiveReportServer implements Closeable {
+
+    private static final Logger log = LogManager.getLogger(LiveReportServer.class.getName());
+
+    public static final int DEFAULT_BUFFER_SIZE = 1024;
+    public static final int DEFAULT_MAX_CLIENTS = 16;
+
+    private static final long HEARTBEAT_MILLIS = 15000;
+    private static final String PAGE_RESOURCE = "live/index.html";
+    private static final String FILES_PREFIX = "/files/";
+
+    private final Gson gson = new Gson();
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Path root;
+    private final int bufferSize;
+    private final int maxClients;
+    private final String[] recent;
+    private final Set<LiveClient> clients = ConcurrentHashMap.newKeySet();
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private long nextId = 1;
+    private volatile boolean closed;
+
+    /**
+     * Starts the server.
+     *
+     * @param address       The address to listen on, port 0 picks a free port
+     * @param root          The report output folder, screenshots under it are served to the viewers
+     * @param bufferSize    The number of events kept for replay and queued per viewer
+     * @param maxClients    The max number of concurrent viewers
+     * @throws IOException  If the server can't be bound
+     */
+    public LiveReportServer(InetSocketAddress address, File root, int bufferSize, int maxClients) throws IOException {
+        this.root = root.toPath().toAbsolutePath().normalize();
+        this.bufferSize = Math.max(1, bufferSize);
+        this.maxClients = Math.max(1, maxClients);
+        this.recent = new String[this.bufferSize];
+
+        AtomicInteger threads = new AtomicInteger();
+        executor = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "report-live-" + threads.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+
+        server = HttpServer.create(address, 0);
+        server.setExecutor(executor);
+        server.createContext("/", this::page);
+        server.createContext("/events", this::events);
+        server.createContext(FILES_PREFIX, this::file);
+        server.start();
+        log.info("Live report: http://" + address.getHostString() + ":" + getPort() + "/");
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Publishes a listener event to all viewers.
+     *
+     * @param type      The event type, one of the {@link ResultJournal} event constants
+     * @param id        Id of the report node the event belongs to
+     * @param parentId  Id of the parent node, 0 if there is none
+     * @param status    The {@link Status} of the event, or null
+     * @param text      The event text (name, log message, media path), or null
+     */
+    public void publish(byte type, int id, int parentId, Status status, CharSequence text) {
+        if (closed) {
+            return;
+        }
+
+        JsonObject data = new JsonObject();
+        data.addProperty("node", id);
+        if (parentId != 0) {
+            data.addProperty("parent", parentId);
+        }
+        if (status != null) {
+            data.addProperty("status", status.toString());
+        }
+        if (text != null) {
+            data.addProperty("text", text.toString());
+            if (type == ResultJournal.MEDIA) {
+                String href = href(text.toString());
+                if (href != null) {
+                    data.addProperty("href", href);
+                }
+            }
+        }
+        data.addProperty("time", System.currentTimeMillis());
+        publish(eventName(type), gson.toJson(data));
+    }
+
+    private void publish(String event, String json) {
+        lock.lock();
+        try {
+            long id = nextId++;
+            String frame = "id: " + id + "\nevent: " + event + "\ndata: " + json + "\n\n";
+            recent[(int) (id % bufferSize)] = frame;
+            for (LiveClient client : clients) {
+                client.offer(frame);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    static String eventName(byte type) {
+        switch (type) {
+            case ResultJournal.SUITE_START:
+                return "suite-start";
+            case ResultJournal.CONTEXT_START:
+                return "context-start";
+            case ResultJournal.CONTEXT_FINISH:
+                return "context-finish";
+            case ResultJournal.TEST_START:
+                return "test-start";
+            case ResultJournal.TEST_FINISH:
+                return "test-finish";
+            case ResultJournal.NODE_START:
+                return "node-start";
+            case ResultJournal.LOG:
+                return "log";
+            case ResultJournal.MEDIA:
+                return "media";
+            default:
+                return "unknown";
+        }
+    }
+
+    static String droppedFrame(long dropped) {
+        return "event: dropped\ndata: {\"dropped\":" + dropped + "}\n\n";
+    }
+
+    /**
+     * @param path  A screenshot path
+     * @return      The url of the file relative to the page, null if it is outside of the report folder
+     */
+    private String href(String path) {
+        try {
+            Path file = root.resolve(path).normalize();
+            if (!file.startsWith(root)) {
+                return null;
+            }
+            return FILES_PREFIX.substring(1) + root.relativize(file).toString().replace(File.separatorChar, '/');
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Registers a viewer and returns the buffered events it has not seen yet.
+     * Done under the publish lock, so no event is missed or sent twice between the replay and the queue.
+     */
+    private List<String> register(LiveClient client, long lastEventId) {
+        lock.lock();
+        try {
+            long oldest = Math.max(1, nextId - bufferSize);
+            long from = Math.max(oldest, lastEventId + 1);
+            List<String> replay = new ArrayList<>();
+            if (lastEventId > 0 && lastEventId + 1 < oldest) {
+                replay.add(droppedFrame(oldest - lastEventId - 1));
+            }
+            for (long id = from; id < nextId; id++) {
+                replay.add(recent[(int) (id % bufferSize)]);
+            }
+            clients.add(client);
+            return replay;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void events(HttpExchange exchange) throws IOException {
+        if (closed || clients.size() >= maxClients) {
+            exchange.sendResponseHeaders(503, -1);
+            exchange.close();
+            return;
+        }
+
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream; charset=utf-8");
+        exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+        exchange.sendResponseHeaders(200, 0);
+
+        LiveClient client = new LiveClient(bufferSize);
+        List<String> frames = register(client, lastEventId(exchange));
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8))) {
+            writer.write("retry: 2000\n\n");
+            while (true) {
+                if (frames.isEmpty()) {
+                    if (client.isClosed()) {
+                        break;
+                    }
+                    writer.write(": heartbeat\n\n");
+                }
+                for (String frame : frames) {
+                    writer.write(frame);
+                }
+                writer.flush();
+                frames = client.await(HEARTBEAT_MILLIS);
+            }
+        } catch (IOException e) {
+            log.debug("Live report viewer disconnected: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            clients.remove(client);
+            client.close();
+            exchange.close();
+        }
+    }
+
+    private static long lastEventId(HttpExchange exchange) {
+        String value = exchange.getRequestHeaders().getFirst("Last-Event-ID");
+        if (value == null) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private void page(HttpExchange exchange) throws IOException {
+        if (!"/".equals(exchange.getRequestURI().getPath())) {
+            notFound(exchange);
+            return;
+        }
+
+        try (InputStream is = LiveReportServer.class.getClassLoader().getResourceAsStream(PAGE_RESOURCE)) {
+            if (is == null) {
+                throw new IOException("Live report resource is missing: " + PAGE_RESOURCE);
+            }
+            exchange.getResponseHeaders().set("Content-Type", "text/html; charset=utf-8");
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream os = exchange.getResponseBody()) {
+                copy(is, os);
+            }
+        }
+    }
+
+    private void file(HttpExchange exchange) throws IOException {
+        String relative = URLDecoder.decode(exchange.getRequestURI().getRawPath().substring(FILES_PREFIX.length()), "UTF-8");
+        Path file = root.resolve(relative).normalize();
+        if (!file.startsWith(root) || !Files.isRegularFile(file)) {
+            notFound(exchange);
+            return;
+        }
+
+        String contentType = Files.probeContentType(file);
+        exchange.getResponseHeaders().set("Content-Type", contentType == null ? "application/octet-stream" : contentType);
+        exchange.sendResponseHeaders(200, Files.size(file));
+        try (OutputStream os = exchange.getResponseBody()) {
+            Files.copy(file, os);
+        }
+    }
+
+    private static void notFound(HttpExchange exchange) throws IOException {
+        exchange.sendResponseHeaders(404, -1);
+        exchange.close();
+    }
+
+    private static void copy(InputStream is, OutputStream os) throws IOException {
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = is.read(buffer)) != -1) {
+            os.write(buffer, 0, n);
+        }
+    }
+
+    /**
+     * Sends an {@code end} event to the viewers, lets them drain their queues and stops the server.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        publish("end", "{\"time\":" + System.currentTimeMillis() + "}");
+        closed = true;
+        for (LiveClient client : clients) {
+            client.close();
+        }
+        server.stop(1);
+        executor.shutdownNow();
+    }
+}
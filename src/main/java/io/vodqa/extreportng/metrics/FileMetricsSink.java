@@ -0,0 +1,39 @@
+package io.vodqa.extreportng.metrics;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Default {@link MetricsSink}, writes the metrics as {@code test-metrics.json} and {@code test-metrics.csv}
+ * next to the html report.
+ */
+public class FileMetricsSink implements MetricsSink {
+
+    private static final String CSV_HEADER = "metric,count,totalMicros,minMicros,meanMicros,p50Micros,p90Micros,p99Micros,maxMicros";
+
+    @Override
+    public void publish(String reportPath, List<MetricSnapshot> snapshots) throws IOException {
+        Gson gson = new GsonBuilder().setPrettyPrinting().create();
+        try (Writer writer = Files.newBufferedWriter(new File(reportPath, "test-metrics.json").toPath(), StandardCharsets.UTF_8)) {
+            gson.toJson(snapshots, writer);
+        }
+
+        try (Writer writer = Files.newBufferedWriter(new File(reportPath, "test-metrics.csv").toPath(), StandardCharsets.UTF_8)) {
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+            for (MetricSnapshot s : snapshots) {
+                writer.write(String.format(Locale.ROOT, "%s,%d,%d,%d,%.1f,%d,%d,%d,%d%n",
+                        s.getMetric(), s.getCount(), s.getTotalMicros(), s.getMinMicros(), s.getMeanMicros(),
+                        s.getP50Micros(), s.getP90Micros(), s.getP99Micros(), s.getMaxMicros()));
+            }
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package io.vodqa.extreportng.metrics;
+
+/**
+ * Timings recorded by the report listener. All values are recorded in nanoseconds.
+ */
+public enum Metric {
+    /** Wall time of each test method, as measured by TestNG */
+    TEST_METHOD,
+    /** Time spent inside the listener callbacks */
+    LISTENER_OVERHEAD,
+    /** Time the test thread spends capturing a screenshot */
+    SCREENSHOT_CAPTURE,
+    /** Time a writer thread spends processing and writing a screenshot file */
+    SCREENSHOT_WRITE,
+    /** Time spent flushing the report to disk */
+    REPORT_FLUSH,
+    /** Time the report builder thread spends applying one listener update, in the async mode */
+    REPORT_BUILD
+}
@@ -0,0 +1,69 @@
+package io.vodqa.extreportng.metrics;
+
+/**
+ * Point-in-time summary of one {@link Metric}, with all times in microseconds.
+ */
+public class MetricSnapshot {
+
+    private final String metric;
+    private final long count;
+    private final long totalMicros;
+    private final long minMicros;
+    private final double meanMicros;
+    private final long p50Micros;
+    private final long p90Micros;
+    private final long p99Micros;
+    private final long maxMicros;
+
+    MetricSnapshot(Metric metric, LatencyHistogram histogram) {
+        this.metric = metric.name();
+        this.count = histogram.getCount();
+        this.totalMicros = toMicros(histogram.getTotal());
+        this.minMicros = toMicros(histogram.getMin());
+        this.meanMicros = histogram.getMean() / 1000;
+        this.p50Micros = toMicros(histogram.getValueAtPercentile(50));
+        this.p90Micros = toMicros(histogram.getValueAtPercentile(90));
+        this.p99Micros = toMicros(histogram.getValueAtPercentile(99));
+        this.maxMicros = toMicros(histogram.getMax());
+    }
+
+    private static long toMicros(long nanos) {
+        return nanos / 1000;
+    }
+
+    public String getMetric() {
+        return metric;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getTotalMicros() {
+        return totalMicros;
+    }
+
+    public long getMinMicros() {
+        return minMicros;
+    }
+
+    public double getMeanMicros() {
+        return meanMicros;
+    }
+
+    public long getP50Micros() {
+        return p50Micros;
+    }
+
+    public long getP90Micros() {
+        return p90Micros;
+    }
+
+    public long getP99Micros() {
+        return p99Micros;
+    }
+
+    public long getMaxMicros() {
+        return maxMicros;
+    }
+}
@@ -0,0 +1,21 @@
+package io.vodqa.extreportng.metrics;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Implement this interface to receive the listener timing metrics at the end of the run.
+ *
+ * Custom sinks are registered with the suite-level parameter {@code metrics.sink},
+ * a comma separated list of class names with a public no-argument constructor.
+ */
+public interface MetricsSink {
+
+    /**
+     * @param reportPath    The report output folder
+     * @param snapshots     One snapshot per {@link Metric}
+     * @throws IOException  If the metrics can't be written
+     */
+    void publish(String reportPath, List<MetricSnapshot> snapshots) throws IOException;
+
+}
@@ -0,0 +1,121 @@
+package io.vodqa.extreportng.metrics;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Registry of the listener timing histograms, one per {@link Metric}.
+ *
+ * Example:
+ * <pre>
+ *     long start = System.nanoTime();
+ *     ...
+ *     ReportMetrics.record(Metric.REPORT_FLUSH, start);
+ * </pre>
+ */
+public final class ReportMetrics {
+
+    private static final Logger log = LogManager.getLogger(ReportMetrics.class.getName());
+
+    private static final Map<Metric, LatencyHistogram> histograms = new EnumMap<>(Metric.class);
+    private static final List<MetricsSink> sinks = new CopyOnWriteArrayList<>();
+
+    static {
+        for (Metric metric : Metric.values()) {
+            histograms.put(metric, new LatencyHistogram());
+        }
+        sinks.add(new FileMetricsSink());
+    }
+
+    private ReportMetrics() {
+    }
+
+    /**
+     * Records the time elapsed since the given start.
+     *
+     * @param metric        The {@link Metric} to record
+     * @param startNanos    Start time taken with {@link System#nanoTime()}
+     */
+    public static void record(Metric metric, long startNanos) {
+        recordNanos(metric, System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Records a duration.
+     *
+     * @param metric    The {@link Metric} to record
+     * @param nanos     The duration in nanoseconds
+     */
+    public static void recordNanos(Metric metric, long nanos) {
+        histograms.get(metric).record(nanos);
+    }
+
+    /**
+     * @param metric    The {@link Metric}
+     * @return          The histogram of the metric
+     */
+    public static LatencyHistogram getHistogram(Metric metric) {
+        return histograms.get(metric);
+    }
+
+    /**
+     * Registers an additional sink, unless a sink of the same class is already registered.
+     *
+     * @param sink The {@link MetricsSink} to be published to
+     */
+    public static synchronized void addSink(MetricsSink sink) {
+        for (MetricsSink registered : sinks) {
+            if (registered.getClass() == sink.getClass()) {
+                return;
+            }
+        }
+        sinks.add(sink);
+    }
+
+    /**
+     * Clears the recorded values and removes the custom sinks.
+     * Called when a run starts, so a later listener or run in the same JVM
+     * does not publish the samples of an earlier one.
+     */
+    public static synchronized void reset() {
+        for (LatencyHistogram histogram : histograms.values()) {
+            histogram.reset();
+        }
+        sinks.removeIf(sink -> !(sink instanceof FileMetricsSink));
+    }
+
+    /**
+     * @return One snapshot per {@link Metric}
+     */
+    public static List<MetricSnapshot> snapshot() {
+        List<MetricSnapshot> snapshots = new ArrayList<>();
+        for (Map.Entry<Metric, LatencyHistogram> entry : histograms.entrySet()) {
+            snapshots.add(new MetricSnapshot(entry.getKey(), entry.getValue()));
+        }
+        return snapshots;
+    }
+
+    /**
+     * Publishes a snapshot of all metrics to every registered sink.
+     * A failing sink is logged and does not stop the others.
+     *
+     * @param reportPath The report output folder
+     */
+    public static void publish(String reportPath) {
+        List<MetricSnapshot> snapshots = snapshot();
+        for (MetricsSink sink : sinks) {
+            try {
+                sink.publish(reportPath, snapshots);
+            } catch (IOException | RuntimeException e) {
+                log.error("Metrics sink " + sink.getClass().getName() + " failed: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package io.vodqa.extreportng.output;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bounded multi-producer ring buffer read by a fixed number of consumers, each at its own pace.
+ *
+ * A producer claims the next sequence with one compare-and-set, stores the event in its slot
+ * and publishes the sequence number of the slot. Consumers never remove anything: each one keeps its own position
+ * and a slot is reused once the slowest consumer has passed it. Producers only wait when the buffer is full.
+ *
+ * The claim count and the closed flag share one atomic state, so once the buffer is closed no event can be claimed
+ * and the consumers stop after the last event claimed before.
+ */
+final class EventRingBuffer {
+
+    private final int mask;
+    private final ReportEvent[] entries;
+    private final AtomicLongArray published;
+    private static final long CLOSED = 1L << 62;
+
+    // number of claimed slots, plus CLOSED once the buffer is closed
+    private final AtomicLong state = new AtomicLong();
+    private final AtomicLong[] consumed;
+    private volatile long gatingSequence = -1;
+
+    /**
+     * @param capacity  The number of slots, rounded up to a power of two
+     * @param consumers The number of consumers
+     */
+    EventRingBuffer(int capacity, int consumers) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        mask = size - 1;
+        entries = new ReportEvent[size];
+        published = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            published.set(i, -1);
+        }
+        consumed = new AtomicLong[consumers];
+        for (int i = 0; i < consumers; i++) {
+            consumed[i] = new AtomicLong(-1);
+        }
+    }
+
+    /**
+     * Adds an event, waiting for the slowest consumer if the buffer is full.
+     *
+     * @param event The event
+     * @return      false if the buffer is closed and the event was dropped
+     */
+    boolean publish(ReportEvent event) {
+        long current;
+        do {
+            current = state.get();
+            if ((current & CLOSED) != 0) {
+                return false;
+            }
+        } while (!state.compareAndSet(current, current + 1));
+
+        long sequence = current;
+        long wrapPoint = sequence - entries.length;
+        if (wrapPoint > gatingSequence) {
+            long minimum;
+            while (wrapPoint > (minimum = getMinimumConsumed())) {
+                LockSupport.parkNanos(1000);
+            }
+            gatingSequence = minimum;
+        }
+
+        int slot = (int) sequence & mask;
+        entries[slot] = event;
+        published.lazySet(slot, sequence);
+        return true;
+    }
+
+    /**
+     * @param sequence  The sequence to read
+     * @return          The event, or null if it has not been published yet
+     */
+    ReportEvent get(long sequence) {
+        int slot = (int) sequence & mask;
+        return published.get(slot) == sequence ? entries[slot] : null;
+    }
+
+    /**
+     * Marks all events up to the sequence as processed by the consumer, freeing their slots.
+     * A consumer that stops reading releases {@link Long#MAX_VALUE}, so it no longer holds the producers back.
+     *
+     * @param consumer  The consumer index
+     * @param sequence  The last processed sequence
+     */
+    void release(int consumer, long sequence) {
+        consumed[consumer].lazySet(sequence);
+    }
+
+    /**
+     * @return The last claimed sequence, it may not be published yet
+     */
+    long getClaimed() {
+        return (state.get() & ~CLOSED) - 1;
+    }
+
+    /**
+     * Stops accepting events, the events claimed so far are still published.
+     *
+     * @return false if the buffer was closed already
+     */
+    boolean close() {
+        return (state.getAndUpdate(current -> current | CLOSED) & CLOSED) == 0;
+    }
+
+    /**
+     * @return true once the buffer is closed, {@link #getClaimed()} does not change after that
+     */
+    boolean isClosed() {
+        return (state.get() & CLOSED) != 0;
+    }
+
+    private long getMinimumConsumed() {
+        long minimum = Long.MAX_VALUE;
+        for (AtomicLong sequence : consumed) {
+            minimum = Math.min(minimum, sequence.get());
+        }
+        return minimum;
+    }
+}
@@ -0,0 +1,124 @@
+package io.vodqa.extreportng.output;
+
+import com.aventstack.extentreports.ExtentReports;
+import com.aventstack.extentreports.Status;
+import com.aventstack.extentreports.reporter.ExtentHtmlReporter;
+import com.aventstack.extentreports.reporter.configuration.Theme;
+import com.google.common.base.Strings;
+import io.vodqa.extreportng.metrics.Metric;
+import io.vodqa.extreportng.metrics.ReportMetrics;
+import org.testng.ISuite;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Renders the Extent model of the listener into {@code test-report.html}, on its own thread.
+ * This is the report written when the suite-level parameter {@code report.outputs} is not set.
+ *
+ * The report is rendered from the model the listener and its helper methods build, not from the events,
+ * so it holds everything added to the model: the batched and retained log entries, exceptions, authors,
+ * categories and the nodes and logs added through {@code getExtentTest()}.
+ * The events only tell it when to write: on a {@link ReportEvent.Type#FLUSH} event, sent at the end of
+ * every test context of a suite with {@code report.streaming} set to {@code true}, and on close.
+ *
+ * Styling comes from the suite parameters {@code report.config} (Extent xml config) and {@code report.html.theme}
+ * ({@code dark}, the default, or {@code standard}). There is one html report per run, so they are taken
+ * from the suite the outputs were opened by; later suites can't restyle it.
+ *
+ * The listener creates this output with its model, it is not looked up through {@link java.util.ServiceLoader}.
+ */
+public class HtmlReportOutput implements ReportOutput {
+
+    public static final String NAME = "html";
+    public static final String FILE_NAME = "test-report.html";
+
+    public static final List<Status> STATUS_HIERARCHY = Collections.unmodifiableList(Arrays.asList(
+            Status.FATAL,
+            Status.FAIL,
+            Status.ERROR,
+            Status.WARNING,
+            Status.SKIP,
+            Status.PASS,
+            Status.DEBUG,
+            Status.INFO
+    ));
+
+    private final ExtentReports extent;
+    private final Lock modelLock;
+
+    /**
+     * @param extent    The Extent model of the listener
+     * @param modelLock The lock the listener holds while it changes the structure of the model
+     */
+    public HtmlReportOutput(ExtentReports extent, Lock modelLock) {
+        this.extent = extent;
+        this.modelLock = modelLock;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public void open(File reportFolder, ISuite suite) throws IOException {
+        Files.createDirectories(reportFolder.toPath());
+
+        ExtentHtmlReporter htmlReporter = new ExtentHtmlReporter(new File(reportFolder, FILE_NAME));
+        String configFile = suite.getParameter("report.config");
+        if (!Strings.isNullOrEmpty(configFile)) {
+            htmlReporter.loadXMLConfig(configFile);
+        }
+        htmlReporter.config().setTheme("standard".equalsIgnoreCase(suite.getParameter("report.html.theme")) ? Theme.STANDARD : Theme.DARK);
+
+        modelLock.lock();
+        try {
+            extent.attachReporter(htmlReporter);
+        } finally {
+            modelLock.unlock();
+        }
+    }
+
+    @Override
+    public void onEvent(ReportEvent event) {
+        if (event.getType() == ReportEvent.Type.FLUSH) {
+            long start = System.nanoTime();
+            flush();
+            ReportMetrics.record(Metric.REPORT_FLUSH, start);
+        }
+    }
+
+    @Override
+    public void onRunFinish(Map<String, String> systemInfo, List<String> testRunnerOutput) {
+        modelLock.lock();
+        try {
+            for (Map.Entry<String, String> entry : systemInfo.entrySet()) {
+                extent.setSystemInfo(entry.getKey(), entry.getValue());
+            }
+            extent.setTestRunnerOutput(testRunnerOutput);
+        } finally {
+            modelLock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        flush();
+    }
+
+    private void flush() {
+        modelLock.lock();
+        try {
+            extent.flush();
+        } finally {
+            modelLock.unlock();
+        }
+    }
+}
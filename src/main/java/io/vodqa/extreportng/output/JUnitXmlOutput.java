@@ -0,0 +1,205 @@
+package io.vodqa.extreportng.output;
+
+import io.vodqa.extreportng.shard.ResultRecord;
+import org.testng.ISuite;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * Writes one JUnit XML file per TestNG test context to the {@code junit} folder,
+ * in the format read by CI servers ({@code TEST-<suite>.<test>.xml}).
+ *
+ * A file is written as soon as its test context finishes, contexts still open at the end of the run are written on close.
+ */
+public class JUnitXmlOutput implements ReportOutput {
+
+    public static final String FOLDER_NAME = "junit";
+
+    private final XMLOutputFactory xmlOutputFactory = XMLOutputFactory.newInstance();
+    private final Map<Integer, String> suites = new HashMap<>();
+    private final Map<Integer, TestSuite> contexts = new LinkedHashMap<>();
+    private final Map<Integer, Integer> testContexts = new HashMap<>();
+    private File folder;
+
+    @Override
+    public String getName() {
+        return "junit";
+    }
+
+    @Override
+    public void open(File reportFolder, ISuite suite) throws IOException {
+        folder = new File(reportFolder, FOLDER_NAME);
+        Files.createDirectories(folder.toPath());
+    }
+
+    @Override
+    public void onEvent(ReportEvent event) throws IOException {
+        switch (event.getType()) {
+            case SUITE_START:
+                suites.put(event.getId(), event.getText());
+                break;
+            case CONTEXT_START:
+                contexts.put(event.getId(), new TestSuite(suites.get(event.getParentId()), event.getText(), event.getTimeMillis()));
+                break;
+            case TEST_START:
+                testContexts.put(event.getId(), event.getParentId());
+                break;
+            case TEST_FINISH:
+                Integer contextId = testContexts.remove(event.getId());
+                TestSuite testSuite = contextId == null ? null : contexts.get(contextId);
+                if (testSuite != null && event.getRecord() != null) {
+                    testSuite.records.add(event.getRecord());
+                }
+                break;
+            case CONTEXT_FINISH:
+                TestSuite finished = contexts.remove(event.getId());
+                if (finished != null) {
+                    write(finished, event.getTimeMillis());
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        long now = System.currentTimeMillis();
+        for (TestSuite testSuite : contexts.values()) {
+            write(testSuite, now);
+        }
+        contexts.clear();
+    }
+
+    private void write(TestSuite testSuite, long endMillis) throws IOException {
+        int failures = 0;
+        int skipped = 0;
+        for (ResultRecord record : testSuite.records) {
+            if (ResultRecord.FAIL.equals(record.getStatus())) {
+                failures++;
+            } else if (ResultRecord.SKIP.equals(record.getStatus())) {
+                skipped++;
+            }
+        }
+
+        File file = new File(folder, "TEST-" + fileName(testSuite.suite) + "." + fileName(testSuite.name) + ".xml");
+        try (OutputStream os = Files.newOutputStream(file.toPath())) {
+            XMLStreamWriter xml = xmlOutputFactory.createXMLStreamWriter(os, "UTF-8");
+            xml.writeStartDocument("UTF-8", "1.0");
+            xml.writeCharacters("\n");
+            xml.writeStartElement("testsuite");
+            xml.writeAttribute("name", testSuite.suite == null ? testSuite.name : testSuite.suite + "." + testSuite.name);
+            xml.writeAttribute("tests", String.valueOf(testSuite.records.size()));
+            xml.writeAttribute("failures", String.valueOf(failures));
+            xml.writeAttribute("errors", "0");
+            xml.writeAttribute("skipped", String.valueOf(skipped));
+            xml.writeAttribute("time", seconds(endMillis - testSuite.startMillis));
+            xml.writeAttribute("timestamp", timestamp(testSuite.startMillis));
+
+            for (ResultRecord record : testSuite.records) {
+                writeTestCase(xml, record);
+            }
+
+            xml.writeCharacters("\n");
+            xml.writeEndElement();
+            xml.writeEndDocument();
+            xml.close();
+        } catch (XMLStreamException e) {
+            throw new IOException("Failed to write " + file, e);
+        }
+    }
+
+    private static void writeTestCase(XMLStreamWriter xml, ResultRecord record) throws XMLStreamException {
+        xml.writeCharacters("\n  ");
+        xml.writeStartElement("testcase");
+        xml.writeAttribute("classname", record.getClassName());
+        xml.writeAttribute("name", record.getParameters() == null ? record.getMethod() : record.getMethod() + record.getParameters());
+        xml.writeAttribute("time", seconds(record.getEndMillis() - record.getStartMillis()));
+
+        if (ResultRecord.FAIL.equals(record.getStatus())) {
+            String trace = record.getThrowable() == null ? "" : record.getThrowable();
+            String firstLine = trace.split("\r?\n", 2)[0];
+            int colon = firstLine.indexOf(": ");
+            xml.writeCharacters("\n    ");
+            xml.writeStartElement("failure");
+            xml.writeAttribute("type", colon < 0 ? firstLine : firstLine.substring(0, colon));
+            xml.writeAttribute("message", colon < 0 ? "" : xmlText(firstLine.substring(colon + 2)));
+            xml.writeCharacters(xmlText(trace));
+            xml.writeEndElement();
+        } else if (ResultRecord.SKIP.equals(record.getStatus())) {
+            xml.writeCharacters("\n    ");
+            xml.writeEmptyElement("skipped");
+        }
+
+        List<String> logs = record.getLogs();
+        if (logs != null && !logs.isEmpty()) {
+            xml.writeCharacters("\n    ");
+            xml.writeStartElement("system-out");
+            xml.writeCharacters(xmlText(String.join("\n", logs)));
+            xml.writeEndElement();
+        }
+
+        xml.writeCharacters("\n  ");
+        xml.writeEndElement();
+    }
+
+    private static String seconds(long millis) {
+        return String.format(Locale.ROOT, "%.3f", Math.max(0, millis) / 1000d);
+    }
+
+    private static String timestamp(long millis) {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss", Locale.ROOT);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return format.format(new Date(millis));
+    }
+
+    /**
+     * Drops the control characters XML 1.0 can't represent.
+     */
+    private static String xmlText(String text) {
+        StringBuilder sb = null;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x20 && c != '\t' && c != '\n' && c != '\r' || c == 0xFFFE || c == 0xFFFF) {
+                if (sb == null) {
+                    sb = new StringBuilder(text.length()).append(text, 0, i);
+                }
+            } else if (sb != null) {
+                sb.append(c);
+            }
+        }
+        return sb == null ? text : sb.toString();
+    }
+
+    private static String fileName(String name) {
+        return name == null ? "suite" : name.replaceAll("[^A-Za-z0-9._-]", "_");
+    }
+
+    private static final class TestSuite {
+        private final String suite;
+        private final String name;
+        private final long startMillis;
+        private final List<ResultRecord> records = new ArrayList<>();
+
+        private TestSuite(String suite, String name, long startMillis) {
+            this.suite = suite;
+            this.name = name;
+            this.startMillis = startMillis;
+        }
+    }
+}
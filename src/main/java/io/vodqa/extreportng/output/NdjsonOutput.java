@@ -0,0 +1,71 @@
+package io.vodqa.extreportng.output;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import org.testng.ISuite;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * Writes every event as one JSON object per line to {@code events.ndjson}, for log shippers and custom tooling.
+ *
+ * The file is flushed whenever a test context finishes, so it can be followed while the run is in progress.
+ * {@link ReportEvent.Type#FLUSH} events are not written.
+ */
+public class NdjsonOutput implements ReportOutput {
+
+    public static final String FILE_NAME = "events.ndjson";
+
+    private final Gson gson = new Gson();
+    private Writer writer;
+
+    @Override
+    public String getName() {
+        return "ndjson";
+    }
+
+    @Override
+    public void open(File reportFolder, ISuite suite) throws IOException {
+        writer = Files.newBufferedWriter(new File(reportFolder, FILE_NAME).toPath(), StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void onEvent(ReportEvent event) throws IOException {
+        if (event.getType() == ReportEvent.Type.FLUSH) {
+            writer.flush();
+            return;
+        }
+
+        JsonObject line = new JsonObject();
+        line.addProperty("type", event.getType().name());
+        line.addProperty("time", event.getTimeMillis());
+        line.addProperty("id", event.getId());
+        if (event.getParentId() != 0) {
+            line.addProperty("parent", event.getParentId());
+        }
+        if (event.getStatus() != null) {
+            line.addProperty("status", event.getStatus().toString());
+        }
+        if (event.getText() != null) {
+            line.addProperty("text", event.getText());
+        }
+        if (event.getRecord() != null) {
+            line.add("record", gson.toJsonTree(event.getRecord()));
+        }
+
+        gson.toJson(line, writer);
+        writer.write('\n');
+        if (event.getType() == ReportEvent.Type.CONTEXT_FINISH) {
+            writer.flush();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
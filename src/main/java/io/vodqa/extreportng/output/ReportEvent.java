@@ -0,0 +1,121 @@
+package io.vodqa.extreportng.output;
+
+import com.aventstack.extentreports.Status;
+import io.vodqa.extreportng.journal.ResultJournal;
+import io.vodqa.extreportng.shard.ResultRecord;
+
+/**
+ * Immutable listener event delivered to every {@link ReportOutput}.
+ *
+ * Events carry the id of the report node they belong to and of its parent, so outputs can rebuild
+ * the suite / test context / test / node tree. The events of one node are delivered in the order they happened.
+ */
+public final class ReportEvent {
+
+    public enum Type {
+        SUITE_START,
+        CONTEXT_START,
+        CONTEXT_FINISH,
+        TEST_START,
+        TEST_FINISH,
+        NODE_START,
+        LOG,
+        MEDIA,
+        /**
+         * Asks the outputs to write out what they hold, sent for the finished test context
+         * of a suite with {@code report.streaming} set to {@code true}. It is not journaled.
+         */
+        FLUSH;
+
+        /**
+         * @param journalType   One of the {@link ResultJournal} event constants
+         * @return              The event type
+         * @throws IllegalArgumentException If the journal type is unknown
+         */
+        public static Type fromJournalType(byte journalType) {
+            switch (journalType) {
+                case ResultJournal.SUITE_START:
+                    return SUITE_START;
+                case ResultJournal.CONTEXT_START:
+                    return CONTEXT_START;
+                case ResultJournal.CONTEXT_FINISH:
+                    return CONTEXT_FINISH;
+                case ResultJournal.TEST_START:
+                    return TEST_START;
+                case ResultJournal.TEST_FINISH:
+                    return TEST_FINISH;
+                case ResultJournal.NODE_START:
+                    return NODE_START;
+                case ResultJournal.LOG:
+                    return LOG;
+                case ResultJournal.MEDIA:
+                    return MEDIA;
+                default:
+                    throw new IllegalArgumentException("Unknown journal event type: " + journalType);
+            }
+        }
+    }
+
+    private final Type type;
+    private final long timeMillis;
+    private final int id;
+    private final int parentId;
+    private final Status status;
+    private final String text;
+    private final ResultRecord record;
+
+    /**
+     * @param type      The event type
+     * @param id        Id of the report node the event belongs to
+     * @param parentId  Id of the parent node, 0 if there is none
+     * @param status    The {@link Status} of the event, or null
+     * @param text      The event text (name, log message, media path), or null
+     * @param record    The test outcome, only set on {@link Type#TEST_FINISH} events
+     */
+    public ReportEvent(Type type, int id, int parentId, Status status, String text, ResultRecord record) {
+        this.type = type;
+        this.timeMillis = System.currentTimeMillis();
+        this.id = id;
+        this.parentId = parentId;
+        this.status = status;
+        this.text = text;
+        this.record = record;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public long getTimeMillis() {
+        return timeMillis;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public int getParentId() {
+        return parentId;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * @return The outcome of the finished test, or null if the event is not a {@link Type#TEST_FINISH}
+     *         or the listener did not record one
+     */
+    public ResultRecord getRecord() {
+        return record;
+    }
+
+    @Override
+    public String toString() {
+        return type + " #" + id + (status == null ? "" : " " + status);
+    }
+}
@@ -0,0 +1,67 @@
+package io.vodqa.extreportng.output;
+
+import org.testng.ISuite;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Implement this interface to write the run in an additional format.
+ *
+ * Outputs are enabled with the suite-level parameter {@code report.outputs}, a comma separated list
+ * of output names or class names; without it only the {@link HtmlReportOutput html} report is written.
+ * Outputs registered in {@code META-INF/services/io.vodqa.extreportng.output.ReportOutput} are found
+ * by their {@link #getName() name}, other classes need a public no-argument constructor.
+ * The {@code html} output is created by the listener, it renders the listener's Extent model.
+ *
+ * The outputs are opened once per run, by the first suite that sets {@code report.outputs} or uses the html report,
+ * and read their settings from that suite only. The {@code report.outputs} of later suites is ignored.
+ * A setting that differs per suite, like {@code report.streaming}, is resolved by the listener and reaches
+ * the outputs as events, e.g. {@link ReportEvent.Type#FLUSH}.
+ *
+ * Every output runs on its own thread and receives every {@link ReportEvent} of the run, in order.
+ * All methods of one output are called from that thread only, so implementations don't need to be thread-safe.
+ * An output that throws is logged and receives no further events.
+ */
+public interface ReportOutput {
+
+    /**
+     * @return The short name used in the {@code report.outputs} parameter
+     */
+    String getName();
+
+    /**
+     * Called before the first event.
+     *
+     * @param reportFolder  The report output folder of the run
+     * @param suite         The first suite that enabled the outputs, for its parameters
+     * @throws IOException  If the output can't be created
+     */
+    void open(File reportFolder, ISuite suite) throws IOException;
+
+    /**
+     * @param event         The next event of the run
+     * @throws IOException  If the event can't be written
+     */
+    void onEvent(ReportEvent event) throws IOException;
+
+    /**
+     * Called after the last event with the run details that are not part of the event stream.
+     *
+     * @param systemInfo        The system information of the run, may be empty
+     * @param testRunnerOutput  The test runner output lines of the run, may be empty
+     * @throws IOException      If the details can't be written
+     */
+    default void onRunFinish(Map<String, String> systemInfo, List<String> testRunnerOutput) throws IOException {
+    }
+
+    /**
+     * Called after {@link #onRunFinish(Map, List)}, at the end of the run.
+     *
+     * @throws IOException If the output can't be completed
+     */
+    void close() throws IOException;
+
+}
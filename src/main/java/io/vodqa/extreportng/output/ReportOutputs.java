@@ -0,0 +1,228 @@
+package io.vodqa.extreportng.output;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.testng.ISuite;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.Set;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The {@link ReportOutput}s of a run and the ring buffer feeding them.
+ *
+ * The listener thread only adds the event to the shared {@link EventRingBuffer};
+ * every output reads it on its own consumer thread, so a slow output does not delay the tests
+ * until it falls a whole buffer behind.
+ *
+ * The outputs are opened once per run, with the suite that enabled them first; see {@link ReportOutput}.
+ */
+public final class ReportOutputs implements Closeable {
+
+    private static final Logger log = LogManager.getLogger(ReportOutputs.class.getName());
+
+    public static final int DEFAULT_BUFFER_SIZE = 4096;
+
+    private static final int SPIN_TRIES = 100;
+    private static final int YIELD_TRIES = 100;
+    private static final long MAX_PARK_NANOS = 1000000;
+
+    private final EventRingBuffer ring;
+    private final List<Thread> consumers = new ArrayList<>();
+    private volatile Map<String, String> systemInfo = Collections.emptyMap();
+    private volatile List<String> testRunnerOutput = Collections.emptyList();
+
+    private ReportOutputs(List<ReportOutput> outputs, File reportFolder, ISuite suite, int bufferSize) {
+        ring = new EventRingBuffer(bufferSize, outputs.size());
+        for (int i = 0; i < outputs.size(); i++) {
+            ReportOutput output = outputs.get(i);
+            int index = i;
+            Thread consumer = new Thread(() -> consume(index, output, reportFolder, suite), "report-output-" + output.getName());
+            consumer.setDaemon(true);
+            consumers.add(consumer);
+        }
+        consumers.forEach(Thread::start);
+    }
+
+    /**
+     * Creates and starts the outputs.
+     *
+     * Outputs created by the caller, like the {@link HtmlReportOutput} rendering the listener's model,
+     * are picked by their name before the registered ones.
+     *
+     * @param outputNames   Comma separated output names or class names
+     * @param reportFolder  The report output folder of the run
+     * @param suite         The suite the outputs are enabled by
+     * @param bufferSize    The number of events the ring buffer holds
+     * @param provided      Outputs created by the caller
+     * @return              The running outputs
+     *
+     * @throws IllegalArgumentException If an output is unknown or a class does not implement {@link ReportOutput}
+     * @throws IllegalStateException    If an output class can't be instantiated
+     */
+    public static ReportOutputs open(String outputNames, File reportFolder, ISuite suite, int bufferSize,
+                                     ReportOutput... provided) {
+        Set<String> names = new LinkedHashSet<>();
+        for (String name : outputNames.split(",")) {
+            if (!name.trim().isEmpty()) {
+                names.add(name.trim());
+            }
+        }
+
+        List<ReportOutput> outputs = new ArrayList<>();
+        for (String name : names) {
+            outputs.add(create(name, provided));
+        }
+        log.info("Report outputs: " + names);
+        return new ReportOutputs(outputs, reportFolder, suite, bufferSize);
+    }
+
+    private static ReportOutput create(String name, ReportOutput[] provided) {
+        for (ReportOutput output : provided) {
+            if (name.equalsIgnoreCase(output.getName()) || name.equals(output.getClass().getName())) {
+                return output;
+            }
+        }
+
+        for (ReportOutput output : ServiceLoader.load(ReportOutput.class, ReportOutputs.class.getClassLoader())) {
+            if (name.equalsIgnoreCase(output.getName()) || name.equals(output.getClass().getName())) {
+                return output;
+            }
+        }
+
+        try {
+            Class<?> outputClass = Class.forName(name);
+            if (!ReportOutput.class.isAssignableFrom(outputClass)) {
+                throw new IllegalArgumentException(name + " does not implement " + ReportOutput.class.getName());
+            }
+            return (ReportOutput) outputClass.newInstance();
+        } catch (ClassNotFoundException e) {
+            throw new IllegalArgumentException("Unknown report output: " + name, e);
+        } catch (InstantiationException | IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Hands an event over to all outputs. Events published after {@link #close()} are dropped.
+     *
+     * @param event The event
+     */
+    public void publish(ReportEvent event) {
+        ring.publish(event);
+    }
+
+    private void consume(int index, ReportOutput output, File reportFolder, ISuite suite) {
+        try {
+            consume(index, output, open(output, reportFolder, suite));
+        } finally {
+            // the consumer is gone, even after an Error, it must not keep the producers waiting
+            ring.release(index, Long.MAX_VALUE);
+        }
+    }
+
+    private void consume(int index, ReportOutput output, boolean opened) {
+        boolean failed = !opened;
+        long next = 0;
+        int idle = 0;
+
+        while (true) {
+            ReportEvent event = ring.get(next);
+            if (event != null) {
+                if (!failed) {
+                    try {
+                        output.onEvent(event);
+                    } catch (IOException | RuntimeException e) {
+                        failed = true;
+                        log.error("Report output " + output.getName() + " failed, it receives no further events: " + e.getMessage());
+                    }
+                }
+                ring.release(index, next++);
+                idle = 0;
+            } else if (ring.isClosed() && next > ring.getClaimed()) {
+                break;
+            } else {
+                idle = idle(idle);
+            }
+        }
+
+        if (!failed) {
+            try {
+                output.onRunFinish(systemInfo, testRunnerOutput);
+            } catch (IOException | RuntimeException e) {
+                log.error("Report output " + output.getName() + " failed to add the run details: " + e.getMessage());
+            }
+            try {
+                output.close();
+            } catch (IOException | RuntimeException e) {
+                log.error("Failed to close report output " + output.getName() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private static boolean open(ReportOutput output, File reportFolder, ISuite suite) {
+        try {
+            output.open(reportFolder, suite);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            log.error("Failed to open report output " + output.getName() + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Waits for the next event: spins first, then yields, then parks for longer and longer.
+     */
+    private static int idle(int idle) {
+        if (idle >= SPIN_TRIES + YIELD_TRIES) {
+            LockSupport.parkNanos(Math.min(MAX_PARK_NANOS, 1000L << Math.min(10, idle - SPIN_TRIES - YIELD_TRIES)));
+        } else if (idle >= SPIN_TRIES) {
+            Thread.yield();
+        }
+        return idle + 1;
+    }
+
+    /**
+     * Lets every output process the remaining events and close, and waits for it.
+     */
+    @Override
+    public void close() {
+        close(Collections.emptyMap(), Collections.emptyList());
+    }
+
+    /**
+     * Lets every output process the remaining events, hands the run details over and closes the outputs,
+     * and waits for it.
+     *
+     * @param systemInfo        The system information of the run
+     * @param testRunnerOutput  The test runner output lines of the run
+     */
+    public void close(Map<String, String> systemInfo, List<String> testRunnerOutput) {
+        if (ring.isClosed()) {
+            return;
+        }
+        // read by the consumers once they see the buffer closed
+        this.systemInfo = systemInfo;
+        this.testRunnerOutput = testRunnerOutput;
+        if (!ring.close()) {
+            return;
+        }
+        for (Thread consumer : consumers) {
+            try {
+                consumer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.error("Interrupted while waiting for the report outputs");
+                return;
+            }
+        }
+    }
+}
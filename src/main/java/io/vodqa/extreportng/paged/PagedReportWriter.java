@@ -0,0 +1,314 @@
+package io.vodqa.extreportng.paged;
+
+import com.aventstack.extentreports.ExtentTest;
+import com.aventstack.extentreports.Status;
+import com.aventstack.extentreports.model.Log;
+import com.aventstack.extentreports.model.Test;
+import com.google.gson.Gson;
+import io.vodqa.extreportng.shard.ResultRecord;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Report output for very large runs.
+ *
+ * Instead of one html file embedding every test, the report is a small static shell page
+ * plus chunked data files of at most {@code chunkSize} tests, one or more per suite/test context.
+ * Data files are plain scripts calling {@code window.__reportChunk(id, tests)}, so the page can load them
+ * on demand with script tags and also works when opened from the file system.
+ *
+ * The manifest holds one status character and the category ids of every test,
+ * which the page uses as client-side indices for filtering and virtual scrolling without loading any chunk.
+ *
+ * The tests of a test context are written when the context finishes, so logs added to a test
+ * or its nodes by configuration methods after the test method, e.g. {@code @AfterMethod}, are part of the chunk.
+ * Tests added without a report node, like the ones {@link io.vodqa.extreportng.shard.ShardMerger} reads back,
+ * are written as soon as their test context has a full chunk.
+ */
+public class PagedReportWriter implements Closeable {
+
+    private static final Logger log = LogManager.getLogger(PagedReportWriter.class.getName());
+
+    public static final int DEFAULT_CHUNK_SIZE = 500;
+
+    private static final String DATA_FOLDER = "data";
+    private static final String SHELL_RESOURCE_DIR = "paged/";
+    private static final String[] SHELL_FILES = {"index.html", "paged-report.js", "paged-report.css"};
+
+    private final Gson gson = new Gson();
+    private final File folder;
+    private final File dataFolder;
+    private final int chunkSize;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Map<String, List<PagedTest>> pending = new LinkedHashMap<>();
+    private final List<Chunk> chunks = new ArrayList<>();
+    private final Map<String, Integer> categories = new LinkedHashMap<>();
+    private final Map<String, Integer> totals = new HashMap<>();
+    private boolean closed;
+
+    /**
+     * @param folder        The folder the paged report is written to
+     * @param chunkSize     Max number of tests per data file
+     * @throws IOException  If the data folder can't be created
+     */
+    public PagedReportWriter(File folder, int chunkSize) throws IOException {
+        this.folder = folder;
+        this.dataFolder = new File(folder, DATA_FOLDER);
+        this.chunkSize = Math.max(1, chunkSize);
+        Files.createDirectories(dataFolder.toPath());
+        log.info("Writing paged report to: " + folder);
+    }
+
+    /**
+     * Adds a finished test, it is written with the other tests of its test context.
+     *
+     * @param record    The {@link ResultRecord} of the finished test
+     * @param test      The {@link ExtentTest} of the finished test, its logs and node logs are added to the chunk.
+     *                  {@link org.testng.Reporter} output is part of the test logs, the record logs are not used
+     */
+    public void add(ResultRecord record, ExtentTest test) {
+        PagedTest pagedTest = new PagedTest(record, test);
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+
+            pending.computeIfAbsent(record.getSuite() + '|' + record.getContext(), k -> new ArrayList<>()).add(pagedTest);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Adds a finished test that has no report node, its logs are the {@link org.testng.Reporter} output of the record.
+     * There are no later logs to wait for, so a chunk is written as soon as the test context has {@code chunkSize} tests
+     * and at most one chunk per test context is held in memory.
+     *
+     * @param record The {@link ResultRecord} of the finished test
+     */
+    public void add(ResultRecord record) {
+        PagedTest pagedTest = new PagedTest(record, null);
+        String key = record.getSuite() + '|' + record.getContext();
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+
+            List<PagedTest> tests = pending.computeIfAbsent(key, k -> new ArrayList<>());
+            tests.add(pagedTest);
+            if (tests.size() >= chunkSize) {
+                pending.remove(key);
+                writeChunk(record.getSuite(), record.getContext(), tests);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes the tests of a finished test context, in chunks of at most {@code chunkSize} tests.
+     *
+     * @param suite     The suite name
+     * @param context   The test context name
+     */
+    public void finishContext(String suite, String context) {
+        lock.lock();
+        try {
+            List<PagedTest> tests = pending.remove(suite + '|' + context);
+            if (tests != null) {
+                writeChunks(suite, context, tests);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes all remaining tests, the manifest and the shell page.
+     *
+     * @throws IOException If the manifest or the shell page can't be written
+     */
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+
+            for (Map.Entry<String, List<PagedTest>> entry : pending.entrySet()) {
+                List<PagedTest> tests = entry.getValue();
+                if (!tests.isEmpty()) {
+                    writeChunks(tests.get(0).suite, tests.get(0).context, tests);
+                }
+            }
+            pending.clear();
+            closed = true;
+
+            Manifest manifest = new Manifest();
+            manifest.categories = new ArrayList<>(categories.keySet());
+            manifest.totals = totals;
+            manifest.chunks = chunks;
+            try (BufferedWriter writer = Files.newBufferedWriter(new File(dataFolder, "manifest.js").toPath(), StandardCharsets.UTF_8)) {
+                writer.write("window.__reportManifest(");
+                gson.toJson(manifest, writer);
+                writer.write(");\n");
+            }
+
+            ClassLoader classLoader = PagedReportWriter.class.getClassLoader();
+            for (String shellFile : SHELL_FILES) {
+                try (InputStream is = classLoader.getResourceAsStream(SHELL_RESOURCE_DIR + shellFile)) {
+                    if (is == null) {
+                        throw new IOException("Paged report resource is missing: " + SHELL_RESOURCE_DIR + shellFile);
+                    }
+                    Files.copy(is, new File(folder, shellFile).toPath(), StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            log.info("Paged report written: " + new File(folder, "index.html") + ", " + chunks.size() + " data chunks");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void writeChunks(String suite, String context, List<PagedTest> tests) {
+        for (int from = 0; from < tests.size(); from += chunkSize) {
+            writeChunk(suite, context, tests.subList(from, Math.min(tests.size(), from + chunkSize)));
+        }
+    }
+
+    private void writeChunk(String suite, String context, List<PagedTest> tests) {
+        Chunk chunk = new Chunk();
+        chunk.id = chunks.size();
+        chunk.suite = suite;
+        chunk.context = context;
+        chunk.count = tests.size();
+        chunk.categories = new int[tests.size()][];
+
+        StringBuilder statuses = new StringBuilder(tests.size());
+        for (int i = 0; i < tests.size(); i++) {
+            PagedTest test = tests.get(i);
+            test.addLogs();
+            statuses.append(test.status.charAt(0));
+            totals.merge(test.status, 1, Integer::sum);
+
+            String[] groups = test.groups == null ? new String[0] : test.groups;
+            int[] ids = new int[groups.length];
+            for (int g = 0; g < groups.length; g++) {
+                ids[g] = categories.computeIfAbsent(groups[g], k -> categories.size());
+            }
+            chunk.categories[i] = ids;
+        }
+        chunk.statuses = statuses.toString();
+
+        File chunkFile = new File(dataFolder, "chunk-" + chunk.id + ".js");
+        try (BufferedWriter writer = Files.newBufferedWriter(chunkFile.toPath(), StandardCharsets.UTF_8)) {
+            writer.write("window.__reportChunk(" + chunk.id + ",");
+            gson.toJson(tests, writer);
+            writer.write(");\n");
+        } catch (IOException e) {
+            log.error("Failed to write paged report chunk: " + chunkFile);
+            log.error(e.getMessage());
+        }
+        chunks.add(chunk);
+    }
+
+    private static final class Manifest {
+        private List<String> categories;
+        private Map<String, Integer> totals;
+        private List<Chunk> chunks;
+    }
+
+    private static final class Chunk {
+        private int id;
+        private String suite;
+        private String context;
+        private int count;
+        private String statuses;
+        private int[][] categories;
+    }
+
+    private static final class PagedTest {
+        private final transient String suite;
+        private final transient String context;
+        private final String name;
+        private final String className;
+        private final String parameters;
+        private final String description;
+        private final String[] groups;
+        private final String status;
+        private final long start;
+        private final long end;
+        private final String throwable;
+        private final List<PagedLog> logs = new ArrayList<>();
+        private transient ExtentTest test;
+
+        PagedTest(ResultRecord record, ExtentTest test) {
+            suite = record.getSuite();
+            context = record.getContext();
+            name = record.getMethod();
+            className = record.getClassName();
+            parameters = record.getParameters();
+            description = record.getDescription();
+            groups = record.getGroups();
+            status = record.getStatus();
+            start = record.getStartMillis();
+            end = record.getEndMillis();
+            throwable = record.getThrowable();
+            this.test = test;
+            if (test == null && record.getLogs() != null) {
+                for (String line : record.getLogs()) {
+                    logs.add(new PagedLog(Status.INFO.toString(), null, line));
+                }
+            }
+        }
+
+        /**
+         * Collects the logs of the test and its nodes, once the test context has finished.
+         */
+        void addLogs() {
+            if (test != null) {
+                addLogs(test.getModel(), null);
+                test = null;
+            }
+        }
+
+        private void addLogs(Test model, String node) {
+            for (Log entry : model.getLogContext().getAll()) {
+                logs.add(new PagedLog(entry.getStatus().toString(), node, entry.getDetails()));
+            }
+            for (Test child : model.getNodeContext().getAll()) {
+                addLogs(child, child.getName());
+            }
+        }
+    }
+
+    private static final class PagedLog {
+        private final String status;
+        private final String node;
+        private final String details;
+
+        PagedLog(String status, String node, String details) {
+            this.status = status;
+            this.node = node;
+            this.details = details;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package io.vodqa.extreportng.shard;
+
+import org.testng.ITestContext;
+import org.testng.ITestNGMethod;
+import org.testng.ITestResult;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compact, serializable outcome of one test method invocation,
+ * written as one JSON line per test to the result shard.
+ */
+public class ResultRecord {
+
+    public static final String PASS = "PASS";
+    public static final String FAIL = "FAIL";
+    public static final String SKIP = "SKIP";
+
+    private String suite;
+    private String context;
+    private String className;
+    private String method;
+    private String parameters;
+    private int invocation;
+    private boolean retried;
+    private String description;
+    private String[] groups;
+    private String status;
+    private long startMillis;
+    private long endMillis;
+    private String throwable;
+    private List<String> logs;
+
+    /**
+     * Creates the record of a finished test method.
+     *
+     * @param iTestResult   TestNG {@link ITestResult} object
+     * @param logs          The {@link org.testng.Reporter} output of the test
+     * @return              The record
+     */
+    public static ResultRecord from(ITestResult iTestResult, List<String> logs) {
+        ResultRecord record = new ResultRecord();
+        ITestContext iTestContext = iTestResult.getTestContext();
+        ITestNGMethod method = iTestResult.getMethod();
+
+        record.suite = iTestContext.getSuite().getName();
+        record.context = iTestContext.getName();
+        record.className = method.getRealClass().getName();
+        record.method = method.getMethodName();
+        Object[] parameters = iTestResult.getParameters();
+        record.parameters = parameters == null || parameters.length == 0 ? null : Arrays.deepToString(parameters);
+        record.description = method.getDescription();
+        record.groups = method.getGroups();
+        record.status = toStatus(iTestResult.getStatus());
+        record.startMillis = iTestResult.getStartMillis();
+        record.endMillis = iTestResult.getEndMillis();
+        record.throwable = iTestResult.getThrowable() == null ? null : getStackTrace(iTestResult.getThrowable());
+        record.logs = logs;
+        record.retried = iTestResult.wasRetried();
+        return record;
+    }
+
+    private static String toStatus(int status) {
+        switch (status) {
+            case ITestResult.SUCCESS:
+                return PASS;
+            case ITestResult.FAILURE:
+            case ITestResult.SUCCESS_PERCENTAGE_FAILURE:
+                return FAIL;
+            default:
+                return SKIP;
+        }
+    }
+
+    private static String getStackTrace(Throwable t) {
+        StringWriter writer = new StringWriter();
+        t.printStackTrace(new PrintWriter(writer));
+        return writer.toString();
+    }
+
+    /**
+     * @return The identity of the test method and its parameters, equal for all invocations of the same data
+     */
+    String getMethodKey() {
+        return suite + '|' + context + '|' + className + '|' + method + '|' + (parameters == null ? "" : parameters);
+    }
+
+    /**
+     * @return The identity of the test method invocation, equal for all retries of the same invocation
+     */
+    public String getKey() {
+        return getMethodKey() + '|' + invocation;
+    }
+
+    public String getSuite() {
+        return suite;
+    }
+
+    public String getContext() {
+        return context;
+    }
+
+    public String getClassName() {
+        return className;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public String getParameters() {
+        return parameters;
+    }
+
+    /**
+     * @return The index of the invocation among the invocations of the same method with the same parameters
+     * in the shard, retries keep the index of the attempt they retry
+     */
+    public int getInvocation() {
+        return invocation;
+    }
+
+    void setInvocation(int invocation) {
+        this.invocation = invocation;
+    }
+
+    /**
+     * @return Whether TestNG retried this attempt, so a later record of the same invocation supersedes it
+     */
+    public boolean isRetried() {
+        return retried;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public String[] getGroups() {
+        return groups;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public long getStartMillis() {
+        return startMillis;
+    }
+
+    public long getEndMillis() {
+        return endMillis;
+    }
+
+    public String getThrowable() {
+        return throwable;
+    }
+
+    public List<String> getLogs() {
+        return logs;
+    }
+}
@@ -0,0 +1,147 @@
+package io.vodqa.extreportng.shard;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+import io.vodqa.extreportng.paged.PagedReportWriter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Command line tool that merges the result shards of several CI agents into one paged html report.
+ *
+ * Usage:
+ * <pre>
+ *     java -cp tnghtmlreport.jar io.vodqa.extreportng.shard.ShardMerger &lt;shard folder | shards.tar | shards.tar.gz&gt; [output folder]
+ * </pre>
+ *
+ * Shards are streamed twice. The first pass builds a small index with the winning attempt of every test invocation.
+ * Attempts TestNG retried are dropped, and an invocation found in several shards, e.g. of a re-run agent,
+ * keeps the latest finished attempt. Repeated invocations of the same method, {@code invocationCount}
+ * or identical data provider rows, are numbered by the shard writer and all show up.
+ * The second pass streams the winning records into a {@link PagedReportWriter}, which writes a data chunk
+ * as soon as a test context has a full one. Memory use depends on the number of distinct invocations in the index
+ * and one chunk per test context, not on the size of the shards or their logs.
+ */
+public class ShardMerger {
+
+    private static final Logger log = LogManager.getLogger(ShardMerger.class.getName());
+
+    private final Gson gson = new Gson();
+    private final ShardSource source;
+    private final Map<String, Attempt> index = new HashMap<>();
+
+    private int records;
+    private int retries;
+    private int duplicates;
+
+    public ShardMerger(File source) {
+        this.source = new ShardSource(source);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: ShardMerger <shard folder | shards.tar | shards.tar.gz> [output folder]");
+            System.exit(2);
+        }
+
+        File input = new File(args[0]);
+        File output = args.length > 1 ? new File(args[1]) : (input.isDirectory() ? input : input.getAbsoluteFile().getParentFile());
+        File report = new ShardMerger(input).merge(output);
+        System.out.println("Merged report: " + report.getAbsolutePath());
+    }
+
+    /**
+     * Merges all shards into a paged report in the {@code paged} folder of the given folder.
+     *
+     * @param outputFolder  The folder the report is written to
+     * @return              The {@code index.html} of the report
+     * @throws IOException  If the shards can't be read or the report can't be written
+     */
+    public File merge(File outputFolder) throws IOException {
+        buildIndex();
+        log.info("Indexed " + records + " records, " + index.size() + " distinct invocations, "
+                + retries + " retried attempts and " + duplicates + " duplicate attempts dropped");
+
+        File reportFolder = new File(outputFolder, "paged");
+        try (PagedReportWriter report = new PagedReportWriter(reportFolder, PagedReportWriter.DEFAULT_CHUNK_SIZE)) {
+            writeWinners(report);
+        }
+        return new File(reportFolder, "index.html");
+    }
+
+    private void buildIndex() throws IOException {
+        source.forEach((shardIndex, name, in) -> {
+            log.debug("Indexing shard: " + name);
+            forEachRecord(shardIndex, name, in, (position, record) -> {
+                records++;
+                if (record.isRetried()) {
+                    retries++;
+                    return;
+                }
+
+                Attempt attempt = new Attempt(position, record.getEndMillis());
+                Attempt previous = index.putIfAbsent(record.getKey(), attempt);
+                if (previous != null) {
+                    duplicates++;
+                    if (attempt.endMillis >= previous.endMillis) {
+                        index.put(record.getKey(), attempt);
+                    }
+                }
+            });
+        });
+    }
+
+    private void writeWinners(PagedReportWriter report) throws IOException {
+        source.forEach((shardIndex, name, in) -> forEachRecord(shardIndex, name, in, (position, record) -> {
+            Attempt winner = index.get(record.getKey());
+            if (winner != null && winner.position == position) {
+                report.add(record);
+            }
+        }));
+    }
+
+    private void forEachRecord(int shardIndex, String name, InputStream in, RecordVisitor visitor) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String line;
+        long lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isEmpty()) {
+                continue;
+            }
+
+            ResultRecord record;
+            try {
+                record = gson.fromJson(line, ResultRecord.class);
+            } catch (JsonSyntaxException e) {
+                // the last line of a shard written by a killed JVM may be incomplete
+                log.error("Skipping unreadable record " + name + ":" + lineNumber + " - " + e.getMessage());
+                continue;
+            }
+            visitor.visit(((long) shardIndex << 40) | lineNumber, record);
+        }
+    }
+
+    private interface RecordVisitor {
+        void visit(long position, ResultRecord record);
+    }
+
+    private static final class Attempt {
+        private final long position;
+        private final long endMillis;
+
+        Attempt(long position, long endMillis) {
+            this.position = position;
+            this.endMillis = endMillis;
+        }
+    }
+}
@@ -0,0 +1,356 @@
+package io.vodqa.extreportng.shard;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Streams the result shards found in a folder, a {@code .tar} or a {@code .tar.gz}/{@code .tgz} archive.
+ * Shards are read one at a time, nothing is extracted to disk.
+ *
+ * The tar reader understands ustar, GNU and pax archives as written by common tar tools:
+ * long names from the ustar prefix, GNU {@code L} entries and pax {@code path} records,
+ * sizes from octal, GNU base-256 and pax {@code size} records. Sparse shard entries are rejected.
+ */
+class ShardSource {
+
+    /**
+     * Receives the shards one by one.
+     */
+    interface ShardVisitor {
+        /**
+         * @param shardIndex    Position of the shard in the source, stable between visits
+         * @param name          The shard name
+         * @param in            The shard content, only valid for the duration of the call
+         */
+        void visit(int shardIndex, String name, InputStream in) throws IOException;
+    }
+
+    private static final int TAR_BLOCK = 512;
+    private static final int MAX_HEADER_ENTRY_SIZE = 1024 * 1024;
+
+    private final File source;
+
+    ShardSource(File source) {
+        this.source = source;
+    }
+
+    /**
+     * Visits every shard of the source in a stable order.
+     *
+     * @param visitor       The {@link ShardVisitor} to receive the shards
+     * @throws IOException  If the source can't be read
+     */
+    void forEach(ShardVisitor visitor) throws IOException {
+        if (source.isDirectory()) {
+            visitFolder(visitor);
+        } else {
+            visitTar(visitor);
+        }
+    }
+
+    private void visitFolder(ShardVisitor visitor) throws IOException {
+        File[] shards = source.listFiles((dir, name) -> name.endsWith(ShardWriter.SHARD_EXTENSION));
+        if (shards == null) {
+            throw new IOException("Unable to list shards in: " + source);
+        }
+        Arrays.sort(shards);
+
+        for (int i = 0; i < shards.length; i++) {
+            try (InputStream in = new BufferedInputStream(Files.newInputStream(shards[i].toPath()))) {
+                visitor.visit(i, shards[i].getName(), in);
+            }
+        }
+    }
+
+    private void visitTar(ShardVisitor visitor) throws IOException {
+        String name = source.getName().toLowerCase();
+        boolean gzip = name.endsWith(".gz") || name.endsWith(".tgz");
+
+        try (InputStream file = new BufferedInputStream(Files.newInputStream(source.toPath()));
+             InputStream in = gzip ? new GZIPInputStream(file, 64 * 1024) : file) {
+
+            byte[] header = new byte[TAR_BLOCK];
+            int shardIndex = 0;
+            // set by the GNU long name and pax entries for the entry following them
+            String nextName = null;
+            long nextSize = -1;
+            while (readBlock(in, header)) {
+                if (isZeroBlock(header)) {
+                    break;
+                }
+
+                String entryName = getEntryName(header);
+                long size = parseNumber(header, 124, 12, entryName);
+                byte type = header[156];
+
+                if (type == 'L' || type == 'x') {
+                    byte[] data = readEntry(in, size, entryName);
+                    if (type == 'L') {
+                        nextName = readString(data, 0, data.length);
+                    } else {
+                        Map<String, String> records = parsePax(data, entryName);
+                        nextName = records.getOrDefault("path", nextName);
+                        if (records.containsKey("size")) {
+                            nextSize = parsePaxSize(records.get("size"), entryName);
+                        }
+                    }
+                    continue;
+                }
+
+                if (nextName != null) {
+                    entryName = nextName;
+                    nextName = null;
+                }
+                if (nextSize >= 0) {
+                    size = nextSize;
+                    nextSize = -1;
+                }
+
+                boolean shard = entryName.endsWith(ShardWriter.SHARD_EXTENSION);
+                if (shard && type == 'S') {
+                    throw new IOException("Sparse tar entries are not supported: " + entryName);
+                }
+
+                // '7' is a contiguous file, read like a regular one
+                boolean regularFile = type == '0' || type == 0 || type == '7';
+                if (regularFile && shard) {
+                    BoundedInputStream entry = new BoundedInputStream(in, size);
+                    visitor.visit(shardIndex++, entryName, entry);
+                    entry.skipRemaining();
+                } else {
+                    skipFully(in, size);
+                }
+                skipFully(in, padding(size));
+            }
+        }
+    }
+
+    /**
+     * Reads the data of a GNU long name or pax header entry, including its padding.
+     */
+    private static byte[] readEntry(InputStream in, long size, String entryName) throws IOException {
+        if (size > MAX_HEADER_ENTRY_SIZE) {
+            throw new IOException("Tar header entry " + entryName + " is too large: " + size + " bytes");
+        }
+
+        byte[] data = new byte[(int) size];
+        int read = 0;
+        while (read < data.length) {
+            int n = in.read(data, read, data.length - read);
+            if (n < 0) {
+                throw new IOException("Truncated tar archive");
+            }
+            read += n;
+        }
+        skipFully(in, padding(size));
+        return data;
+    }
+
+    /**
+     * Parses the {@code "<length> <key>=<value>\n"} records of a pax extended header.
+     */
+    private static Map<String, String> parsePax(byte[] data, String entryName) throws IOException {
+        Map<String, String> records = new HashMap<>();
+        int position = 0;
+        while (position < data.length) {
+            int space = position;
+            while (space < data.length && data[space] != ' ') {
+                space++;
+            }
+
+            int length;
+            try {
+                length = Integer.parseInt(new String(data, position, space - position, StandardCharsets.UTF_8));
+            } catch (NumberFormatException e) {
+                throw new IOException("Malformed pax header in tar entry " + entryName, e);
+            }
+            int end = position + length;
+            if (length <= 0 || end > data.length || space >= end || data[end - 1] != '\n') {
+                throw new IOException("Malformed pax header in tar entry " + entryName);
+            }
+
+            String record = new String(data, space + 1, end - space - 2, StandardCharsets.UTF_8);
+            int equals = record.indexOf('=');
+            if (equals < 0) {
+                throw new IOException("Malformed pax header in tar entry " + entryName);
+            }
+            records.put(record.substring(0, equals), record.substring(equals + 1));
+            position = end;
+        }
+        return records;
+    }
+
+    private static long parsePaxSize(String value, String entryName) throws IOException {
+        try {
+            long size = Long.parseLong(value.trim());
+            if (size < 0) {
+                throw new IOException("Negative size in pax header of tar entry " + entryName);
+            }
+            return size;
+        } catch (NumberFormatException e) {
+            throw new IOException("Malformed size in pax header of tar entry " + entryName, e);
+        }
+    }
+
+    private static long padding(long size) {
+        return (TAR_BLOCK - size % TAR_BLOCK) % TAR_BLOCK;
+    }
+
+    private static String getEntryName(byte[] header) {
+        String name = readString(header, 0, 100);
+        // ustar archives keep long paths in the prefix field
+        if ("ustar".equals(readString(header, 257, 6).trim())) {
+            String prefix = readString(header, 345, 155);
+            if (!prefix.isEmpty()) {
+                name = prefix + "/" + name;
+            }
+        }
+        return name;
+    }
+
+    private static boolean readBlock(InputStream in, byte[] block) throws IOException {
+        int read = 0;
+        while (read < block.length) {
+            int n = in.read(block, read, block.length - read);
+            if (n < 0) {
+                if (read == 0) {
+                    return false;
+                }
+                throw new IOException("Truncated tar archive");
+            }
+            read += n;
+        }
+        return true;
+    }
+
+    private static boolean isZeroBlock(byte[] block) {
+        for (byte b : block) {
+            if (b != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String readString(byte[] header, int offset, int length) {
+        int end = offset;
+        while (end < offset + length && header[end] != 0) {
+            end++;
+        }
+        return new String(header, offset, end - offset, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Parses a numeric header field, octal or, with the high bit of the first byte set, GNU base-256.
+     */
+    private static long parseNumber(byte[] header, int offset, int length, String entryName) throws IOException {
+        if ((header[offset] & 0x80) != 0) {
+            if ((header[offset] & 0x40) != 0) {
+                throw new IOException("Negative size in tar entry " + entryName);
+            }
+            long value = header[offset] & 0x3F;
+            for (int i = offset + 1; i < offset + length; i++) {
+                if ((value & 0xFF00000000000000L) != 0) {
+                    throw new IOException("Size of tar entry " + entryName + " is too large");
+                }
+                value = (value << 8) | (header[i] & 0xFF);
+            }
+            return value;
+        }
+
+        long value = 0;
+        for (int i = offset; i < offset + length; i++) {
+            byte b = header[i];
+            if (b >= '0' && b <= '7') {
+                value = (value << 3) + (b - '0');
+            } else if (b == 0 || b == ' ') {
+                if (value > 0) {
+                    break;
+                }
+            } else {
+                throw new IOException("Malformed number in tar entry " + entryName);
+            }
+        }
+        return value;
+    }
+
+    private static void skipFully(InputStream in, long bytes) throws IOException {
+        long remaining = bytes;
+        while (remaining > 0) {
+            long skipped = in.skip(remaining);
+            if (skipped <= 0) {
+                if (in.read() < 0) {
+                    throw new IOException("Truncated tar archive");
+                }
+                skipped = 1;
+            }
+            remaining -= skipped;
+        }
+    }
+
+    /**
+     * Exposes one tar entry of the archive stream, closing it does not close the archive.
+     */
+    private static final class BoundedInputStream extends FilterInputStream {
+        private long remaining;
+
+        BoundedInputStream(InputStream in, long size) {
+            super(in);
+            this.remaining = size;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int b = in.read();
+            if (b >= 0) {
+                remaining--;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int n = in.read(b, off, (int) Math.min(len, remaining));
+            if (n > 0) {
+                remaining -= n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = in.skip(Math.min(n, remaining));
+            remaining -= skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(in.available(), remaining);
+        }
+
+        @Override
+        public void close() {
+        }
+
+        void skipRemaining() throws IOException {
+            skipFully(in, remaining);
+            remaining = 0;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package io.vodqa.extreportng.shard;
+
+import com.google.gson.Gson;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Append-only JSON-lines result shard, one file per JVM.
+ *
+ * Every finished test is appended as one {@link ResultRecord} line and flushed,
+ * so a shard stays readable up to the last finished test even if the JVM dies.
+ * Shards of several CI agents are combined with {@link ShardMerger}.
+ */
+public class ShardWriter implements Closeable {
+
+    private static final Logger log = LogManager.getLogger(ShardWriter.class.getName());
+
+    public static final String SHARD_EXTENSION = ".jsonl";
+
+    private final Gson gson = new Gson();
+    private final File shardFile;
+    private final BufferedWriter writer;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<String, Integer> invocations = new HashMap<>();
+
+    /**
+     * Opens the shard of this JVM in the given folder.
+     *
+     * @param folder        The report output folder
+     * @throws IOException  If the shard can't be created
+     */
+    public ShardWriter(File folder) throws IOException {
+        String jvmName = ManagementFactory.getRuntimeMXBean().getName().replaceAll("[^A-Za-z0-9_.-]", "_");
+        shardFile = new File(folder, "shard-" + jvmName + SHARD_EXTENSION);
+        Files.createDirectories(folder.toPath());
+        writer = Files.newBufferedWriter(shardFile.toPath(), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        log.info("Writing result shard to: " + shardFile);
+    }
+
+    /**
+     * Appends the record to the shard.
+     * Numbers the invocations of the same method with the same parameters,
+     * so {@code invocationCount} and repeated data provider rows stay distinct in the merged report.
+     *
+     * @param record The {@link ResultRecord} of a finished test
+     */
+    public void append(ResultRecord record) {
+        synchronized (invocations) {
+            String key = record.getMethodKey();
+            int invocation = invocations.getOrDefault(key, 0);
+            record.setInvocation(invocation);
+            if (!record.isRetried()) {
+                invocations.put(key, invocation + 1);
+            }
+        }
+        String line = gson.toJson(record);
+        lock.lock();
+        try {
+            writer.write(line);
+            writer.newLine();
+            writer.flush();
+        } catch (IOException e) {
+            log.error("Failed to append to result shard: " + shardFile);
+            log.error(e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public File getShardFile() {
+        return shardFile;
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            writer.close();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
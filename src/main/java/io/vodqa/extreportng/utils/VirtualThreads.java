@@ -0,0 +1,91 @@
+package io.vodqa.extreportng.utils;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Opt-in virtual thread support.
+ *
+ * The library is built for Java 8, so virtual threads are looked up reflectively.
+ * They are used only when the {@code report.virtualThreads} system property is {@code true}
+ * and the running JDK provides them (JDK 21+), otherwise callers fall back to platform threads.
+ */
+public final class VirtualThreads {
+
+    private static final Logger log = LogManager.getLogger(VirtualThreads.class.getName());
+
+    public static final String PROPERTY = "report.virtualThreads";
+
+    private static final Method NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR = findMethod(Executors.class, "newVirtualThreadPerTaskExecutor");
+    private static final Method IS_VIRTUAL = findMethod(Thread.class, "isVirtual");
+    private static final boolean ENABLED = Boolean.getBoolean(PROPERTY) && checkSupported();
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * @return true if the running JDK provides virtual threads
+     */
+    public static boolean isSupported() {
+        return NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR != null && IS_VIRTUAL != null;
+    }
+
+    /**
+     * @return true if the virtual thread execution mode is enabled and supported
+     */
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /**
+     * @return A new executor that starts a virtual thread for each task
+     * @throws UnsupportedOperationException If the running JDK has no virtual threads
+     */
+    public static ExecutorService newVirtualThreadPerTaskExecutor() {
+        if (!isSupported()) {
+            throw new UnsupportedOperationException("Virtual threads need JDK 21 or later");
+        }
+
+        try {
+            return (ExecutorService) NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Failed to create virtual thread executor", e);
+        }
+    }
+
+    /**
+     * @param thread    The thread to check
+     * @return          true if the thread is a virtual thread
+     */
+    public static boolean isVirtual(Thread thread) {
+        if (IS_VIRTUAL == null) {
+            return false;
+        }
+
+        try {
+            return (Boolean) IS_VIRTUAL.invoke(thread);
+        } catch (ReflectiveOperationException e) {
+            return false;
+        }
+    }
+
+    private static boolean checkSupported() {
+        if (!isSupported()) {
+            log.warn(PROPERTY + " is set but the running JDK has no virtual threads, using platform threads");
+            return false;
+        }
+        return true;
+    }
+
+    private static Method findMethod(Class<?> type, String name) {
+        try {
+            return type.getMethod(name);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
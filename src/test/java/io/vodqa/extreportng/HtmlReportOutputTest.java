@@ -0,0 +1,133 @@
+package io.vodqa.extreportng;
+
+import com.aventstack.extentreports.Status;
+import com.aventstack.extentreports.markuputils.ExtentColor;
+import com.aventstack.extentreports.markuputils.MarkupHelper;
+import io.vodqa.extreportng.listener.TNGReportListener;
+import io.vodqa.extreportng.output.HtmlReportOutput;
+import org.testng.Assert;
+import org.testng.IInvokedMethod;
+import org.testng.ISuite;
+import org.testng.ITestContext;
+import org.testng.ITestNGMethod;
+import org.testng.ITestResult;
+import org.testng.Reporter;
+import org.testng.annotations.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Drives the listener through a known run and checks what the html report shows of it.
+ *
+ * The build runs it in its own JVM, so the listener does not replace the report instance of the other suites.
+ */
+public class HtmlReportOutputTest {
+
+    @Test
+    public void rendersTheListenerModel() throws Exception {
+        Map<String, String> parameters = new HashMap<>();
+        parameters.put("report.log.batch", "true");
+        parameters.put("report.log.batch.lines", "2");
+        parameters.put("report.log.retain.head", "1");
+        parameters.put("report.log.retain.tail", "1");
+
+        String html = run(parameters, listener -> {
+            TNGReportListener.getExtentTest().assignAuthor("html-author");
+            TNGReportListener.getExtentTest().createNode("custom node").info("custom node log");
+            listener.addLogToTest(Status.INFO, "first step");
+            listener.addLogToTest(Status.INFO, MarkupHelper.createLabel("elided step", ExtentColor.BLUE));
+            listener.addLogToTest(Status.INFO, "last step");
+            for (int i = 1; i <= 3; i++) {
+                Reporter.log("reporter line " + i);
+            }
+        });
+
+        Assert.assertTrue(html.contains("login"), "test name");
+        Assert.assertTrue(html.contains("html-author"), "author assigned through getExtentTest()");
+        Assert.assertTrue(html.contains("custom node log"), "node created through getExtentTest()");
+        Assert.assertTrue(html.contains("smoke"), "category");
+
+        Assert.assertTrue(html.contains("first step"), "retained head entry");
+        Assert.assertTrue(html.contains("last step"), "retained tail entry");
+        Assert.assertFalse(html.contains("elided step"), "elided entry");
+        Assert.assertTrue(html.contains("1 INFO entries elided"), "elided entries summary");
+
+        Assert.assertTrue(html.contains("Reporter output, lines 1-2"), "first reporter output block");
+        Assert.assertTrue(html.contains("Reporter output, lines 3-3"), "second reporter output block");
+
+        Assert.assertTrue(html.contains("checkout"), "failed test name");
+        Assert.assertTrue(html.contains("java.lang.AssertionError"), "exception");
+        Assert.assertTrue(html.contains("expected [pass] but found [fail]"), "exception message");
+        Assert.assertTrue(html.contains("runner output line"), "test runner output");
+    }
+
+    @Test
+    public void writesOneReport() throws Exception {
+        Path report = Files.createTempDirectory("html-report-output");
+        run(report, Collections.emptyMap(), listener -> {
+        });
+
+        Assert.assertTrue(Files.isRegularFile(report.resolve(HtmlReportOutput.FILE_NAME)));
+        Assert.assertFalse(Files.exists(report.resolve("html")), "replayed copy of the report");
+    }
+
+    private static String run(Map<String, String> parameters, TestBody body) throws Exception {
+        Path report = Files.createTempDirectory("html-report-output");
+        run(report, parameters, body);
+        return new String(Files.readAllBytes(report.resolve(HtmlReportOutput.FILE_NAME)), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Runs a passing test {@code login} with the given body and a failing test {@code checkout}
+     * of group {@code smoke} in one suite, then generates the report.
+     */
+    private static void run(Path report, Map<String, String> parameters, TestBody body) throws Exception {
+        String reportPath = System.getProperty("reportPath");
+        TNGReportListener listener = new TNGReportListener();
+        System.setProperty("reportPath", report.toString());
+
+        try {
+            ISuite suite = Stubs.suite("Html Suite", parameters);
+            ITestContext context = Stubs.testContext("Html Tests", suite);
+            listener.onStart(suite);
+            listener.onStart(context);
+
+            ITestNGMethod login = Stubs.testMethod("login", "smoke");
+            ITestResult loginResult = Stubs.testResult(login, context, ITestResult.SUCCESS, null);
+            IInvokedMethod loginInvocation = Stubs.invokedMethod(login);
+            listener.beforeInvocation(loginInvocation, loginResult);
+            Reporter.setCurrentTestResult(loginResult);
+            body.run(listener);
+            Reporter.setCurrentTestResult(null);
+            listener.afterInvocation(loginInvocation, loginResult);
+
+            ITestNGMethod checkout = Stubs.testMethod("checkout", "smoke");
+            ITestResult checkoutResult = Stubs.testResult(checkout, context, ITestResult.FAILURE,
+                    new AssertionError("expected [pass] but found [fail]"));
+            IInvokedMethod checkoutInvocation = Stubs.invokedMethod(checkout);
+            listener.beforeInvocation(checkoutInvocation, checkoutResult);
+            listener.afterInvocation(checkoutInvocation, checkoutResult);
+
+            listener.onFinish(context);
+            listener.onFinish(suite);
+            listener.setTestRunnerOutput("runner output line");
+            listener.generateReport(Collections.emptyList(), Collections.singletonList(suite), report.toString());
+        } finally {
+            Reporter.clear();
+            if (reportPath != null) {
+                System.setProperty("reportPath", reportPath);
+            } else {
+                System.clearProperty("reportPath");
+            }
+        }
+    }
+
+    private interface TestBody {
+        void run(TNGReportListener listener) throws Exception;
+    }
+}
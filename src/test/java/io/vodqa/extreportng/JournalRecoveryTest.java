@@ -0,0 +1,72 @@
+package io.vodqa.extreportng;
+
+import com.aventstack.extentreports.Status;
+import io.vodqa.extreportng.journal.JournalRecovery;
+import io.vodqa.extreportng.journal.ResultJournal;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes a journal, cuts it off in the middle of its last record like a crash would,
+ * and rebuilds the report from what is left.
+ */
+public class JournalRecoveryTest {
+
+    @Test
+    public void rebuildsReportFromJournalCutOffMidRecord() throws IOException {
+        File folder = Files.createTempDirectory("journal-recovery").toFile();
+        ResultJournal journal = new ResultJournal(folder, 1000);
+        journal.append(ResultJournal.SUITE_START, 1, 0, null, "Recovered Suite");
+        journal.append(ResultJournal.CONTEXT_START, 2, 1, null, "Recovered Tests");
+        journal.append(ResultJournal.TEST_START, 3, 2, null, "login");
+        journal.append(ResultJournal.LOG, 3, 0, Status.INFO, new StringBuilder("Opened the login page"));
+        journal.append(ResultJournal.TEST_FINISH, 3, 0, Status.PASS, null);
+        journal.append(ResultJournal.TEST_START, 4, 2, null, "checkout");
+        journal.append(ResultJournal.LOG, 4, 0, Status.INFO, "Step that never made it to disk");
+        journal.close();
+
+        File journalFile = journal.getJournalFile();
+        cutLastRecord(journalFile);
+
+        File report = new JournalRecovery(journalFile).recover(new File(folder, "recovered"));
+        String html = new String(Files.readAllBytes(report.toPath()), StandardCharsets.UTF_8);
+
+        Assert.assertTrue(html.contains("Recovered Suite"), "suite");
+        Assert.assertTrue(html.contains("login"), "finished test");
+        Assert.assertTrue(html.contains("Opened the login page"), "log entry");
+        Assert.assertTrue(html.contains("checkout"), "test started before the crash");
+        Assert.assertFalse(html.contains("Step that never made it to disk"), "incomplete record");
+    }
+
+    /**
+     * Truncates the journal in the middle of its last record.
+     */
+    private static void cutLastRecord(File journalFile) throws IOException {
+        try (FileChannel channel = FileChannel.open(journalFile.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long last = -1;
+            long position = 0;
+            ByteBuffer length = ByteBuffer.allocate(4);
+            while (position + 4 <= channel.size()) {
+                length.clear();
+                channel.read(length, position);
+                int recordLength = length.getInt(0);
+                if (recordLength == 0) {
+                    break;
+                }
+                last = position;
+                position += recordLength;
+            }
+            Assert.assertTrue(last >= 0, "The journal has no records");
+            // keeps the length and part of the header
+            channel.truncate(last + 10);
+        }
+    }
+}
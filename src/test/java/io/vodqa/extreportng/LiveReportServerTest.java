@@ -0,0 +1,149 @@
+package io.vodqa.extreportng;
+
+import com.aventstack.extentreports.Status;
+import io.vodqa.extreportng.journal.ResultJournal;
+import io.vodqa.extreportng.live.LiveReportServer;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads the event stream of the {@link LiveReportServer} with a plain http client.
+ */
+public class LiveReportServerTest {
+
+    private static final int READ_TIMEOUT_MILLIS = 10000;
+
+    @Test
+    public void streamsPublishedEvents() throws Exception {
+        try (LiveReportServer server = newServer(64)) {
+            HttpURLConnection connection = connect(server, null);
+            try (BufferedReader reader = reader(connection)) {
+                Assert.assertEquals(connection.getResponseCode(), 200);
+                Assert.assertTrue(connection.getContentType().startsWith("text/event-stream"));
+
+                server.publish(ResultJournal.TEST_START, 2, 1, null, "login");
+                server.publish(ResultJournal.LOG, 2, 0, Status.INFO, "Opened the login page");
+                server.publish(ResultJournal.TEST_FINISH, 2, 0, Status.PASS, null);
+
+                List<String> events = readEvents(reader, 3);
+                Assert.assertTrue(events.get(0).contains("event: test-start"), events.get(0));
+                Assert.assertTrue(events.get(0).contains("\"text\":\"login\""), events.get(0));
+                Assert.assertTrue(events.get(1).contains("event: log"), events.get(1));
+                Assert.assertTrue(events.get(2).contains("event: test-finish"), events.get(2));
+                Assert.assertTrue(events.get(2).contains("\"status\":\"pass\""), events.get(2));
+            }
+        }
+    }
+
+    @Test
+    public void replaysBufferedEventsAfterLastEventId() throws Exception {
+        try (LiveReportServer server = newServer(64)) {
+            for (int i = 1; i <= 5; i++) {
+                server.publish(ResultJournal.LOG, 2, 0, Status.INFO, "step " + i);
+            }
+
+            HttpURLConnection connection = connect(server, "3");
+            try (BufferedReader reader = reader(connection)) {
+                List<String> events = readEvents(reader, 2);
+                Assert.assertTrue(events.get(0).startsWith("id: 4"), events.get(0));
+                Assert.assertTrue(events.get(1).startsWith("id: 5"), events.get(1));
+            }
+        }
+    }
+
+    @Test
+    public void slowViewerDoesNotBlockPublishing() throws Exception {
+        char[] text = new char[1024];
+        Arrays.fill(text, 'x');
+        String message = new String(text);
+
+        try (LiveReportServer server = newServer(16)) {
+            HttpURLConnection connection = connect(server, null);
+            try (BufferedReader reader = reader(connection)) {
+                Assert.assertEquals(connection.getResponseCode(), 200);
+
+                // the viewer reads nothing while the events are published, far more than the socket buffers hold
+                long start = System.nanoTime();
+                for (int i = 0; i < 50000; i++) {
+                    server.publish(ResultJournal.LOG, 2, 0, Status.INFO, message);
+                }
+                Assert.assertTrue(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start) < 10,
+                        "Publishing was held up by the viewer");
+
+                boolean dropped = false;
+                for (String event = readEvent(reader); event != null; event = readEvent(reader)) {
+                    if (event.contains("event: dropped")) {
+                        dropped = true;
+                        break;
+                    }
+                }
+                Assert.assertTrue(dropped, "The viewer was not told about dropped events");
+            }
+        }
+    }
+
+    private static LiveReportServer newServer(int bufferSize) throws IOException {
+        return new LiveReportServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0),
+                Files.createTempDirectory("live-report").toFile(), bufferSize, 4);
+    }
+
+    private static HttpURLConnection connect(LiveReportServer server, String lastEventId) throws IOException {
+        URL url = new URL("http://" + InetAddress.getLoopbackAddress().getHostAddress() + ":" + server.getPort() + "/events");
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setReadTimeout(READ_TIMEOUT_MILLIS);
+        if (lastEventId != null) {
+            connection.setRequestProperty("Last-Event-ID", lastEventId);
+        }
+        connection.connect();
+        return connection;
+    }
+
+    private static BufferedReader reader(HttpURLConnection connection) throws IOException {
+        return new BufferedReader(new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Reads the given number of events, skipping the retry hint and heartbeats.
+     */
+    private static List<String> readEvents(BufferedReader reader, int count) throws IOException {
+        List<String> events = new ArrayList<>();
+        while (events.size() < count) {
+            String event = readEvent(reader);
+            Assert.assertNotNull(event, "Stream ended after " + events.size() + " events");
+            events.add(event);
+        }
+        return events;
+    }
+
+    /**
+     * @return The next event, without comments and the retry hint, or null at the end of the stream
+     */
+    private static String readEvent(BufferedReader reader) throws IOException {
+        StringBuilder event = new StringBuilder();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isEmpty()) {
+                if (event.length() > 0) {
+                    return event.toString();
+                }
+            } else if (!line.startsWith(":") && !line.startsWith("retry:")) {
+                event.append(line).append('\n');
+            }
+        }
+        return null;
+    }
+}
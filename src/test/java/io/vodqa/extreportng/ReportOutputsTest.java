@@ -0,0 +1,113 @@
+package io.vodqa.extreportng;
+
+import com.aventstack.extentreports.Status;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import io.vodqa.extreportng.output.JUnitXmlOutput;
+import io.vodqa.extreportng.output.NdjsonOutput;
+import io.vodqa.extreportng.output.ReportEvent;
+import io.vodqa.extreportng.output.ReportOutputs;
+import io.vodqa.extreportng.shard.ResultRecord;
+import org.testng.Assert;
+import org.testng.ISuite;
+import org.testng.ITestContext;
+import org.testng.ITestResult;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Feeds the events of a known run through the junit and ndjson outputs, with a buffer smaller than the run,
+ * and checks the files they write.
+ */
+public class ReportOutputsTest {
+
+    private static final int PASSED_TESTS = 20;
+
+    @Test
+    public void writesJUnitXml() throws IOException {
+        File folder = run("junit");
+
+        File file = new File(new File(folder, JUnitXmlOutput.FOLDER_NAME), "TEST-Output_Suite.Output_Tests.xml");
+        String xml = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        Assert.assertTrue(xml.contains("name=\"Output Suite.Output Tests\""), "testsuite name");
+        Assert.assertTrue(xml.contains("tests=\"" + (PASSED_TESTS + 1) + "\""), "test count");
+        Assert.assertTrue(xml.contains("failures=\"1\""), "failure count");
+        Assert.assertTrue(xml.contains("<testcase classname=\"" + Stubs.class.getName() + "\" name=\"login0\""), "passed test");
+        Assert.assertTrue(xml.contains("<failure type=\"java.lang.AssertionError\" message=\"expected [pass] but found [fail]\""),
+                "failure of checkout");
+        Assert.assertTrue(xml.contains("<system-out>checkout output</system-out>"), "reporter output");
+        Assert.assertFalse(xml.contains("after close"), "event published after close");
+    }
+
+    @Test
+    public void writesNdjson() throws IOException {
+        File folder = run("ndjson");
+
+        List<String> lines = Files.readAllLines(new File(folder, NdjsonOutput.FILE_NAME).toPath(), StandardCharsets.UTF_8);
+        // suite and context start, start and finish of every test, one log, context finish
+        Assert.assertEquals(lines.size(), 2 + 2 * (PASSED_TESTS + 1) + 1 + 1, "lines: " + lines);
+
+        JsonObject suite = new JsonParser().parse(lines.get(0)).getAsJsonObject();
+        Assert.assertEquals(suite.get("type").getAsString(), "SUITE_START");
+        Assert.assertEquals(suite.get("text").getAsString(), "Output Suite");
+
+        JsonObject log = null;
+        JsonObject failure = null;
+        for (String line : lines) {
+            JsonObject event = new JsonParser().parse(line).getAsJsonObject();
+            Assert.assertNotEquals(event.get("type").getAsString(), "FLUSH", "flush events are not written");
+            if (event.get("type").getAsString().equals("LOG")) {
+                log = event;
+            } else if (event.has("record") && event.getAsJsonObject("record").get("status").getAsString().equals(ResultRecord.FAIL)) {
+                failure = event;
+            }
+        }
+        Assert.assertNotNull(log, "log event");
+        Assert.assertEquals(log.get("status").getAsString(), Status.INFO.toString());
+        Assert.assertEquals(log.get("text").getAsString(), "checkout output");
+        Assert.assertNotNull(failure, "failed test");
+        Assert.assertEquals(failure.getAsJsonObject("record").get("method").getAsString(), "checkout");
+        Assert.assertFalse(lines.toString().contains("after close"), "event published after close");
+    }
+
+    /**
+     * Publishes a suite with one test context, {@value #PASSED_TESTS} passed tests and a failed test with reporter output.
+     */
+    private static File run(String outputName) throws IOException {
+        File folder = Files.createTempDirectory("report-outputs").toFile();
+        ISuite suite = Stubs.suite("Output Suite", Collections.emptyMap());
+        ITestContext context = Stubs.testContext("Output Tests", suite);
+
+        ReportOutputs outputs = ReportOutputs.open(outputName, folder, suite, 8);
+        outputs.publish(new ReportEvent(ReportEvent.Type.SUITE_START, 1, 0, null, "Output Suite", null));
+        outputs.publish(new ReportEvent(ReportEvent.Type.CONTEXT_START, 2, 1, null, "Output Tests", null));
+
+        int id = 3;
+        for (int i = 0; i < PASSED_TESTS; i++, id++) {
+            ITestResult result = Stubs.testResult(Stubs.testMethod("login" + i), context, ITestResult.SUCCESS, 1000, 1500);
+            outputs.publish(new ReportEvent(ReportEvent.Type.TEST_START, id, 2, null, "login" + i, null));
+            outputs.publish(new ReportEvent(ReportEvent.Type.TEST_FINISH, id, 0, Status.PASS, null,
+                    ResultRecord.from(result, Collections.emptyList())));
+        }
+
+        ITestResult checkout = Stubs.testResult(Stubs.testMethod("checkout"), context, ITestResult.FAILURE,
+                new AssertionError("expected [pass] but found [fail]"));
+        outputs.publish(new ReportEvent(ReportEvent.Type.TEST_START, id, 2, null, "checkout", null));
+        outputs.publish(new ReportEvent(ReportEvent.Type.LOG, id, 0, Status.INFO, "checkout output", null));
+        outputs.publish(new ReportEvent(ReportEvent.Type.TEST_FINISH, id, 0, Status.FAIL, null,
+                ResultRecord.from(checkout, Arrays.asList("checkout output"))));
+        outputs.publish(new ReportEvent(ReportEvent.Type.FLUSH, 2, 0, null, null, null));
+        outputs.publish(new ReportEvent(ReportEvent.Type.CONTEXT_FINISH, 2, 0, Status.FAIL, null, null));
+        outputs.close();
+
+        outputs.publish(new ReportEvent(ReportEvent.Type.LOG, id, 0, Status.INFO, "after close", null));
+        return folder;
+    }
+}
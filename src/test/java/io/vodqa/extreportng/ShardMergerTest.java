@@ -0,0 +1,167 @@
+package io.vodqa.extreportng;
+
+import io.vodqa.extreportng.shard.ShardMerger;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Merges hand-written result shards, from a folder and from tar archives as GNU and pax tar tools write them,
+ * and checks which attempts end up in the paged report.
+ */
+public class ShardMergerTest {
+
+    private static final String AGENT_1 =
+            record("login", 0, true, "FAIL", 100)
+            + record("login", 0, false, "PASS", 200)
+            + record("search", 0, false, "FAIL", 150)
+            + record("search", 1, false, "PASS", 160);
+
+    // a re-run agent, its later attempt of search wins
+    private static final String AGENT_2 = record("search", 0, false, "PASS", 300);
+
+    @Test
+    public void mergesShardFolder() throws IOException {
+        Path shards = Files.createTempDirectory("shards");
+        write(shards.resolve("shard-agent1.jsonl"), AGENT_1);
+        write(shards.resolve("shard-agent2.jsonl"), AGENT_2);
+        // the last line of a killed JVM
+        write(shards.resolve("shard-agent3.jsonl"), "{\"suite\":\"Sharded\",\"cont");
+
+        assertMerged(shards.toFile());
+    }
+
+    @Test
+    public void mergesGnuTarWithLongNames() throws IOException {
+        ByteArrayOutputStream tar = new ByteArrayOutputStream();
+        String longName = longDirectory() + "shard-agent1.jsonl";
+        byte[] longNameData = longName.getBytes(StandardCharsets.UTF_8);
+        writeEntry(tar, header("././@LongLink", octal(longNameData.length), 'L'), longNameData);
+        writeEntry(tar, header(longName.substring(0, 99), octal(AGENT_1.length()), '0'), AGENT_1.getBytes(StandardCharsets.UTF_8));
+        // base-256 size as GNU tar writes it for large files
+        writeEntry(tar, header("shard-agent2.jsonl", base256(AGENT_2.length()), '0'), AGENT_2.getBytes(StandardCharsets.UTF_8));
+        tar.write(new byte[1024]);
+
+        Path archive = Files.createTempDirectory("shards").resolve("shards.tar");
+        Files.write(archive, tar.toByteArray());
+
+        assertMerged(archive.toFile());
+    }
+
+    @Test
+    public void mergesPaxTarGz() throws IOException {
+        ByteArrayOutputStream tar = new ByteArrayOutputStream();
+        byte[] pax = (paxRecord("path", longDirectory() + "shard-agent1.jsonl")
+                + paxRecord("size", String.valueOf(AGENT_1.length()))).getBytes(StandardCharsets.UTF_8);
+        writeEntry(tar, header("PaxHeaders/shard-agent1.jsonl", octal(pax.length), 'x'), pax);
+        // the pax size wins over the size field
+        writeEntry(tar, header("shard-agent1.jsonl", octal(0), '0'), AGENT_1.getBytes(StandardCharsets.UTF_8));
+        writeEntry(tar, header("notes.txt", octal(5), '0'), "notes".getBytes(StandardCharsets.UTF_8));
+        writeEntry(tar, header("shard-agent2.jsonl", octal(AGENT_2.length()), '0'), AGENT_2.getBytes(StandardCharsets.UTF_8));
+        tar.write(new byte[1024]);
+
+        Path archive = Files.createTempDirectory("shards").resolve("shards.tar.gz");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(archive))) {
+            out.write(tar.toByteArray());
+        }
+
+        assertMerged(archive.toFile());
+    }
+
+    @Test(expectedExceptions = IOException.class, expectedExceptionsMessageRegExp = "Sparse tar entries are not supported.*")
+    public void rejectsSparseShards() throws IOException {
+        ByteArrayOutputStream tar = new ByteArrayOutputStream();
+        writeEntry(tar, header("shard-agent1.jsonl", octal(AGENT_1.length()), 'S'), AGENT_1.getBytes(StandardCharsets.UTF_8));
+        tar.write(new byte[1024]);
+
+        Path archive = Files.createTempDirectory("shards").resolve("shards.tar");
+        Files.write(archive, tar.toByteArray());
+
+        new ShardMerger(archive.toFile()).merge(archive.getParent().toFile());
+    }
+
+    private static void assertMerged(File shards) throws IOException {
+        File output = Files.createTempDirectory("merged").toFile();
+        File report = new ShardMerger(shards).merge(output);
+        Assert.assertTrue(report.isFile(), "index.html");
+
+        File data = new File(report.getParentFile(), "data");
+        String manifest = read(new File(data, "manifest.js"));
+        Assert.assertTrue(manifest.contains("\"totals\":{\"PASS\":3}"), "retried and superseded attempts dropped: " + manifest);
+
+        String chunk = read(new File(data, "chunk-0.js"));
+        Assert.assertTrue(chunk.contains("log of login PASS 200"), "retry of login");
+        Assert.assertFalse(chunk.contains("log of login FAIL 100"), "retried attempt");
+        Assert.assertTrue(chunk.contains("log of search PASS 300"), "latest attempt of the re-run invocation");
+        Assert.assertFalse(chunk.contains("log of search FAIL 150"), "superseded attempt");
+        Assert.assertTrue(chunk.contains("log of search PASS 160"), "repeated invocation");
+    }
+
+    private static String record(String method, int invocation, boolean retried, String status, long end) {
+        return "{\"suite\":\"Sharded\",\"context\":\"Sharded Tests\",\"className\":\"com.example.ShopTest\","
+                + "\"method\":\"" + method + "\",\"invocation\":" + invocation + ",\"retried\":" + retried + ","
+                + "\"status\":\"" + status + "\",\"startMillis\":" + (end - 10) + ",\"endMillis\":" + end + ","
+                + "\"logs\":[\"log of " + method + " " + status + " " + end + "\"]}\n";
+    }
+
+    private static String longDirectory() {
+        StringBuilder directory = new StringBuilder();
+        for (int i = 0; i < 20; i++) {
+            directory.append("agent-results-").append(i).append('/');
+        }
+        return directory.toString();
+    }
+
+    private static String paxRecord(String key, String value) {
+        String record = " " + key + "=" + value + "\n";
+        int length = record.length();
+        length += String.valueOf(length + String.valueOf(length).length()).length();
+        return length + record;
+    }
+
+    private static byte[] header(String name, byte[] size, char type) {
+        byte[] header = new byte[512];
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        System.arraycopy(nameBytes, 0, header, 0, nameBytes.length);
+        System.arraycopy(size, 0, header, 124, 12);
+        header[156] = (byte) type;
+        System.arraycopy("ustar\u000000".getBytes(StandardCharsets.US_ASCII), 0, header, 257, 8);
+        return header;
+    }
+
+    private static byte[] octal(long value) {
+        return String.format("%011o\u0000", value).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static byte[] base256(long value) {
+        byte[] field = new byte[12];
+        for (int i = 11; i > 0; i--) {
+            field[i] = (byte) value;
+            value >>>= 8;
+        }
+        field[0] = (byte) 0x80;
+        return field;
+    }
+
+    private static void writeEntry(ByteArrayOutputStream tar, byte[] header, byte[] data) throws IOException {
+        tar.write(header);
+        tar.write(data);
+        tar.write(new byte[(512 - data.length % 512) % 512]);
+    }
+
+    private static void write(Path file, String content) throws IOException {
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String read(File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,192 @@
+package io.vodqa.extreportng;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.OutputType;
+import org.openqa.selenium.TakesScreenshot;
+import org.openqa.selenium.WebDriver;
+import org.testng.IInvokedMethod;
+import org.testng.IMethodInstance;
+import org.testng.IResultMap;
+import org.testng.ISuite;
+import org.testng.ITestContext;
+import org.testng.ITestNGMethod;
+import org.testng.ITestResult;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Synthetic TestNG and WebDriver objects for driving the listener without running real tests.
+ *
+ * Stubs are dynamic proxies, so they keep working whatever methods the TestNG version on the classpath declares.
+ * Attribute methods are backed by a map, methods listed in the answers map return the given value
+ * and everything else returns the default value for its return type.
+ *
+ * Shared by the tests and, through the test jar, by the benchmarks.
+ */
+public final class Stubs {
+
+    private Stubs() {
+    }
+
+    public static ISuite suite(String name, Map<String, String> parameters) {
+        Map<String, Function<Object[], Object>> answers = new HashMap<>();
+        answers.put("getName", args -> name);
+        answers.put("getParameter", args -> parameters.get((String) args[0]));
+        return stub(ISuite.class, answers);
+    }
+
+    public static ITestContext testContext(String name, ISuite suite) {
+        IResultMap emptyResults = stub(IResultMap.class, Collections.singletonMap(
+                "getAllResults", args -> Collections.emptySet()));
+
+        Map<String, Function<Object[], Object>> answers = new HashMap<>();
+        answers.put("getName", args -> name);
+        answers.put("getSuite", args -> suite);
+        answers.put("getPassedTests", args -> emptyResults);
+        answers.put("getFailedTests", args -> emptyResults);
+        answers.put("getSkippedTests", args -> emptyResults);
+        answers.put("getFailedButWithinSuccessPercentageTests", args -> emptyResults);
+        return stub(ITestContext.class, answers);
+    }
+
+    public static ITestNGMethod testMethod(String name, String... groups) {
+        Map<String, Function<Object[], Object>> answers = new HashMap<>();
+        answers.put("getMethodName", args -> name);
+        answers.put("getDescription", args -> "Synthetic test " + name);
+        answers.put("getGroups", args -> groups);
+        answers.put("getRealClass", args -> Stubs.class);
+        return stub(ITestNGMethod.class, answers);
+    }
+
+    public static IMethodInstance methodInstance(ITestNGMethod method) {
+        return stub(IMethodInstance.class, Collections.singletonMap("getMethod", args -> method));
+    }
+
+    public static ITestResult testResult(ITestNGMethod method, ITestContext context, int status, Throwable throwable) {
+        String id = UUID.randomUUID().toString();
+        Map<String, Function<Object[], Object>> answers = new HashMap<>();
+        answers.put("id", args -> id);
+        answers.put("getName", args -> method.getMethodName());
+        answers.put("getMethod", args -> method);
+        answers.put("getTestContext", args -> context);
+        answers.put("getStatus", args -> status);
+        answers.put("getThrowable", args -> throwable);
+        return stub(ITestResult.class, answers);
+    }
+
+    public static ITestResult testResult(ITestNGMethod method, ITestContext context, int status, long startMillis, long endMillis) {
+        Map<String, Function<Object[], Object>> answers = new HashMap<>();
+        answers.put("getName", args -> method.getMethodName());
+        answers.put("getMethod", args -> method);
+        answers.put("getTestContext", args -> context);
+        answers.put("getStatus", args -> status);
+        answers.put("getStartMillis", args -> startMillis);
+        answers.put("getEndMillis", args -> endMillis);
+        return stub(ITestResult.class, answers);
+    }
+
+    public static IInvokedMethod invokedMethod(ITestNGMethod method) {
+        Map<String, Function<Object[], Object>> answers = new HashMap<>();
+        answers.put("isTestMethod", args -> true);
+        answers.put("getTestMethod", args -> method);
+        return stub(IInvokedMethod.class, answers);
+    }
+
+    /**
+     * Creates a driver that answers every screenshot request with the same image bytes
+     * and every script call with {@code null}.
+     *
+     * @param imageSize Size of the fake screenshot in bytes
+     * @return          {@link WebDriver} that is also {@link TakesScreenshot} and {@link JavascriptExecutor}
+     */
+    public static WebDriver screenshotDriver(int imageSize) {
+        byte[] image = new byte[imageSize];
+        new Random(42).nextBytes(image);
+        return screenshotDriver(image::clone);
+    }
+
+    /**
+     * Creates a driver that answers every screenshot request with the next image of the given supplier
+     * and every script call with {@code null}.
+     *
+     * @param screenshots   Supplier of the screenshot image bytes
+     * @return              {@link WebDriver} that is also {@link TakesScreenshot} and {@link JavascriptExecutor}
+     */
+    public static WebDriver screenshotDriver(Supplier<byte[]> screenshots) {
+        Map<String, Function<Object[], Object>> answers = new HashMap<>();
+        answers.put("getScreenshotAs", args -> ((OutputType<?>) args[0]).convertFromPngBytes(screenshots.get()));
+        return (WebDriver) Proxy.newProxyInstance(Stubs.class.getClassLoader(),
+                new Class<?>[]{WebDriver.class, TakesScreenshot.class, JavascriptExecutor.class},
+                new StubHandler(answers));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T stub(Class<T> type, Map<String, Function<Object[], Object>> answers) {
+        return (T) Proxy.newProxyInstance(Stubs.class.getClassLoader(), new Class<?>[]{type}, new StubHandler(answers));
+    }
+
+    private static final class StubHandler implements InvocationHandler {
+        private final Map<String, Function<Object[], Object>> answers;
+        private final Map<String, Object> attributes = new ConcurrentHashMap<>();
+
+        StubHandler(Map<String, Function<Object[], Object>> answers) {
+            this.answers = answers;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            String name = method.getName();
+            switch (name) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Stub" + Integer.toHexString(System.identityHashCode(proxy));
+                case "getAttribute":
+                    return attributes.get((String) args[0]);
+                case "setAttribute":
+                    attributes.put((String) args[0], args[1]);
+                    return null;
+                case "removeAttribute":
+                    return attributes.remove((String) args[0]);
+                case "getAttributeNames":
+                    return attributes.keySet();
+                default:
+                    Function<Object[], Object> answer = answers.get(name);
+                    return answer != null ? answer.apply(args) : defaultValue(method.getReturnType());
+            }
+        }
+
+        private static Object defaultValue(Class<?> type) {
+            if (!type.isPrimitive() || type == void.class) {
+                return null;
+            } else if (type == boolean.class) {
+                return false;
+            } else if (type == long.class) {
+                return 0L;
+            } else if (type == double.class) {
+                return 0d;
+            } else if (type == float.class) {
+                return 0f;
+            } else if (type == char.class) {
+                return '\0';
+            } else if (type == byte.class) {
+                return (byte) 0;
+            } else if (type == short.class) {
+                return (short) 0;
+            }
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package io.vodqa.extreportng;
+
+import com.aventstack.extentreports.Status;
+import io.vodqa.extreportng.listener.TNGReportListener;
+import io.vodqa.extreportng.utils.VirtualThreads;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingFile;
+import org.openqa.selenium.WebDriver;
+import org.testng.Assert;
+import org.testng.IInvokedMethod;
+import org.testng.ISuite;
+import org.testng.ITestContext;
+import org.testng.ITestNGMethod;
+import org.testng.ITestResult;
+import org.testng.SkipException;
+import org.testng.annotations.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Drives the listener with 1000 synthetic tests running in parallel on virtual threads
+ * and checks with JFR that no virtual thread got pinned to its carrier thread.
+ *
+ * Skipped on JDKs without virtual threads. The build runs it in its own JVM with {@code -Dreport.virtualThreads=true},
+ * which also covers the virtual thread screenshot writer,
+ * and keeps the probe listener from replacing the report instance of the other suites.
+ */
+public class VirtualThreadPinningTest {
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final int TESTS = 1000;
+    private static final int SCREENSHOT_EVERY = 10;
+
+    @Test
+    public void listenerDoesNotPinCarrierThreads() throws Exception {
+        if (!VirtualThreads.isSupported()) {
+            throw new SkipException("Virtual threads need JDK 21 or later");
+        }
+
+        Path recordingFile = Files.createTempFile("virtual-thread-pinning", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(PINNED_EVENT).withThreshold(Duration.ZERO).withStackTrace();
+            recording.start();
+            runParallelTests();
+            recording.stop();
+            recording.dump(recordingFile);
+        }
+
+        List<RecordedEvent> pinned = RecordingFile.readAllEvents(recordingFile).stream()
+                .filter(e -> PINNED_EVENT.equals(e.getEventType().getName()))
+                .collect(Collectors.toList());
+        Files.deleteIfExists(recordingFile);
+
+        Assert.assertTrue(pinned.isEmpty(), pinned.size() + " pinned virtual thread event(s), first at:\n"
+                + (pinned.isEmpty() ? "" : describe(pinned.get(0))));
+    }
+
+    private static void runParallelTests() throws Exception {
+        String reportPath = System.getProperty("reportPath");
+        ProbeListener listener = new ProbeListener();
+        // keep the synthetic run out of the report of the real suite
+        Path probeReport = Files.createTempDirectory("virtual-thread-pinning");
+        System.setProperty("reportPath", probeReport.toString());
+
+        try {
+            ISuite suite = Stubs.suite("Virtual thread pinning probe", Collections.singletonMap("report.output", "paged"));
+            ITestContext context = Stubs.testContext("Probe tests", suite);
+            AtomicInteger shots = new AtomicInteger();
+            WebDriver driver = Stubs.screenshotDriver(() -> png(shots.incrementAndGet()));
+
+            listener.onStart(suite);
+            listener.onStart(context);
+
+            ExecutorService executor = VirtualThreads.newVirtualThreadPerTaskExecutor();
+            Future<?>[] tests = new Future<?>[TESTS];
+            for (int i = 0; i < TESTS; i++) {
+                int index = i;
+                tests[i] = executor.submit(() -> {
+                    ITestNGMethod method = Stubs.testMethod("probe" + index, "probe");
+                    long startMillis = System.currentTimeMillis();
+                    ITestResult result = Stubs.testResult(method, context, ITestResult.SUCCESS, startMillis, startMillis);
+                    IInvokedMethod invokedMethod = Stubs.invokedMethod(method);
+
+                    listener.beforeInvocation(invokedMethod, result);
+                    listener.addLogToTest(Status.INFO, "Probe step of test " + index);
+                    if (index % SCREENSHOT_EVERY == 0) {
+                        listener.capture(driver, "probe" + index);
+                    }
+                    listener.afterInvocation(invokedMethod, result);
+                    return null;
+                });
+            }
+            for (Future<?> test : tests) {
+                test.get();
+            }
+            executor.shutdown();
+            Assert.assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+
+            listener.onFinish(context);
+            listener.onFinish(suite);
+            listener.generateReport(Collections.emptyList(), Collections.singletonList(suite), probeReport.toString());
+        } finally {
+            if (reportPath != null) {
+                System.setProperty("reportPath", reportPath);
+            } else {
+                System.clearProperty("reportPath");
+            }
+        }
+    }
+
+    private static String describe(RecordedEvent event) {
+        if (event.getStackTrace() == null) {
+            return event.toString();
+        }
+        return event.getStackTrace().getFrames().stream()
+                .map(RecordedFrame::getMethod)
+                .map(m -> "    " + m.getType().getName() + "." + m.getName())
+                .collect(Collectors.joining("\n"));
+    }
+
+    private static final class ProbeListener extends TNGReportListener {
+        String capture(WebDriver driver, String name) throws IOException {
+            return captureScreenshot(driver, name);
+        }
+    }
+
+    private static byte[] png(int seed) {
+        BufferedImage image = new BufferedImage(64, 64, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        try {
+            g.setColor(new Color((seed * 0x9E3779B1) & 0xFFFFFF));
+            g.fillRect(0, 0, 64, 64);
+        } finally {
+            g.dispose();
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            ImageIO.write(image, "png", out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+}
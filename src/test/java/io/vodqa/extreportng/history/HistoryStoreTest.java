@@ -0,0 +1,131 @@
+package io.vodqa.extreportng.history;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import io.vodqa.extreportng.shard.ResultRecord;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * Commits runs to a history store in a temporary folder and reads them back the way the next run does.
+ */
+public class HistoryStoreTest {
+
+    private static final String CLASS_NAME = "com.example.ShopTest";
+    private static final long START = 1500000000000L;
+
+    @Test
+    public void readsVersionOneSummary() throws IOException {
+        File folder = Files.createTempDirectory("history").toFile();
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(new File(folder, "summary.bin").toPath()))) {
+            out.writeInt(0x54484953);
+            out.writeInt(1);
+            out.writeInt(1);
+            out.writeUTF(HistoryStore.key(CLASS_NAME, "login", null));
+            // failed two runs ago
+            out.writeLong(0b100L);
+            out.writeInt(3);
+            out.writeLong(START);
+            out.writeByte(3);
+            out.writeInt(100);
+            out.writeInt(200);
+            out.writeInt(300);
+        }
+
+        HistoryStore store = HistoryStore.open(folder, 10);
+        TestHistory login = store.get(HistoryStore.key(CLASS_NAME, "login", null));
+        Assert.assertNotNull(login, "history of version 1");
+        Assert.assertEquals(login.getRuns(), 3);
+        Assert.assertEquals(login.getPassRate(3), 2 / 3d, 1e-9);
+        Assert.assertEquals(login.getDuration(0), 300, "latest duration");
+        Assert.assertEquals(login.getDuration(2), 100, "oldest duration");
+
+        commit(folder, 1, "login");
+        TestHistory updated = HistoryStore.open(folder, 10).get(HistoryStore.key(CLASS_NAME, "login", null));
+        Assert.assertEquals(updated.getRuns(), 4, "runs after upgrading the summary");
+        Assert.assertEquals(updated.getDuration(1), 300, "durations kept");
+        Assert.assertEquals(updated.getPassRate(4), 3 / 4d, 1e-9);
+    }
+
+    @Test
+    public void evictsTestsNotSeenInTheWindow() throws IOException {
+        File folder = Files.createTempDirectory("history").toFile();
+        commit(folder, 0, "login", "removed");
+        for (int run = 1; run < TestHistory.WINDOW; run++) {
+            commit(folder, run, "login");
+        }
+        Assert.assertNotNull(HistoryStore.open(folder, 2).get(HistoryStore.key(CLASS_NAME, "removed", null)),
+                "test seen in the window");
+
+        commit(folder, TestHistory.WINDOW, "login");
+        HistoryStore store = HistoryStore.open(folder, 2);
+        Assert.assertNull(store.get(HistoryStore.key(CLASS_NAME, "removed", null)), "test not seen in the window");
+        Assert.assertEquals(store.get(HistoryStore.key(CLASS_NAME, "login", null)).getRuns(), TestHistory.WINDOW + 1);
+
+        String[] runFiles = new File(folder, "runs").list();
+        Assert.assertNotNull(runFiles);
+        Assert.assertEquals(runFiles.length, 2, "raw run files kept");
+    }
+
+    @Test
+    public void keepsSkippedTestsInTheWindow() throws IOException {
+        File folder = Files.createTempDirectory("history").toFile();
+        commit(folder, 0, "login", "disabled");
+        for (int run = 1; run <= TestHistory.WINDOW; run++) {
+            HistoryStore store = HistoryStore.open(folder, 2);
+            store.record(record("login", null, ResultRecord.PASS, run));
+            store.record(record("disabled", null, ResultRecord.SKIP, run));
+            store.commit(HistoryStore.runId(START + run * 1000L), START + run * 1000L);
+        }
+
+        TestHistory disabled = HistoryStore.open(folder, 2).get(HistoryStore.key(CLASS_NAME, "disabled", null));
+        Assert.assertNotNull(disabled, "skipped test");
+        Assert.assertEquals(disabled.getRuns(), 1, "skipped runs are not counted");
+    }
+
+    @Test
+    public void storesKeysOver64KB() throws IOException {
+        StringBuilder parameters = new StringBuilder("[");
+        while (parameters.length() < 70000) {
+            parameters.append("row-\u00e9-").append(parameters.length()).append(", ");
+        }
+        parameters.append(']');
+
+        File folder = Files.createTempDirectory("history").toFile();
+        HistoryStore store = HistoryStore.open(folder, 10);
+        store.record(record("search", parameters.toString(), ResultRecord.FAIL, 0));
+        store.commit(HistoryStore.runId(START), START);
+
+        String key = HistoryStore.key(CLASS_NAME, "search", parameters.toString());
+        TestHistory search = HistoryStore.open(folder, 10).get(key);
+        Assert.assertNotNull(search, "history of the long key");
+        Assert.assertEquals(search.getKey(), key);
+        Assert.assertTrue(search.isLastFailed());
+    }
+
+    private static void commit(File folder, int run, String... methods) throws IOException {
+        HistoryStore store = HistoryStore.open(folder, 2);
+        for (String method : methods) {
+            store.record(record(method, null, ResultRecord.PASS, run));
+        }
+        // run ids sort by their second, so every run gets its own
+        long runMillis = START + run * 1000L;
+        store.commit(HistoryStore.runId(runMillis), runMillis);
+    }
+
+    private static ResultRecord record(String method, String parameters, String status, int run) {
+        JsonObject json = new JsonObject();
+        json.addProperty("className", CLASS_NAME);
+        json.addProperty("method", method);
+        json.addProperty("parameters", parameters);
+        json.addProperty("status", status);
+        json.addProperty("startMillis", START + run * 1000L);
+        json.addProperty("endMillis", START + run * 1000L + 50);
+        return new Gson().fromJson(json, ResultRecord.class);
+    }
+}
@@ -0,0 +1,90 @@
+package io.vodqa.extreportng.history;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Checks the statistics of a test history window against outcomes and durations worked out by hand.
+ */
+public class TestHistoryTest {
+
+    private static final double DELTA = 1e-9;
+
+    @Test
+    public void passRateAndFlakiness() {
+        TestHistory history = new TestHistory("Shop#checkout");
+        Assert.assertTrue(Double.isNaN(history.getPassRate(TestHistory.WINDOW)), "pass rate without runs");
+        Assert.assertEquals(history.getFlakiness(), 0d, DELTA, "flakiness without runs");
+
+        // oldest first: fail, pass, fail, pass
+        history.add(true, 10, 1);
+        Assert.assertEquals(history.getFlakiness(), 0d, DELTA, "flakiness of one run");
+        history.add(false, 10, 2);
+        history.add(true, 10, 3);
+        history.add(false, 10, 4);
+
+        Assert.assertFalse(history.isLastFailed());
+        Assert.assertEquals(history.getPassRate(1), 1d, DELTA, "latest run");
+        Assert.assertEquals(history.getPassRate(3), 2 / 3d, DELTA, "latest three runs");
+        Assert.assertEquals(history.getPassRate(TestHistory.WINDOW), 0.5, DELTA, "window");
+        Assert.assertEquals(history.getFailureRate(), 0.5, DELTA);
+        Assert.assertEquals(history.getFlakiness(), 1d, DELTA, "alternating outcomes");
+
+        history.add(false, 10, 5);
+        history.add(false, 10, 6);
+        // 3 flips in the 5 pairs of consecutive runs
+        Assert.assertEquals(history.getFlakiness(), 3 / 5d, DELTA, "flips per run pair");
+        Assert.assertEquals(history.getLastRunMillis(), 6L);
+    }
+
+    @Test
+    public void outcomesOutsideTheWindowAreDropped() {
+        TestHistory history = new TestHistory("Shop#search");
+        for (int i = 0; i < TestHistory.WINDOW; i++) {
+            history.add(true, 10, i);
+        }
+        Assert.assertEquals(history.getFailureRate(), 1d, DELTA);
+
+        for (int i = 0; i < TestHistory.WINDOW; i++) {
+            history.add(false, 10, i);
+        }
+        Assert.assertEquals(history.getRuns(), 2 * TestHistory.WINDOW);
+        Assert.assertEquals(history.getWindowSize(), TestHistory.WINDOW);
+        Assert.assertEquals(history.getFailureRate(), 0d, DELTA);
+        Assert.assertEquals(history.getFlakiness(), 0d, DELTA);
+    }
+
+    @Test
+    public void durationPercentiles() {
+        TestHistory history = new TestHistory("Shop#login");
+        for (int duration = 1; duration <= 100; duration++) {
+            history.add(false, duration, duration);
+        }
+
+        // the window holds the durations 37 to 100, latest first
+        Assert.assertEquals(history.getDuration(0), 100);
+        Assert.assertEquals(history.getDuration(TestHistory.WINDOW - 1), 37);
+        Assert.assertEquals(history.getDurationPercentile(0, 0, TestHistory.WINDOW), 37L, "p0");
+        Assert.assertEquals(history.getDurationPercentile(50, 0, TestHistory.WINDOW), 68L, "p50");
+        Assert.assertEquals(history.getDurationPercentile(100, 0, TestHistory.WINDOW), 100L, "p100");
+        Assert.assertEquals(history.getDurationPercentile(90, 0, TestHistory.RECENT), 99L, "p90 of the recent runs");
+        Assert.assertEquals(history.getDurationPercentile(50, TestHistory.WINDOW, TestHistory.WINDOW + 10), -1L, "empty range");
+        Assert.assertEquals(history.getMeanDuration(), 68L, "mean");
+    }
+
+    @Test
+    public void durationDrift() {
+        TestHistory history = new TestHistory("Shop#report");
+        Assert.assertTrue(Double.isNaN(history.getDurationDrift(50)), "drift without runs");
+
+        for (int i = 0; i < TestHistory.RECENT; i++) {
+            history.add(false, 100, i);
+        }
+        Assert.assertTrue(Double.isNaN(history.getDurationDrift(50)), "drift without older runs");
+
+        for (int i = 0; i < TestHistory.RECENT; i++) {
+            history.add(false, 150, i);
+        }
+        Assert.assertEquals(history.getDurationDrift(50), 0.5, DELTA, "50% slower");
+    }
+}
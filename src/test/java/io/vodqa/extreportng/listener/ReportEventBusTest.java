@@ -0,0 +1,124 @@
+package io.vodqa.extreportng.listener;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Publishes report updates from several threads, with a buffer small enough to wrap many times,
+ * and checks the order they are applied in and what happens when the bus is closed meanwhile.
+ */
+public class ReportEventBusTest {
+
+    private static final int PRODUCERS = 4;
+    private static final int UPDATES = 20000;
+
+    @Test
+    public void appliesUpdatesInPublishingOrder() throws InterruptedException {
+        List<List<Integer>> applied = new ArrayList<>();
+        for (int p = 0; p < PRODUCERS; p++) {
+            applied.add(new ArrayList<>());
+        }
+
+        try (ReportEventBus bus = new ReportEventBus(16)) {
+            Thread[] producers = new Thread[PRODUCERS];
+            for (int p = 0; p < PRODUCERS; p++) {
+                List<Integer> updates = applied.get(p);
+                producers[p] = new Thread(() -> {
+                    for (int i = 0; i < UPDATES; i++) {
+                        int update = i;
+                        // only the builder thread touches the lists
+                        bus.publish(() -> updates.add(update));
+                    }
+                });
+                producers[p].start();
+            }
+            join(producers);
+            bus.awaitAll();
+        }
+
+        for (List<Integer> updates : applied) {
+            Assert.assertEquals(updates.size(), UPDATES);
+            for (int i = 0; i < UPDATES; i++) {
+                Assert.assertEquals((int) updates.get(i), i, "update order");
+            }
+        }
+    }
+
+    @Test
+    public void appliesEveryUpdateOnceWhenClosedWhilePublishing() throws InterruptedException {
+        AtomicInteger appliedCount = new AtomicInteger();
+        AtomicInteger running = new AtomicInteger();
+        AtomicBoolean overlapped = new AtomicBoolean();
+        Runnable update = () -> {
+            if (running.incrementAndGet() > 1) {
+                overlapped.set(true);
+            }
+            appliedCount.incrementAndGet();
+            running.decrementAndGet();
+        };
+
+        ReportEventBus bus = new ReportEventBus(16);
+        CountDownLatch started = new CountDownLatch(PRODUCERS);
+        Thread[] producers = new Thread[PRODUCERS];
+        for (int p = 0; p < PRODUCERS; p++) {
+            producers[p] = new Thread(() -> {
+                started.countDown();
+                for (int i = 0; i < UPDATES; i++) {
+                    bus.publish(update);
+                }
+            });
+            producers[p].start();
+        }
+
+        started.await();
+        bus.close();
+        join(producers);
+        bus.awaitAll();
+
+        Assert.assertEquals(appliedCount.get(), PRODUCERS * UPDATES, "updates applied");
+        Assert.assertFalse(overlapped.get(), "updates applied on the builder and a publishing thread at once");
+    }
+
+    @Test
+    public void appliesUpdatesOnPublishingThreadAfterClose() {
+        ReportEventBus bus = new ReportEventBus(16);
+        List<Thread> threads = new ArrayList<>();
+        bus.publish(() -> threads.add(Thread.currentThread()));
+        bus.close();
+
+        long sequence = bus.publish(() -> threads.add(Thread.currentThread()));
+        bus.await(sequence);
+
+        Assert.assertEquals(threads.size(), 2);
+        Assert.assertNotEquals(threads.get(0), Thread.currentThread(), "update before close");
+        Assert.assertEquals(threads.get(1), Thread.currentThread(), "update after close");
+    }
+
+    @Test
+    public void keepsBuildingAfterFailedUpdate() {
+        AtomicBoolean applied = new AtomicBoolean();
+        try (ReportEventBus bus = new ReportEventBus(16)) {
+            bus.publish(() -> {
+                throw new AssertionError("broken update");
+            });
+            bus.publish(() -> {
+                throw new IllegalStateException("broken update");
+            });
+            bus.await(bus.publish(() -> applied.set(true)));
+        }
+
+        Assert.assertTrue(applied.get(), "update after the failed ones");
+    }
+
+    private static void join(Thread[] threads) throws InterruptedException {
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+}
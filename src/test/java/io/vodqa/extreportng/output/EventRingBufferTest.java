@@ -0,0 +1,122 @@
+package io.vodqa.extreportng.output;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Publishes events from several threads into a buffer small enough to wrap many times
+ * and reads them with consumers of different speed.
+ */
+public class EventRingBufferTest {
+
+    private static final int PRODUCERS = 4;
+    private static final int EVENTS = 5000;
+
+    @Test
+    public void deliversEveryEventToEveryConsumerInOrder() throws InterruptedException {
+        EventRingBuffer ring = new EventRingBuffer(16, 2);
+        List<List<ReportEvent>> received = new ArrayList<>();
+        Thread[] consumers = new Thread[2];
+        for (int c = 0; c < consumers.length; c++) {
+            List<ReportEvent> events = new ArrayList<>();
+            received.add(events);
+            int consumer = c;
+            consumers[c] = new Thread(() -> consume(ring, consumer, events, consumer == 1));
+            consumers[c].start();
+        }
+
+        Thread[] producers = new Thread[PRODUCERS];
+        for (int p = 0; p < PRODUCERS; p++) {
+            int producer = p + 1;
+            producers[p] = new Thread(() -> {
+                for (int i = 0; i < EVENTS; i++) {
+                    ring.publish(new ReportEvent(ReportEvent.Type.LOG, producer, 0, null, String.valueOf(i), null));
+                }
+            });
+            producers[p].start();
+        }
+        join(producers);
+        ring.close();
+        join(consumers);
+
+        for (List<ReportEvent> events : received) {
+            Assert.assertEquals(events.size(), PRODUCERS * EVENTS, "events received");
+            int[] next = new int[PRODUCERS + 1];
+            for (ReportEvent event : events) {
+                Assert.assertEquals(Integer.parseInt(event.getText()), next[event.getId()]++, "order of producer " + event.getId());
+            }
+        }
+    }
+
+    @Test
+    public void dropsEventsPublishedAfterClose() {
+        EventRingBuffer ring = new EventRingBuffer(16, 1);
+        Assert.assertTrue(ring.publish(new ReportEvent(ReportEvent.Type.LOG, 1, 0, null, "before", null)));
+        Assert.assertTrue(ring.close(), "first close");
+        Assert.assertFalse(ring.close(), "second close");
+
+        Assert.assertFalse(ring.publish(new ReportEvent(ReportEvent.Type.LOG, 1, 0, null, "after", null)));
+        Assert.assertEquals(ring.getClaimed(), 0L, "last claimed sequence");
+        Assert.assertEquals(ring.get(0).getText(), "before");
+    }
+
+    @Test
+    public void stoppedConsumerDoesNotBlockProducers() throws InterruptedException {
+        EventRingBuffer ring = new EventRingBuffer(4, 2);
+        // the first consumer is gone
+        ring.release(0, Long.MAX_VALUE);
+
+        AtomicInteger consumed = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(1);
+        Thread consumer = new Thread(() -> {
+            long next = 0;
+            while (!ring.isClosed() || next <= ring.getClaimed()) {
+                if (ring.get(next) != null) {
+                    ring.release(1, next++);
+                    consumed.incrementAndGet();
+                } else {
+                    Thread.yield();
+                }
+            }
+            done.countDown();
+        });
+        consumer.start();
+
+        for (int i = 0; i < 100; i++) {
+            ring.publish(new ReportEvent(ReportEvent.Type.LOG, 1, 0, null, String.valueOf(i), null));
+        }
+        ring.close();
+        done.await();
+
+        Assert.assertEquals(consumed.get(), 100);
+    }
+
+    private static void consume(EventRingBuffer ring, int consumer, List<ReportEvent> events, boolean slow) {
+        long next = 0;
+        while (true) {
+            ReportEvent event = ring.get(next);
+            if (event != null) {
+                events.add(event);
+                ring.release(consumer, next++);
+                if (slow && next % 100 == 0) {
+                    Thread.yield();
+                }
+            } else if (ring.isClosed() && next > ring.getClaimed()) {
+                return;
+            } else {
+                Thread.yield();
+            }
+        }
+    }
+
+    private static void join(Thread[] threads) throws InterruptedException {
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+}